@@ -0,0 +1,7 @@
+#import "Common/ShaderLib/GLSLCompat.glsllib"
+
+varying vec4 color;
+
+void main() {
+    gl_FragColor = color;
+}
@@ -0,0 +1,24 @@
+#import "Common/ShaderLib/GLSLCompat.glsllib"
+
+// Billboard de las barras de vida: inPosition es la posicion de la barra y
+// inTexCoord la esquina en unidades de la barra (x, y, desplazamiento hacia la camara).
+
+uniform mat4 g_ViewMatrix;
+uniform mat4 g_ViewProjectionMatrix;
+
+attribute vec3 inPosition;
+attribute vec3 inTexCoord;
+attribute vec4 inColor;
+
+varying vec4 color;
+
+void main() {
+    // Las filas de la matriz de vista son los ejes de la camara en el mundo
+    vec3 right = vec3(g_ViewMatrix[0][0], g_ViewMatrix[1][0], g_ViewMatrix[2][0]);
+    vec3 up = vec3(g_ViewMatrix[0][1], g_ViewMatrix[1][1], g_ViewMatrix[2][1]);
+    vec3 toCamera = vec3(g_ViewMatrix[0][2], g_ViewMatrix[1][2], g_ViewMatrix[2][2]);
+
+    vec3 worldPos = inPosition + right * inTexCoord.x + up * inTexCoord.y + toCamera * inTexCoord.z;
+    color = inColor;
+    gl_Position = g_ViewProjectionMatrix * vec4(worldPos, 1.0);
+}
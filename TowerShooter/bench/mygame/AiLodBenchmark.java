@@ -0,0 +1,119 @@
+package mygame;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.control.RigidBodyControl;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de IA + fisica por frame con y sin niveles de detalle, reproduciendo
+ * Main.updateEnemyMovement(): planificacion, lectura de posiciones, IA,
+ * aplicacion (velocidades o movimiento cinematico), actualizacion de los
+ * controles y paso fisico. Los enemigos estan repartidos entre 10 y 120
+ * unidades de la torre, como a mitad de una oleada.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AiLodBenchmark {
+
+    private static final float TPF = 1 / 60f;
+
+    @Param({"500", "2000"})
+    public int enemies;
+
+    @Param({"false", "true"})
+    public boolean lod;
+
+    private PhysicsSpace space;
+    private EnemyRegistry registry;
+    private EnemyAi ai;
+    private EnemyLod enemyLod;
+    private HeightSampler ground;
+    private Node root;
+    private final Vector3f location = new Vector3f();
+
+    @Setup
+    public void setUp() {
+        Random rand = new Random(42);
+        space = new PhysicsSpace(new Vector3f(-300, -50, -300), new Vector3f(300, 50, 300),
+                PhysicsSpace.BroadphaseType.DBVT);
+        space.setGravity(new Vector3f(0, -9.8f, 0));
+
+        PhysicsRigidBody floor = new PhysicsRigidBody(new BoxCollisionShape(new Vector3f(300, 1, 300)), 0);
+        floor.setPhysicsLocation(new Vector3f(0, -1, 0));
+        space.addCollisionObject(floor);
+        ground = new HeightSampler(new float[513 * 513], 513, new Vector3f(2, 1, 2), Vector3f.ZERO);
+
+        root = new Node("Root");
+        registry = new EnemyRegistry();
+        for (int i = 0; i < enemies; i++) {
+            float angle = rand.nextFloat() * 6.2831855f;
+            float distance = 10f + rand.nextFloat() * 110f;
+            Vector3f position = new Vector3f(distance * (float) Math.cos(angle), 1, distance * (float) Math.sin(angle));
+
+            Node node = new Node("Cowboy_" + i);
+            node.setLocalTranslation(position);
+            RigidBodyControl body = new RigidBodyControl(new BoxCollisionShape(new Vector3f(1, 1, 1)), 2);
+            node.addControl(body);
+            body.setPhysicsLocation(position);
+            CollisionGroups.setupEnemy(body);
+            space.add(body);
+            root.attachChild(node);
+
+            MovementPattern pattern = MovementPattern.VALUES[i % MovementPattern.VALUES.length];
+            registry.add(node, body, 3, pattern.ordinal(), rand.nextFloat() * 5f, rand.nextLong());
+        }
+
+        ai = new EnemyAi(false, 0, 256);
+        GameConfig config = new GameConfig();
+        enemyLod = lod
+                ? new EnemyLod(config.lodNearDistance, config.lodFarDistance, config.lodMidInterval,
+                        config.lodFarInterval, config.lodFarKinematic, LocomotionMode.DYNAMIC)
+                : EnemyLod.disabled(LocomotionMode.DYNAMIC);
+    }
+
+    @TearDown
+    public void tearDown() {
+        space.destroy();
+    }
+
+    @Benchmark
+    public PhysicsSpace frame() {
+        enemyLod.schedule(registry, TPF);
+        for (int i = 0; i < registry.size(); i++) {
+            if (!registry.bodies[i].isKinematic()) {
+                registry.bodies[i].getPhysicsLocation(location);
+                registry.posX[i] = location.x;
+                registry.posY[i] = location.y;
+                registry.posZ[i] = location.z;
+            }
+        }
+        ai.steerAll(registry, 0, 0, 0, 3f, TPF);
+        enemyLod.apply(registry, ground, TPF);
+
+        root.updateLogicalState(TPF);
+        space.update(TPF);
+        return space;
+    }
+}
@@ -0,0 +1,128 @@
+package mygame;
+
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste por frame de retirar balas con {@code bullets} en vuelo.
+ * legacyScan replica el antiguo recorrido de activeBullets buscando las que
+ * han caido por debajo de y = -10 (ninguna, como pasa con los disparos al
+ * aire); ringExpire es el frame estable de LiveBullets, en el que caduca la
+ * mas antigua y se dispara una nueva. Los *Hit dan de baja una bala que
+ * impacta y la vuelven a disparar: ArrayList.remove frente a marcar su hueco
+ * (con las compactaciones del buffer repartidas entre los frames).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BulletExpiryBenchmark {
+
+    private static final float FRAME = 1f / 60f;
+    private static final float SPEED = 50f;
+
+    @Param({"64", "1024", "16384"})
+    public int bullets;
+
+    private ArrayList<Spatial> activeBullets;
+    private LiveBullets liveBullets;
+    private LiveBullets hitBullets;
+    private Spatial[] nodes;
+    private final ArrayDeque<Spatial> free = new ArrayDeque<>();
+    private final LiveBullets.Sink release = (bullet, reason, age) -> free.push(bullet);
+    private float now;
+    private int hitIndex;
+
+    @Setup
+    public void setUp() {
+        activeBullets = new ArrayList<>(bullets);
+        // Vida justa para que en cada frame caduque exactamente una
+        liveBullets = new LiveBullets(bullets, bullets * FRAME, Float.MAX_VALUE);
+        hitBullets = new LiveBullets(bullets, Float.MAX_VALUE, Float.MAX_VALUE);
+        nodes = new Spatial[bullets + 1];
+        now = 0f;
+        for (int i = 0; i <= bullets; i++) {
+            Node bullet = new Node("bullet");
+            bullet.setUserData(BulletPool.SLOT_KEY, i);
+            bullet.setLocalTranslation(0, 5, i);
+            nodes[i] = bullet;
+            if (i < bullets) {
+                activeBullets.add(bullet);
+                liveBullets.add(bullet, SPEED, now, release);
+                hitBullets.add(bullet, SPEED, now, release);
+                now += FRAME;
+            } else {
+                free.push(bullet);
+            }
+        }
+
+        ringExpire();
+        for (int i = 0; i < 3 * bullets; i++) {
+            if (!ringHit()) {
+                throw new IllegalStateException("ringHit deberia impactar siempre una bala viva");
+            }
+        }
+        if (liveBullets.size() != bullets || free.size() != 1 || hitBullets.size() != bullets) {
+            throw new IllegalStateException("El frame estable deberia mantener " + bullets
+                    + " balas vivas y una libre, hay " + liveBullets.size() + " y " + free.size());
+        }
+    }
+
+    @Benchmark
+    public int legacyScan() {
+        ArrayList<Spatial> toRemove = new ArrayList<>();
+        for (Spatial bullet : activeBullets) {
+            if (bullet.getLocalTranslation().y < -10) {
+                toRemove.add(bullet);
+            }
+        }
+        for (Spatial bullet : toRemove) {
+            activeBullets.remove(bullet);
+        }
+        return toRemove.size();
+    }
+
+    @Benchmark
+    public int ringExpire() {
+        now += FRAME;
+        int expired = liveBullets.expire(now, release);
+        liveBullets.add(free.pop(), SPEED, now, release);
+        return expired;
+    }
+
+    @Benchmark
+    public boolean legacyHit() {
+        // Impacta una bala de la mitad de la lista y se vuelve a disparar
+        Spatial bullet = activeBullets.get(activeBullets.size() / 2);
+        boolean removed = activeBullets.remove(bullet);
+        activeBullets.add(bullet);
+        return removed;
+    }
+
+    @Benchmark
+    public boolean ringHit() {
+        // Impacta la bala mas antigua que queda y se vuelve a disparar al final
+        Spatial bullet = nodes[hitIndex];
+        hitIndex = (hitIndex + 1) % bullets;
+        boolean removed = hitBullets.remove(bullet);
+        hitBullets.add(bullet, SPEED, 0f, release);
+        return removed;
+    }
+}
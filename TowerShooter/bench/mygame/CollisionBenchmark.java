@@ -0,0 +1,117 @@
+package mygame;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de detectar impactos bala-vaquero: el bucle de sondeo O(balas x
+ * enemigos) con getWorldBound().intersects frente a un paso fisico con grupos
+ * de colision y los impactos entregados por HitEventQueue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CollisionBenchmark {
+
+    @Param({"100", "300", "1000"})
+    public int bullets;
+
+    @Param({"60", "300", "1000"})
+    public int enemies;
+
+    private BoundingBox[] bulletBounds;
+    private BoundingBox[] enemyBounds;
+    private PhysicsSpace space;
+    private HitEventQueue hits;
+
+    @Setup
+    public void setUp() {
+        Random rand = new Random(42);
+        space = new PhysicsSpace(new Vector3f(-150, -50, -150), new Vector3f(150, 50, 150),
+                PhysicsSpace.BroadphaseType.DBVT);
+        space.setGravity(Vector3f.ZERO);
+        hits = new HitEventQueue();
+        space.addCollisionListener(hits);
+
+        bulletBounds = new BoundingBox[bullets];
+        for (int i = 0; i < bullets; i++) {
+            Vector3f position = randomPosition(rand);
+            bulletBounds[i] = new BoundingBox(position, 0.25f, 0.25f, 0.25f);
+
+            PhysicsRigidBody body = new PhysicsRigidBody(new SphereCollisionShape(0.25f), 1);
+            body.setPhysicsLocation(position);
+            body.setUserObject(new Node("bullet"));
+            CollisionGroups.setupBullet(body);
+            space.addCollisionObject(body);
+        }
+
+        enemyBounds = new BoundingBox[enemies];
+        for (int i = 0; i < enemies; i++) {
+            Vector3f position = randomPosition(rand);
+            enemyBounds[i] = new BoundingBox(position, 1, 1, 1);
+
+            PhysicsRigidBody body = new PhysicsRigidBody(new BoxCollisionShape(new Vector3f(1, 1, 1)), 2);
+            body.setPhysicsLocation(position);
+            body.setUserObject(new Node("Cowboy_" + i));
+            CollisionGroups.setupEnemy(body);
+            space.addCollisionObject(body);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        space.destroy();
+    }
+
+    private static Vector3f randomPosition(Random rand) {
+        return new Vector3f(rand.nextFloat() * 120 - 60, rand.nextFloat() * 4, rand.nextFloat() * 120 - 60);
+    }
+
+    /** Lo que hacia checkCollisions() cada frame, ademas del paso fisico. */
+    @Benchmark
+    public int pollingLoop() {
+        int count = 0;
+        for (BoundingBox bullet : bulletBounds) {
+            for (BoundingBox enemy : enemyBounds) {
+                if (bullet.intersects(enemy)) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Paso fisico completo con los impactos ya filtrados por el broadphase. */
+    @Benchmark
+    public int physicsStepWithHitEvents() {
+        space.update(1 / 60f);
+        space.distributeEvents();
+        int count = hits.size();
+        hits.clear();
+        return count;
+    }
+}
@@ -0,0 +1,124 @@
+package mygame;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recorrido por frame del estado de los enemigos con el {@link EnemySteering}
+ * del juego: las tablas HashMap&lt;Node, ...&gt; originales, de las que cada
+ * enemigo se copia a un registro de una plaza para llamar a steer() y se
+ * devuelve el resultado, frente a los arreglos de EnemyRegistry, sobre los
+ * que steer() trabaja directamente. Los dos recorren los mismos enemigos con
+ * las mismas semillas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class EnemyStoreBenchmark {
+
+    private static final float TPF = 1 / 60f;
+    private static final float SPEED = 3f;
+
+    @Param({"10", "100", "1000"})
+    public int enemies;
+
+    private ArrayList<Node> enemyCowboys;
+    private HashMap<Node, Integer> enemyHealth;
+    private HashMap<Node, Integer> enemyMovementPatterns;
+    private HashMap<Node, Float> enemyMovementTimers;
+    private HashMap<Node, SplittableRandom> enemyRandoms;
+    private HashMap<Node, Vector3f> enemyVelocities;
+    private EnemyRegistry scratch;
+
+    private EnemyRegistry registry;
+
+    @Setup
+    public void setUp() {
+        enemyCowboys = new ArrayList<>();
+        enemyHealth = new HashMap<>();
+        enemyMovementPatterns = new HashMap<>();
+        enemyMovementTimers = new HashMap<>();
+        enemyRandoms = new HashMap<>();
+        enemyVelocities = new HashMap<>();
+        scratch = new EnemyRegistry();
+        scratch.add(new Node("Scratch"), null, 0, 0, 0f, 0L);
+        registry = new EnemyRegistry();
+
+        Random rand = new Random(42);
+        for (int i = 0; i < enemies; i++) {
+            // Anillo de aparicion alrededor de la torre, en el origen
+            float angle = rand.nextFloat() * FastMath.TWO_PI;
+            float distance = 90f + rand.nextFloat() * 30f;
+            Vector3f position = new Vector3f(FastMath.cos(angle) * distance, 1, FastMath.sin(angle) * distance);
+            int pattern = i % MovementPattern.VALUES.length;
+            float timer = i * 0.01f;
+
+            Node mapNode = new Node("Cowboy_" + i);
+            mapNode.setLocalTranslation(position);
+            enemyCowboys.add(mapNode);
+            enemyHealth.put(mapNode, 3);
+            enemyMovementPatterns.put(mapNode, pattern);
+            enemyMovementTimers.put(mapNode, timer);
+            enemyRandoms.put(mapNode, new SplittableRandom(i));
+            enemyVelocities.put(mapNode, new Vector3f());
+
+            int id = registry.add(new Node("Cowboy_" + i), null, 3, pattern, timer, i);
+            registry.posX[id] = position.x;
+            registry.posY[id] = position.y;
+            registry.posZ[id] = position.z;
+        }
+    }
+
+    @Benchmark
+    public float hashMapTables() {
+        float sum = 0;
+        EnemyRegistry s = scratch;
+        for (Node cowboy : enemyCowboys) {
+            Vector3f position = cowboy.getLocalTranslation();
+            s.posX[0] = position.x;
+            s.posY[0] = position.y;
+            s.posZ[0] = position.z;
+            s.pattern[0] = enemyMovementPatterns.get(cowboy);
+            s.timer[0] = enemyMovementTimers.get(cowboy);
+            s.rng[0] = enemyRandoms.get(cowboy);
+
+            float distance = EnemySteering.steer(s, 0, 0, 0, 0, SPEED, TPF);
+
+            enemyMovementTimers.put(cowboy, s.timer[0]);
+            enemyVelocities.get(cowboy).set(s.velX[0], s.velY[0], s.velZ[0]);
+            sum += enemyHealth.get(cowboy) * distance;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float registryArrays() {
+        float sum = 0;
+        EnemyRegistry r = registry;
+        for (int i = 0; i < r.size(); i++) {
+            sum += r.health[i] * EnemySteering.steer(r, i, 0, 0, 0, SPEED, TPF);
+        }
+        return sum;
+    }
+}
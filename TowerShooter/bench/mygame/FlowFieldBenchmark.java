@@ -0,0 +1,131 @@
+package mygame;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import com.jme3.terrain.heightmap.HeightMap;
+import com.jme3.terrain.heightmap.ImageBasedHeightMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Campo de flujo sobre grand_mountain. build mide la construccion completa
+ * (alturas, Dijkstra y direcciones) para cada tamano de celda; steerStraight
+ * y steerFlow miden la IA de toda la oleada sin y con el campo, para ver que
+ * el coste por enemigo no cambia con el tamano de la oleada. En el setup se
+ * comprueba que sin peso de pendiente el campo apunta a la torre.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FlowFieldBenchmark {
+
+    private static final float HALF_EXTENT = 130f;
+    private static final float SLOPE_WEIGHT = 8f;
+
+    static HeightSampler loadGround() {
+        AssetManager assetManager = new DesktopAssetManager(true);
+        HeightMap heightmap = new ImageBasedHeightMap(
+                assetManager.loadTexture("Textures/Terrain/splat/grand_mountain.png").getImage());
+        heightmap.load();
+        return new HeightSampler(heightmap.getHeightMap(), heightmap.getSize(), new Vector3f(2, 1, 2), Vector3f.ZERO);
+    }
+
+    @State(Scope.Benchmark)
+    public static class BuildState {
+
+        @Param({"1", "2", "4"})
+        public float cellSize;
+
+        HeightSampler ground;
+        FlowField field;
+
+        @Setup
+        public void setUp() {
+            ground = loadGround();
+            field = new FlowField(0, 0, HALF_EXTENT, cellSize, SLOPE_WEIGHT);
+
+            FlowField flat = new FlowField(0, 0, HALF_EXTENT, cellSize, 0f);
+            flat.build(ground);
+            Random rand = new Random(42);
+            for (int i = 0; i < 1000; i++) {
+                float angle = rand.nextFloat() * 6.2831855f;
+                float x = 100f * (float) Math.cos(angle);
+                float z = 100f * (float) Math.sin(angle);
+                int cell = flat.cellAt(x, z);
+                // Con 8 vecinos las distancias no son euclideas: se admiten unos 25 grados de desvio
+                float dot = -(flat.dirX[cell] * x + flat.dirZ[cell] * z) / 100f;
+                if (dot < 0.9f) {
+                    throw new IllegalStateException("Sin pendiente el campo deberia apuntar a la torre en ("
+                            + x + ", " + z + "): coseno " + dot);
+                }
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class WaveState {
+
+        @Param({"100", "1000", "10000"})
+        public int enemies;
+
+        EnemyRegistry registry;
+        EnemyAi straight;
+        EnemyAi flow;
+
+        @Setup
+        public void setUp() {
+            HeightSampler ground = loadGround();
+            FlowField field = new FlowField(0, 0, HALF_EXTENT, 2f, SLOPE_WEIGHT);
+            field.build(ground);
+
+            Random rand = new Random(42);
+            registry = new EnemyRegistry();
+            Vector3f position = new Vector3f();
+            for (int i = 0; i < enemies; i++) {
+                ground.randomPointInRing(rand, 10f, 120f, 1, position);
+                Node node = new Node("Cowboy_" + i);
+                node.setLocalTranslation(position);
+                MovementPattern pattern = MovementPattern.VALUES[i % MovementPattern.VALUES.length];
+                registry.add(node, null, 3, pattern.ordinal(), rand.nextFloat() * 5f, rand.nextLong());
+            }
+
+            straight = new EnemyAi(false, 0, 256);
+            flow = new EnemyAi(false, 0, 256);
+            flow.setFlowField(field);
+        }
+    }
+
+    @Benchmark
+    public FlowField build(BuildState state) {
+        state.field.build(state.ground);
+        return state.field;
+    }
+
+    @Benchmark
+    public float steerStraight(WaveState state) {
+        state.straight.steerAll(state.registry, 0, 0, 0, 3f, 1 / 60f);
+        return state.registry.velX[0];
+    }
+
+    @Benchmark
+    public float steerFlow(WaveState state) {
+        state.flow.steerAll(state.registry, 0, 0, 0, 3f, 1 / 60f);
+        return state.registry.velX[0];
+    }
+}
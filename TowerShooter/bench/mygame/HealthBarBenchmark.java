@@ -0,0 +1,160 @@
+package mygame;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.material.Material;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.SceneGraphVisitorAdapter;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.shape.Box;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Barras de vida por frame para toda la oleada. Los legacy* replican las
+ * antiguas HealthBar (nodo con dos Box por enemigo, lookAt hacia la camara en
+ * CPU y escala del relleno); los batch* usan HealthBarBatch, una sola malla
+ * que se orienta en el vertex shader. En el setup se comprueba cuantas
+ * geometrias genera cada version.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class HealthBarBenchmark {
+
+    @Param({"60", "500", "2000"})
+    public int enemies;
+
+    private Node[] legacyBars;
+    private Geometry[] legacyFills;
+    private HealthBarBatch batch;
+    private float[] x, y, z;
+    private final Vector3f camLocation = new Vector3f(0, 7, 5);
+    private int frame = 0;
+
+    @Setup
+    public void setUp() {
+        AssetManager assetManager = new DesktopAssetManager(true);
+        Material bgMat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+        Material fillMat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+
+        Node legacyRoot = new Node("Legacy");
+        Node batchRoot = new Node("Batch");
+        legacyBars = new Node[enemies];
+        legacyFills = new Geometry[enemies];
+        batch = new HealthBarBatch(assetManager);
+        batchRoot.attachChild(batch.getGeometry());
+        x = new float[enemies];
+        y = new float[enemies];
+        z = new float[enemies];
+
+        for (int i = 0; i < enemies; i++) {
+            x[i] = i % 40 * 3f - 60f;
+            y[i] = 1;
+            z[i] = i / 40 * 3f + 90f;
+
+            Node cowboy = new Node("Cowboy_" + i);
+            cowboy.setLocalTranslation(x[i], y[i], z[i]);
+            Geometry background = new Geometry("HealthBarBG", new Box(1f, 0.1f, 0.01f));
+            background.setMaterial(bgMat);
+            legacyFills[i] = new Geometry("HealthFill", new Box(1f, 0.1f, 0.02f));
+            legacyFills[i].setMaterial(fillMat);
+            legacyBars[i] = new Node("HealthBar");
+            legacyBars[i].attachChild(background);
+            legacyBars[i].attachChild(legacyFills[i]);
+            legacyBars[i].setLocalTranslation(0, 2f, 0);
+            cowboy.attachChild(legacyBars[i]);
+            legacyRoot.attachChild(cowboy);
+
+            batch.add(x[i], y[i], z[i]);
+        }
+        batch.flush();
+        legacyRoot.updateGeometricState();
+
+        int legacyGeometries = countGeometries(legacyRoot);
+        int batchGeometries = countGeometries(batchRoot);
+        if (legacyGeometries != enemies * 2 || batchGeometries != 1) {
+            throw new IllegalStateException("Geometrias: legacy " + legacyGeometries + ", batch " + batchGeometries);
+        }
+    }
+
+    private static int countGeometries(Spatial root) {
+        int[] count = {0};
+        root.depthFirstTraversal(new SceneGraphVisitorAdapter() {
+            @Override
+            public void visit(Geometry geom) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    /** Lo que hacia Main.updateHealthBars(): un lookAt por barra. */
+    @Benchmark
+    public Node[] legacyBillboard() {
+        for (Node bar : legacyBars) {
+            bar.lookAt(camLocation, Vector3f.UNIT_Y);
+        }
+        return legacyBars;
+    }
+
+    @Benchmark
+    public Node[] legacyUpdateHealth() {
+        frame++;
+        float percent = (3 - frame % 3) / 3f;
+        for (Geometry fill : legacyFills) {
+            fill.setLocalScale(percent, 1, 1);
+            fill.setLocalTranslation(-1f + percent, 0, 0.01f);
+        }
+        return legacyBars;
+    }
+
+    /** Toda la oleada se mueve: se reescriben las posiciones y se marca el buffer. */
+    @Benchmark
+    public HealthBarBatch batchMoveAll() {
+        frame++;
+        float offset = (frame & 1) * 0.1f;
+        for (int i = 0; i < enemies; i++) {
+            batch.setPosition(i, x[i] + offset, y[i], z[i]);
+        }
+        batch.flush();
+        return batch;
+    }
+
+    /** Nada se ha movido: solo las comparaciones, sin tocar buffers. */
+    @Benchmark
+    public HealthBarBatch batchUnchanged() {
+        for (int i = 0; i < enemies; i++) {
+            batch.setPosition(i, x[i], y[i], z[i]);
+        }
+        batch.flush();
+        return batch;
+    }
+
+    @Benchmark
+    public HealthBarBatch batchUpdateHealth() {
+        frame++;
+        float percent = (3 - frame % 3) / 3f;
+        for (int i = 0; i < enemies; i++) {
+            batch.setHealth(i, percent);
+        }
+        batch.flush();
+        return batch;
+    }
+}
@@ -0,0 +1,129 @@
+package mygame;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.font.BitmapFont;
+import com.jme3.font.BitmapText;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste por frame del HUD que usa el juego: Main.updateHUD() pasa los valores
+ * a {@link HudState} y simpleUpdate llama a flush(), en un frame sin cambios y
+ * en uno en que cambia la puntuacion. legacyUpdateHud es la unica referencia
+ * historica: una copia congelada del Main.updateHUD() anterior a HudState, que
+ * ya no existe en el juego, solo para comparar con el.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class HudBenchmark {
+
+    @Param({"0", "1250", "1234560"})
+    public int score;
+
+    @Param({"3", "60", "1000"})
+    public int enemies;
+
+    private Geometry scoreBackground, livesBackground;
+    private BitmapText scoreValueText, livesValueText, enemiesValueText;
+    private int lives = 3;
+
+    private HudState hud;
+    private int scoreStep;
+
+    @Setup
+    public void setUp() {
+        AssetManager assetManager = new DesktopAssetManager(true);
+        BitmapFont font = assetManager.loadFont("Interface/Fonts/Default.fnt");
+        Material bgMat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+
+        scoreBackground = new Geometry("ScoreBackground", new Box(90, 20, 0));
+        scoreBackground.setMaterial(bgMat);
+        livesBackground = new Geometry("LivesBackground", new Box(90, 20, 0));
+        livesBackground.setMaterial(bgMat);
+
+        scoreValueText = new BitmapText(font, false);
+        livesValueText = new BitmapText(font, false);
+        enemiesValueText = new BitmapText(font, false);
+
+        hud = new HudState();
+        hud.build(assetManager, new Node("Gui"), 1280, 720);
+        hud.setScore(score);
+        hud.setLives(lives);
+        hud.setEnemies(enemies);
+        hud.flush();
+    }
+
+    /** Referencia historica, no es codigo del juego: el updateHUD() de antes de HudState. */
+    @Benchmark
+    public BitmapText legacyUpdateHud() {
+        scoreValueText.setText(String.format("%,d", score));
+        livesValueText.setText(String.valueOf(lives));
+        enemiesValueText.setText(String.valueOf(enemies));
+
+        if (score > 0 && score % 100 == 0) {
+            scoreBackground.getMaterial().setColor("Color", new ColorRGBA(0.3f, 0.3f, 0, 0.9f));
+            scoreValueText.setColor(ColorRGBA.Orange);
+            scoreValueText.setSize(32);
+        } else {
+            scoreBackground.getMaterial().setColor("Color", new ColorRGBA(0.1f, 0.1f, 0.1f, 0.7f));
+            scoreValueText.setColor(ColorRGBA.Yellow);
+            scoreValueText.setSize(28);
+        }
+
+        if (lives <= 1) {
+            livesBackground.getMaterial().setColor("Color", new ColorRGBA(0.3f, 0, 0, 0.9f));
+            livesValueText.setColor(ColorRGBA.Red);
+            livesValueText.setSize(32);
+        } else {
+            livesBackground.getMaterial().setColor("Color", new ColorRGBA(0.1f, 0.1f, 0.1f, 0.7f));
+            livesValueText.setColor(new ColorRGBA(1, 0.6f, 0.6f, 1));
+            livesValueText.setSize(28);
+        }
+        return scoreValueText;
+    }
+
+    @Benchmark
+    public long hudStateUnchanged() {
+        hud.setScore(score);
+        hud.setLives(lives);
+        hud.setEnemies(enemies);
+        hud.flush();
+        return hud.getTextRebuilds();
+    }
+
+    @Benchmark
+    public long hudStateScoreChange() {
+        scoreStep = (scoreStep + 10) % 1000;
+        hud.setScore(score + scoreStep);
+        hud.setLives(lives);
+        hud.setEnemies(enemies);
+        hud.flush();
+        return hud.getTextRebuilds();
+    }
+
+    @Benchmark
+    public String formatScore() {
+        return String.format("%,d", score);
+    }
+}
@@ -0,0 +1,135 @@
+package mygame;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.control.RigidBodyControl;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paso fisico con los vaqueros dinamicos frente a cinematicos
+ * ({@link LocomotionMode}), sin niveles de detalle para que todos sigan el
+ * mismo modo. physicsStep mide solo space.update; la IA y el movimiento del
+ * frame se hacen antes de cada invocacion. frame mide el frame completo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LocomotionBenchmark {
+
+    private static final float TPF = 1 / 60f;
+
+    @Param({"500", "1000", "2000"})
+    public int enemies;
+
+    @Param({"DYNAMIC", "KINEMATIC"})
+    public LocomotionMode locomotion;
+
+    private PhysicsSpace space;
+    private EnemyRegistry registry;
+    private EnemyAi ai;
+    private EnemyLod enemyLod;
+    private HeightSampler ground;
+    private Node root;
+    private final Vector3f location = new Vector3f();
+
+    @Setup
+    public void setUp() {
+        Random rand = new Random(42);
+        space = new PhysicsSpace(new Vector3f(-300, -50, -300), new Vector3f(300, 50, 300),
+                PhysicsSpace.BroadphaseType.DBVT);
+        space.setGravity(new Vector3f(0, -9.8f, 0));
+
+        PhysicsRigidBody floor = new PhysicsRigidBody(new BoxCollisionShape(new Vector3f(300, 1, 300)), 0);
+        floor.setPhysicsLocation(new Vector3f(0, -1, 0));
+        space.addCollisionObject(floor);
+        ground = new HeightSampler(new float[513 * 513], 513, new Vector3f(2, 1, 2), Vector3f.ZERO);
+
+        root = new Node("Root");
+        registry = new EnemyRegistry();
+        for (int i = 0; i < enemies; i++) {
+            float angle = rand.nextFloat() * 6.2831855f;
+            float distance = 10f + rand.nextFloat() * 110f;
+            Vector3f position = new Vector3f(distance * (float) Math.cos(angle), 1, distance * (float) Math.sin(angle));
+
+            Node node = new Node("Cowboy_" + i);
+            node.setLocalTranslation(position);
+            RigidBodyControl body = new RigidBodyControl(new BoxCollisionShape(new Vector3f(1, 1, 1)), 2);
+            node.addControl(body);
+            body.setPhysicsLocation(position);
+            body.setKinematic(locomotion == LocomotionMode.KINEMATIC);
+            CollisionGroups.setupEnemy(body);
+            space.add(body);
+            root.attachChild(node);
+
+            MovementPattern pattern = MovementPattern.VALUES[i % MovementPattern.VALUES.length];
+            registry.add(node, body, 3, pattern.ordinal(), rand.nextFloat() * 5f, rand.nextLong());
+        }
+
+        ai = new EnemyAi(false, 0, 256);
+        enemyLod = EnemyLod.disabled(locomotion);
+    }
+
+    @TearDown
+    public void tearDown() {
+        space.destroy();
+    }
+
+    void moveEnemies() {
+        enemyLod.schedule(registry, TPF);
+        for (int i = 0; i < registry.size(); i++) {
+            if (!registry.bodies[i].isKinematic()) {
+                registry.bodies[i].getPhysicsLocation(location);
+                registry.posX[i] = location.x;
+                registry.posY[i] = location.y;
+                registry.posZ[i] = location.z;
+            }
+        }
+        ai.steerAll(registry, 0, 0, 0, 3f, TPF);
+        enemyLod.apply(registry, ground, TPF);
+        root.updateLogicalState(TPF);
+    }
+
+    /** Prepara la IA y el movimiento antes de cada paso para que physicsStep mida solo la fisica. */
+    @State(Scope.Thread)
+    public static class StepInput {
+
+        @Setup(Level.Invocation)
+        public void prepare(LocomotionBenchmark benchmark) {
+            benchmark.moveEnemies();
+        }
+    }
+
+    @Benchmark
+    public PhysicsSpace physicsStep(StepInput input) {
+        space.update(TPF);
+        return space;
+    }
+
+    @Benchmark
+    public PhysicsSpace frame() {
+        moveEnemies();
+        space.update(TPF);
+        return space;
+    }
+}
@@ -0,0 +1,67 @@
+package mygame;
+
+import com.jme3.scene.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fase de calculo de la IA con un hilo frente a lotes fork-join. Que ambas
+ * versiones den las mismas velocidades lo comprueba {@code EnemyAiTest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParallelAiBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"1000", "5000", "10000"})
+    public int enemies;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private EnemyRegistry registry;
+    private EnemyAi ai;
+
+    @Setup
+    public void setUp() {
+        registry = createWave(enemies, SEED);
+        ai = new EnemyAi(parallel, 0, 256);
+    }
+
+    private static EnemyRegistry createWave(int count, long seed) {
+        Random rand = new Random(seed);
+        EnemyRegistry registry = new EnemyRegistry();
+        for (int i = 0; i < count; i++) {
+            Node node = new Node("Cowboy_" + i);
+            float angle = rand.nextFloat() * 6.2831855f;
+            float distance = 90f + rand.nextFloat() * 30f;
+            node.setLocalTranslation(distance * (float) Math.cos(angle), 1, distance * (float) Math.sin(angle));
+            MovementPattern pattern = MovementPattern.VALUES[i % MovementPattern.VALUES.length];
+            registry.add(node, null, 3, pattern.ordinal(), rand.nextFloat() * 5f, rand.nextLong());
+        }
+        return registry;
+    }
+
+    @Benchmark
+    public float steerAll() {
+        ai.steerAll(registry, 0, 0, 0, 3f, 1 / 60f);
+        return registry.velX[0];
+    }
+}
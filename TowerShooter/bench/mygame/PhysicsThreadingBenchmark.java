@@ -0,0 +1,144 @@
+package mygame;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Modelo del frame con la fisica SEQUENTIAL frente a PARALLEL: no usa
+ * BulletAppState ni el render del juego. Imita su orden con un ejecutor
+ * propio (logica del juego, despues render; en PARALLEL el paso fisico se
+ * lanza al empezar el render y se espera al final) y el render es trabajo
+ * de CPU fijo ({@code renderTokens}), asi que solo dice cuanto se puede
+ * solapar como mucho. La medida del juego real es la linea "Frame completo"
+ * del {@link HeadlessRunner} con y sin --parallel-physics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PhysicsThreadingBenchmark {
+
+    private static final float TPF = 1 / 60f;
+
+    @Param({"60", "300"})
+    public int enemies;
+
+    @Param({"50"})
+    public int bullets;
+
+    @Param({"SEQUENTIAL", "PARALLEL"})
+    public String threading;
+
+    /** Trabajo de CPU que simula el render del frame (unidades de Blackhole.consumeCPU). */
+    @Param({"200000"})
+    public long renderTokens;
+
+    private PhysicsSpace space;
+    private EnemyRegistry registry;
+    private PhysicsRigidBody[] enemyBodies;
+    private EnemyAi ai;
+    private ExecutorService executor;
+    private final Vector3f velocity = new Vector3f();
+    private final Vector3f location = new Vector3f();
+
+    @Setup
+    public void setUp() {
+        Random rand = new Random(42);
+        executor = Executors.newSingleThreadExecutor();
+        space = new PhysicsSpace(new Vector3f(-150, -50, -150), new Vector3f(150, 50, 150),
+                PhysicsSpace.BroadphaseType.DBVT);
+        space.setGravity(new Vector3f(0, -9.8f, 0));
+
+        PhysicsRigidBody ground = new PhysicsRigidBody(new BoxCollisionShape(new Vector3f(150, 1, 150)), 0);
+        ground.setPhysicsLocation(new Vector3f(0, -1, 0));
+        space.addCollisionObject(ground);
+
+        registry = new EnemyRegistry();
+        enemyBodies = new PhysicsRigidBody[enemies];
+        for (int i = 0; i < enemies; i++) {
+            float angle = rand.nextFloat() * 6.2831855f;
+            float distance = 90f + rand.nextFloat() * 30f;
+            Vector3f position = new Vector3f(distance * (float) Math.cos(angle), 1, distance * (float) Math.sin(angle));
+
+            PhysicsRigidBody body = new PhysicsRigidBody(new BoxCollisionShape(new Vector3f(1, 1, 1)), 2);
+            body.setPhysicsLocation(position);
+            CollisionGroups.setupEnemy(body);
+            space.addCollisionObject(body);
+            enemyBodies[i] = body;
+
+            Node node = new Node("Cowboy_" + i);
+            node.setLocalTranslation(position);
+            MovementPattern pattern = MovementPattern.VALUES[i % MovementPattern.VALUES.length];
+            registry.add(node, null, 3, pattern.ordinal(), rand.nextFloat() * 5f, rand.nextLong());
+        }
+
+        for (int i = 0; i < bullets; i++) {
+            PhysicsRigidBody body = new PhysicsRigidBody(new SphereCollisionShape(0.25f), 1);
+            body.setPhysicsLocation(new Vector3f(rand.nextFloat() * 20 - 10, 7, rand.nextFloat() * 20 - 10));
+            body.setLinearVelocity(new Vector3f(rand.nextFloat() - 0.5f, 0, rand.nextFloat() - 0.5f).normalizeLocal().multLocal(50));
+            CollisionGroups.setupBullet(body);
+            space.addCollisionObject(body);
+        }
+
+        ai = new EnemyAi(false, 0, 256);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        space.destroy();
+    }
+
+    @Benchmark
+    public void frame() throws Exception {
+        for (int i = 0; i < registry.size(); i++) {
+            enemyBodies[i].getPhysicsLocation(location);
+            registry.posX[i] = location.x;
+            registry.posY[i] = location.y;
+            registry.posZ[i] = location.z;
+        }
+        ai.steerAll(registry, 0, 0, 0, 3f, TPF);
+        for (int i = 0; i < registry.size(); i++) {
+            enemyBodies[i].setLinearVelocity(velocity.set(registry.velX[i], registry.velY[i], registry.velZ[i]));
+        }
+
+        if ("PARALLEL".equals(threading)) {
+            Future<?> step = executor.submit(this::stepPhysics);
+            Blackhole.consumeCPU(renderTokens);
+            step.get();
+        } else {
+            stepPhysics();
+            Blackhole.consumeCPU(renderTokens);
+        }
+    }
+
+    private void stepPhysics() {
+        space.update(TPF);
+        space.distributeEvents();
+    }
+}
@@ -0,0 +1,106 @@
+package mygame;
+
+import com.jme3.math.FastMath;
+import com.jme3.scene.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Separacion entre vecinos de toda la oleada. naivePairs compara cada
+ * enemigo con todos los demas (O(n^2)); grid reconstruye la
+ * {@link SpatialHashGrid} y llama a {@link EnemySteering#separate} para cada
+ * uno, como en el juego. Los enemigos estan repartidos por el anillo de 10 a
+ * 120 unidades, asi que la densidad crece con la oleada. En el setup se
+ * comprueba que ambos calculan el mismo empuje.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SeparationBenchmark {
+
+    private static final float RADIUS = 3f;
+    private static final float STRENGTH = 1.5f;
+    private static final float SPEED = 3f;
+
+    @Param({"250", "1000", "4000", "16000"})
+    public int enemies;
+
+    private EnemyRegistry registry;
+    private SpatialHashGrid grid;
+
+    @Setup
+    public void setUp() {
+        Random rand = new Random(42);
+        registry = new EnemyRegistry();
+        for (int i = 0; i < enemies; i++) {
+            Node node = new Node("Cowboy_" + i);
+            float angle = rand.nextFloat() * 6.2831855f;
+            float distance = 10f + rand.nextFloat() * 110f;
+            node.setLocalTranslation(distance * (float) Math.cos(angle), 1, distance * (float) Math.sin(angle));
+            registry.add(node, null, 3, 0, 0f, rand.nextLong());
+        }
+        grid = new SpatialHashGrid(0, 0, 130f, RADIUS);
+
+        naivePairs();
+        float[] naiveX = Arrays.copyOf(registry.velX, enemies);
+        float[] naiveZ = Arrays.copyOf(registry.velZ, enemies);
+        grid();
+        for (int i = 0; i < enemies; i++) {
+            if (Math.abs(naiveX[i] - registry.velX[i]) > 1e-3f || Math.abs(naiveZ[i] - registry.velZ[i]) > 1e-3f) {
+                throw new IllegalStateException("Empuje distinto para el enemigo " + i + ": ("
+                        + naiveX[i] + ", " + naiveZ[i] + ") frente a (" + registry.velX[i] + ", " + registry.velZ[i] + ")");
+            }
+        }
+    }
+
+    @Benchmark
+    public float naivePairs() {
+        float radius2 = RADIUS * RADIUS;
+        int count = registry.size();
+        for (int i = 0; i < count; i++) {
+            float pushX = 0f, pushZ = 0f;
+            for (int j = 0; j < count; j++) {
+                float dx = registry.posX[i] - registry.posX[j];
+                float dz = registry.posZ[i] - registry.posZ[j];
+                float distance2 = dx * dx + dz * dz;
+                if (j == i || distance2 >= radius2 || distance2 == 0f) continue;
+
+                float distance = FastMath.sqrt(distance2);
+                float weight = (RADIUS - distance) / (RADIUS * distance);
+                pushX += dx * weight;
+                pushZ += dz * weight;
+            }
+            registry.velX[i] = pushX * STRENGTH * SPEED;
+            registry.velZ[i] = pushZ * STRENGTH * SPEED;
+        }
+        return registry.velX[0];
+    }
+
+    @Benchmark
+    public float grid() {
+        int count = registry.size();
+        grid.rebuild(registry.posX, registry.posZ, count);
+        for (int i = 0; i < count; i++) {
+            registry.velX[i] = 0f;
+            registry.velZ[i] = 0f;
+            EnemySteering.separate(registry, grid, i, RADIUS, STRENGTH, SPEED);
+        }
+        return registry.velX[0];
+    }
+}
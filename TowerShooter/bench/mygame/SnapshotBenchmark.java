@@ -0,0 +1,100 @@
+package mygame;
+
+import com.jme3.scene.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste del tick de red por cliente: captura del registro, seleccion por
+ * zona de interes y codificacion, completa (fullSnapshot) o como diferencia
+ * con el tick anterior (deltaSnapshot), con todos los enemigos movidos un
+ * paso entre los dos. En el setup se comprueba que la diferencia se
+ * decodifica igual que el snapshot completo y que ocupa menos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SnapshotBenchmark {
+
+    private static final float INTEREST_RADIUS = 100f;
+    private static final int MAX_ENEMIES = 256;
+
+    @Param({"100", "500", "2000"})
+    public int enemies;
+
+    private EnemyRegistry registry;
+    private final EnemySnapshot world = new EnemySnapshot();
+    private final EnemySnapshot baseline = new EnemySnapshot();
+    private final EnemySnapshot current = new EnemySnapshot();
+    private final SnapshotCodec codec = new SnapshotCodec();
+
+    @Setup
+    public void setUp() {
+        Random rand = new Random(42);
+        registry = new EnemyRegistry();
+        for (int i = 0; i < enemies; i++) {
+            Node node = new Node("Cowboy_" + i);
+            float angle = rand.nextFloat() * 6.2831855f;
+            float distance = 10f + rand.nextFloat() * 110f;
+            node.setLocalTranslation(distance * (float) Math.cos(angle), 1, distance * (float) Math.sin(angle));
+            registry.add(node, null, 3, i % MovementPattern.VALUES.length, 0f, rand.nextLong());
+        }
+        world.capture(registry, 1);
+        baseline.selectAround(world, 0, 0, INTEREST_RADIUS, MAX_ENEMIES);
+
+        // Un tick a 20 Hz y 3 unidades por segundo hacia la torre
+        for (int i = 0; i < enemies; i++) {
+            float distance = (float) Math.sqrt(registry.posX[i] * registry.posX[i] + registry.posZ[i] * registry.posZ[i]);
+            registry.posX[i] -= registry.posX[i] / distance * 0.15f;
+            registry.posZ[i] -= registry.posZ[i] / distance * 0.15f;
+        }
+
+        byte[] full = fullSnapshot();
+        byte[] delta = deltaSnapshot();
+        EnemySnapshot fromFull = new EnemySnapshot();
+        EnemySnapshot fromDelta = new EnemySnapshot();
+        SnapshotCodec.decode(full, null, fromFull);
+        SnapshotCodec.decode(delta, baseline, fromDelta);
+        if (fromFull.count != fromDelta.count) {
+            throw new IllegalStateException("La diferencia tiene " + fromDelta.count + " enemigos y el completo " + fromFull.count);
+        }
+        for (int k = 0; k < fromFull.count; k++) {
+            if (fromFull.ids[k] != fromDelta.ids[k] || fromFull.x[k] != fromDelta.x[k]
+                    || fromFull.z[k] != fromDelta.z[k] || fromFull.health[k] != fromDelta.health[k]) {
+                throw new IllegalStateException("El enemigo " + fromFull.ids[k] + " no coincide");
+            }
+        }
+        if (delta.length >= full.length) {
+            throw new IllegalStateException("La diferencia ocupa " + delta.length + " bytes y el completo " + full.length);
+        }
+    }
+
+    @Benchmark
+    public byte[] fullSnapshot() {
+        world.capture(registry, 2);
+        current.selectAround(world, 0, 0, INTEREST_RADIUS, MAX_ENEMIES);
+        return codec.encode(current, null);
+    }
+
+    @Benchmark
+    public byte[] deltaSnapshot() {
+        world.capture(registry, 2);
+        current.selectAround(world, 0, 0, INTEREST_RADIUS, MAX_ENEMIES);
+        return codec.encode(current, baseline);
+    }
+}
@@ -0,0 +1,115 @@
+package mygame;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de crear una oleada con el {@link CowboySpawner} del juego (modelo,
+ * RigidBodyControl, escena, registro y barra de vida por vaquero), con la
+ * plantilla cacheada o cargando Cowboy.j3o para cada uno, frente a sacar los
+ * vaqueros del {@link EnemyPool} como tras un cambio de nivel. Necesita la
+ * carpeta assets en el classpath (ya incluida en run.classpath).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SpawnBenchmark {
+
+    @Param({"3", "30", "60", "300"})
+    public int enemies;
+
+    @Param({"true", "false"})
+    public boolean templateCache;
+
+    private PhysicsSpace space;
+    private EnemyPool pool;
+    private EnemyRegistry registry;
+    private HealthBarBatch healthBars;
+    private CowboySpawner spawner;
+    private Random rand;
+    private boolean fromPool;
+
+    @Setup
+    public void setUp(BenchmarkParams params) {
+        fromPool = params.getBenchmark().endsWith(".respawnFromPool");
+        AssetManager assetManager = new DesktopAssetManager(true);
+        CowboyTemplateCache templates = templateCache ? new CowboyTemplateCache(assetManager, false) : null;
+        space = new PhysicsSpace(new Vector3f(-150, -50, -150), new Vector3f(150, 50, 150),
+                PhysicsSpace.BroadphaseType.DBVT);
+        pool = new EnemyPool();
+        registry = new EnemyRegistry();
+        healthBars = new HealthBarBatch(assetManager);
+        spawner = new CowboySpawner(assetManager, templates, LocomotionMode.DYNAMIC, pool, space, new Node("Root"),
+                registry, healthBars);
+        rand = new Random(42);
+    }
+
+    @Setup(Level.Invocation)
+    public void fillPool() {
+        // respawnFromPool empieza con el pool lleno; spawnWave, vacio
+        if (fromPool) {
+            for (int i = 0; i < enemies; i++) {
+                pool.release(spawner.build(i));
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void clearScene() {
+        // Lo mismo que Main.removeEnemy, sin devolverlos al pool
+        for (int i = registry.size() - 1; i >= 0; i--) {
+            space.remove(registry.bodies[i]);
+            registry.nodes[i].removeFromParent();
+            registry.remove(i);
+            healthBars.remove(i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        space.destroy();
+    }
+
+    @Benchmark
+    public int spawnWave() {
+        return spawn(CowboySpawner.Source.BUILT);
+    }
+
+    @Benchmark
+    public int respawnFromPool() {
+        return spawn(CowboySpawner.Source.POOL);
+    }
+
+    private int spawn(CowboySpawner.Source expected) {
+        for (int i = 0; i < enemies; i++) {
+            Vector3f position = new Vector3f(rand.nextFloat() * 240 - 120, 1, rand.nextFloat() * 240 - 120);
+            if (spawner.spawn(i, position, rand.nextFloat() * 5f, rand.nextLong(), null) != expected) {
+                throw new IllegalStateException("El vaquero " + i + " no ha salido de " + expected);
+            }
+        }
+        return registry.size();
+    }
+}
@@ -0,0 +1,94 @@
+package mygame;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import com.jme3.terrain.geomipmap.TerrainQuad;
+import com.jme3.terrain.heightmap.HeightMap;
+import com.jme3.terrain.heightmap.ImageBasedHeightMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Colocacion de una oleada en el anillo de 90 a 120 unidades. terrainRejection
+ * replica el muestreo antiguo (cuadrado con rechazo y terrain.getHeight con un
+ * Vector2f por intento); samplerRing usa HeightSampler en polares. En el setup
+ * se comprueba que ambos dan la misma altura en los vertices del mapa.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SpawnPlacementBenchmark {
+
+    private static final float MIN_DISTANCE = 90f;
+    private static final float MAX_DISTANCE = 120f;
+
+    @Param({"60", "600", "6000"})
+    public int enemies;
+
+    private TerrainQuad terrain;
+    private HeightSampler sampler;
+    private final Random rand = new Random(42);
+    private final Vector3f position = new Vector3f();
+
+    @Setup
+    public void setUp() {
+        AssetManager assetManager = new DesktopAssetManager(true);
+        HeightMap heightmap = new ImageBasedHeightMap(
+                assetManager.loadTexture("Textures/Terrain/splat/grand_mountain.png").getImage());
+        heightmap.load();
+        terrain = new TerrainQuad("myTerrain", 65, 513, heightmap.getHeightMap());
+        terrain.setLocalScale(2f, 1f, 2f);
+        terrain.updateGeometricState();
+        sampler = new HeightSampler(heightmap.getHeightMap(), heightmap.getSize(),
+                terrain.getLocalScale(), terrain.getLocalTranslation());
+
+        for (int i = 0; i < 1000; i++) {
+            float x = (rand.nextInt(400) - 200) * 2f;
+            float z = (rand.nextInt(400) - 200) * 2f;
+            float expected = terrain.getHeight(new Vector2f(x, z));
+            float actual = sampler.heightAt(x, z);
+            if (Math.abs(expected - actual) > 1e-3f) {
+                throw new IllegalStateException("Altura en (" + x + ", " + z + "): " + actual + " en vez de " + expected);
+            }
+        }
+    }
+
+    @Benchmark
+    public void terrainRejection(Blackhole bh) {
+        for (int i = 0; i < enemies; i++) {
+            Vector3f candidate;
+            do {
+                float x = rand.nextFloat() * (MAX_DISTANCE * 2) - MAX_DISTANCE;
+                float z = rand.nextFloat() * (MAX_DISTANCE * 2) - MAX_DISTANCE;
+                float terrainHeight = terrain.getHeight(new Vector2f(x, z));
+                candidate = new Vector3f(x, terrainHeight + 1, z);
+            } while (candidate.distance(Vector3f.ZERO) < MIN_DISTANCE);
+            bh.consume(candidate);
+        }
+    }
+
+    @Benchmark
+    public void samplerRing(Blackhole bh) {
+        for (int i = 0; i < enemies; i++) {
+            bh.consume(sampler.randomPointInRing(rand, MIN_DISTANCE, MAX_DISTANCE, 1, position));
+        }
+    }
+}
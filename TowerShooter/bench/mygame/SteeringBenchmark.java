@@ -0,0 +1,63 @@
+package mygame;
+
+import com.jme3.scene.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de {@link EnemySteering#steer} sobre toda la oleada para cada patron
+ * y tamano. Con {@code -prof gc}
+ * (ant bench -Dbench.args="SteeringBenchmark -prof gc") la columna
+ * gc.alloc.rate.norm debe quedarse en 0 B/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SteeringBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int enemies;
+
+    @Param({"SINUSOIDAL", "SPIRAL", "RANDOM", "ZIGZAG", "CIRCLE_APPROACH", "RETREAT_AND_ADVANCE"})
+    public MovementPattern pattern;
+
+    private EnemyRegistry registry;
+    private Random rand;
+
+    @Setup
+    public void setUp() {
+        rand = new Random(42);
+        registry = new EnemyRegistry();
+        for (int i = 0; i < enemies; i++) {
+            Node node = new Node("Cowboy_" + i);
+            float angle = rand.nextFloat() * 6.2831855f;
+            float distance = 10f + rand.nextFloat() * 110f;
+            node.setLocalTranslation(distance * (float) Math.cos(angle), 1, distance * (float) Math.sin(angle));
+            registry.add(node, null, 3, pattern.ordinal(), rand.nextFloat() * 5f, rand.nextLong());
+        }
+    }
+
+    @Benchmark
+    public float steerAll() {
+        float sum = 0;
+        for (int i = 0; i < registry.size(); i++) {
+            sum += EnemySteering.steer(registry, i, 0, 0, 0, 3f, 1 / 60f);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,139 @@
+package mygame;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.HeightfieldCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.util.CollisionShapeFactory;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import com.jme3.terrain.geomipmap.TerrainQuad;
+import com.jme3.terrain.heightmap.HeightMap;
+import com.jme3.terrain.heightmap.ImageBasedHeightMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Colision del terreno 513x513 de Main.createFloor(): malla de triangulos del
+ * TerrainQuad (MESH) frente a HeightfieldCollisionShape (HEIGHTFIELD).
+ * buildShape mide la construccion al arrancar y step un paso fisico con los
+ * vaqueros apoyados en el suelo. En el setup se comprueba que, tras caer, los
+ * vaqueros quedan sobre la superficie del terreno.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TerrainCollisionBenchmark {
+
+    private static final float TPF = 1 / 60f;
+
+    @Param({"MESH", "HEIGHTFIELD"})
+    public String shape;
+
+    @Param({"60", "300"})
+    public int enemies;
+
+    private TerrainQuad terrain;
+    private PhysicsSpace space;
+    private PhysicsRigidBody[] bodies;
+
+    @Setup
+    public void setUp() {
+        AssetManager assetManager = new DesktopAssetManager(true);
+        HeightMap heightmap = new ImageBasedHeightMap(
+                assetManager.loadTexture("Textures/Terrain/splat/grand_mountain.png").getImage());
+        heightmap.load();
+        terrain = new TerrainQuad("myTerrain", 65, 513, heightmap.getHeightMap());
+        terrain.setLocalScale(2f, 1f, 2f);
+        terrain.updateGeometricState();
+
+        space = new PhysicsSpace(new Vector3f(-550, -100, -550), new Vector3f(550, 300, 550),
+                PhysicsSpace.BroadphaseType.DBVT);
+        space.setGravity(new Vector3f(0, -9.8f, 0));
+
+        PhysicsRigidBody ground = new PhysicsRigidBody(createShape(), 0);
+        ground.setFriction(0.8f);
+        space.addCollisionObject(ground);
+
+        Random rand = new Random(42);
+        bodies = new PhysicsRigidBody[enemies];
+        for (int i = 0; i < enemies; i++) {
+            float angle = rand.nextFloat() * 6.2831855f;
+            float distance = 90f + rand.nextFloat() * 30f;
+            float x = distance * (float) Math.cos(angle);
+            float z = distance * (float) Math.sin(angle);
+
+            PhysicsRigidBody body = new PhysicsRigidBody(new BoxCollisionShape(new Vector3f(1, 1, 1)), 2);
+            body.setPhysicsLocation(new Vector3f(x, terrain.getHeight(new Vector2f(x, z)) + 3, z));
+            body.setFriction(0.6f);
+            CollisionGroups.setupEnemy(body);
+            space.addCollisionObject(body);
+            bodies[i] = body;
+        }
+
+        for (int i = 0; i < 180; i++) {
+            space.update(TPF);
+        }
+        checkResting();
+    }
+
+    /** Cada caja (semilado 1) debe acabar apoyada: su centro a ~1 sobre el terreno. */
+    private void checkResting() {
+        Vector3f location = new Vector3f();
+        for (PhysicsRigidBody body : bodies) {
+            body.getPhysicsLocation(location);
+            float ground = terrain.getHeight(new Vector2f(location.x, location.z));
+            if (Float.isNaN(ground) || location.y < ground || location.y > ground + 2.5f) {
+                throw new IllegalStateException(shape + ": vaquero en y=" + location.y + " con el suelo en " + ground);
+            }
+        }
+    }
+
+    private CollisionShape createShape() {
+        if ("HEIGHTFIELD".equals(shape)) {
+            return new HeightfieldCollisionShape(terrain.getHeightMap(), terrain.getLocalScale());
+        }
+        return CollisionShapeFactory.createMeshShape(terrain);
+    }
+
+    @TearDown
+    public void tearDown() {
+        space.destroy();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public CollisionShape buildShape() {
+        return createShape();
+    }
+
+    @Benchmark
+    public PhysicsSpace step() {
+        for (PhysicsRigidBody body : bodies) {
+            body.activate();
+        }
+        space.update(TPF);
+        return space;
+    }
+}
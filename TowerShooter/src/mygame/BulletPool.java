@@ -0,0 +1,153 @@
+package mygame;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.control.RigidBodyControl;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.util.TempVars;
+
+/**
+ * Pool de balas reutilizables. El modelo se carga una sola vez y cada bala
+ * (nodo + RigidBodyControl) se crea al inicio y se recicla al impactar o
+ * expirar, en lugar de cargar el j3o y crear un cuerpo nuevo en cada disparo.
+ */
+class BulletPool {
+
+    static final String SLOT_KEY = "bulletSlot";
+
+    private final AssetManager assetManager;
+    private final PhysicsSpace physicsSpace;
+    private final Node parent;
+    private final int capacity;
+
+    private Spatial template;
+    private final Spatial[] free;
+    private int freeCount = 0;
+
+    private int created = 0;
+    private int inUse = 0;
+    private int hits = 0;
+    private int misses = 0;
+    private int highWaterMark = 0;
+
+    BulletPool(AssetManager assetManager, PhysicsSpace physicsSpace, Node parent, int capacity) {
+        this.assetManager = assetManager;
+        this.physicsSpace = physicsSpace;
+        this.parent = parent;
+        this.capacity = capacity;
+        this.free = new Spatial[Math.max(capacity, 1)];
+    }
+
+    /** Crea de antemano todas las balas del pool (llamar desde simpleInitApp). */
+    void prewarm() {
+        while (freeCount < capacity) {
+            free[freeCount++] = createBullet();
+        }
+    }
+
+    /**
+     * Entrega una bala colocada en la posicion dada, ya anadida a la escena y
+     * al espacio fisico, moviendose en la direccion indicada.
+     */
+    Spatial acquire(Vector3f position, Vector3f direction, float speed) {
+        Spatial bullet;
+        if (freeCount > 0) {
+            bullet = free[--freeCount];
+            free[freeCount] = null;
+            hits++;
+        } else {
+            bullet = createBullet();
+            misses++;
+        }
+        inUse++;
+        if (inUse > highWaterMark) highWaterMark = inUse;
+
+        TempVars vars = TempVars.get();
+        bullet.setLocalTranslation(position);
+        bullet.lookAt(vars.vect1.set(position).addLocal(direction), Vector3f.UNIT_Y);
+
+        RigidBodyControl physics = bullet.getControl(RigidBodyControl.class);
+        physics.setPhysicsLocation(position);
+        physics.setPhysicsRotation(bullet.getLocalRotation());
+        physics.setLinearVelocity(vars.vect2.set(direction).multLocal(speed));
+        physics.setAngularVelocity(Vector3f.ZERO);
+        physics.setGravity(Vector3f.ZERO);
+        vars.release();
+
+        parent.attachChild(bullet);
+        physicsSpace.add(physics);
+        return bullet;
+    }
+
+    /** Saca la bala de la escena y de la fisica y la devuelve al pool. */
+    void release(Spatial bullet) {
+        physicsSpace.remove(bullet.getControl(RigidBodyControl.class));
+        bullet.removeFromParent();
+        inUse--;
+        if (freeCount < capacity) {
+            free[freeCount++] = bullet;
+        }
+    }
+
+    private Spatial createBullet() {
+        if (template == null) {
+            template = assetManager.loadModel("Models/Bullet/Bullet.j3o");
+            template.setLocalTranslation(0, 0, 0);
+            template.rotate(0, -FastMath.HALF_PI, 0);
+        }
+
+        Node bulletNode = new Node("bullet");
+        bulletNode.attachChild(template.clone(false));
+        bulletNode.setLocalScale(0.5f);
+
+        RigidBodyControl bulletPhysics = new RigidBodyControl(1);
+        bulletNode.addControl(bulletPhysics);
+        CollisionGroups.setupBullet(bulletPhysics);
+        bulletNode.setUserData(SLOT_KEY, created);
+        created++;
+        return bulletNode;
+    }
+
+    /**
+     * Numero fijo de la bala dentro del pool, entre 0 y el total creado; -1 si
+     * el nodo no es una bala.
+     */
+    static int slotOf(Spatial bullet) {
+        Integer slot = bullet.getUserData(SLOT_KEY);
+        return slot != null ? slot : -1;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /** Total de balas construidas desde el inicio (precarga incluida). */
+    int getCreatedCount() {
+        return created;
+    }
+
+    int getInUse() {
+        return inUse;
+    }
+
+    int getHits() {
+        return hits;
+    }
+
+    int getMisses() {
+        return misses;
+    }
+
+    int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    @Override
+    public String toString() {
+        return "BulletPool[capacity=" + capacity + ", created=" + created + ", inUse=" + inUse
+                + ", hits=" + hits + ", misses=" + misses + ", highWaterMark=" + highWaterMark + "]";
+    }
+}
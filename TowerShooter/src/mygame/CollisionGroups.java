@@ -0,0 +1,51 @@
+package mygame;
+
+import com.bulletphysics.collision.broadphase.BroadphaseProxy;
+import com.bulletphysics.collision.broadphase.CollisionFilterGroups;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+
+/**
+ * Grupos de colision del juego. Las balas solo chocan con los vaqueros, asi
+ * que los pares bala-bala y bala-terreno se descartan en el broadphase.
+ */
+final class CollisionGroups {
+
+    /** Terreno y torre (grupo por defecto de jME). */
+    static final int WORLD = PhysicsCollisionObject.COLLISION_GROUP_01;
+    static final int BULLETS = PhysicsCollisionObject.COLLISION_GROUP_02;
+    static final int ENEMIES = PhysicsCollisionObject.COLLISION_GROUP_03;
+
+    private CollisionGroups() {
+    }
+
+    static void setupBullet(PhysicsCollisionObject body) {
+        body.setCollisionGroup(BULLETS);
+        body.setCollideWithGroups(ENEMIES);
+    }
+
+    static void setupEnemy(PhysicsCollisionObject body) {
+        body.setCollisionGroup(ENEMIES);
+        body.setCollideWithGroups(WORLD | ENEMIES | BULLETS);
+    }
+
+    /**
+     * Pone a un cuerpo del espacio el filtro de Bullet que le toca; solo
+     * cuenta para los pares que se creen despues. jME anade los cinematicos como si fueran dinamicos, con el filtro
+     * que se empareja con todo, y Bullet no lo vuelve a mirar; un cinematico
+     * no necesita pares con el terreno ni con otros cinematicos, asi que
+     * lleva el filtro que Bullet da a los estaticos. Con el broadphase DBVT
+     * los pares del cuerpo nuevo se calculan en el siguiente paso, ya con el.
+     */
+    static void applyBroadphaseFilter(PhysicsRigidBody body) {
+        BroadphaseProxy proxy = body.getObjectId().getBroadphaseHandle();
+        if (proxy == null) return;
+        if (body.isKinematic()) {
+            proxy.collisionFilterGroup = CollisionFilterGroups.STATIC_FILTER;
+            proxy.collisionFilterMask = (short) (CollisionFilterGroups.ALL_FILTER ^ CollisionFilterGroups.STATIC_FILTER);
+        } else {
+            proxy.collisionFilterGroup = CollisionFilterGroups.DEFAULT_FILTER;
+            proxy.collisionFilterMask = CollisionFilterGroups.ALL_FILTER;
+        }
+    }
+}
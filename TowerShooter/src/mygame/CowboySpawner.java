@@ -0,0 +1,113 @@
+package mygame;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.control.RigidBodyControl;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+
+/**
+ * Monta los vaqueros de las oleadas y los mete en el juego. Cada enemigo sale
+ * del {@link EnemyPool} si queda alguno, si no de la oleada que haya preparado
+ * el {@link WaveLoader} y si no se construye en el momento; despues se anade
+ * al espacio fisico, a la escena, al registro de enemigos y a las barras de
+ * vida. El WaveLoader llama a {@link #build(int)} desde su hilo; lo demas solo
+ * se usa desde el de render.
+ */
+class CowboySpawner implements WaveLoader.Builder {
+
+    /** De donde ha salido un vaquero. */
+    enum Source {
+        POOL, PREPARED, BUILT
+    }
+
+    /** Impactos que aguanta un vaquero; las barras de vida se dibujan sobre esta cifra. */
+    static final int MAX_HEALTH = 3;
+
+    private static final String COWBOY_MODEL = "Models/Cowboy/Cowboy.j3o";
+
+    private final AssetManager assetManager;
+    private final CowboyTemplateCache templates;
+    private final boolean kinematic;
+    private final EnemyPool pool;
+    private final PhysicsSpace space;
+    private final Node parent;
+    private final EnemyRegistry enemies;
+    private final HealthBarBatch healthBars;
+
+    /**
+     * @param templates plantilla compartida de la que se clonan los modelos;
+     *     con null se carga Cowboy.j3o para cada vaquero
+     */
+    CowboySpawner(AssetManager assetManager, CowboyTemplateCache templates, LocomotionMode locomotion,
+            EnemyPool pool, PhysicsSpace space, Node parent, EnemyRegistry enemies, HealthBarBatch healthBars) {
+        this.assetManager = assetManager;
+        this.templates = templates;
+        this.kinematic = locomotion == LocomotionMode.KINEMATIC;
+        this.pool = pool;
+        this.space = space;
+        this.parent = parent;
+        this.enemies = enemies;
+        this.healthBars = healthBars;
+    }
+
+    /**
+     * Crea el enemigo {@code i} en {@code position} con su temporizador y su
+     * semilla. {@code prepared} es la oleada del WaveLoader, o null.
+     */
+    Source spawn(int i, Vector3f position, float timer, long seed, WaveLoader.PreparedWave prepared) {
+        Source source = Source.POOL;
+        Node cowboyNode = pool.acquire(position, kinematic);
+        if (cowboyNode == null) {
+            source = Source.PREPARED;
+            cowboyNode = prepared != null ? prepared.next() : null;
+            if (cowboyNode == null) {
+                source = Source.BUILT;
+                cowboyNode = build(i);
+            }
+        }
+        RigidBodyControl physics = cowboyNode.getControl(RigidBodyControl.class);
+        if (source != Source.POOL) {
+            cowboyNode.setLocalTranslation(position);
+            physics.setPhysicsLocation(position);
+        }
+
+        space.add(physics);
+        CollisionGroups.applyBroadphaseFilter(physics);
+        parent.attachChild(cowboyNode);
+
+        MovementPattern pattern = MovementPattern.VALUES[i % MovementPattern.VALUES.length];
+        enemies.add(cowboyNode, physics, MAX_HEALTH, pattern.ordinal(), timer, seed);
+        healthBars.add(position.x, position.y, position.z);
+        return source;
+    }
+
+    /**
+     * Monta un vaquero (modelo, nodo y cuerpo fisico) sin anadirlo a la escena
+     * ni al espacio fisico; la posicion se le da al crearlo.
+     */
+    @Override
+    public Node build(int i) {
+        Spatial cowboyModel;
+        if (templates != null) {
+            cowboyModel = templates.createModel();
+        } else {
+            cowboyModel = assetManager.loadModel(COWBOY_MODEL);
+            cowboyModel.setLocalTranslation(0, 0, 0);
+            cowboyModel.scale(0.5f);
+        }
+
+        Node cowboyNode = new Node("Cowboy_" + i);
+        cowboyNode.attachChild(cowboyModel);
+
+        RigidBodyControl physics = new RigidBodyControl(new BoxCollisionShape(new Vector3f(1, 1, 1)), 2);
+        cowboyNode.addControl(physics);
+        physics.setFriction(0.6f);
+        physics.setRestitution(0.2f);
+        physics.setKinematic(kinematic);
+        CollisionGroups.setupEnemy(physics);
+        return cowboyNode;
+    }
+}
@@ -0,0 +1,79 @@
+package mygame;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.material.Material;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.SceneGraphVisitorAdapter;
+import com.jme3.scene.Spatial;
+
+/**
+ * Carga el modelo del vaquero una sola vez y crea los enemigos clonandolo.
+ * Los clones comparten mallas y materiales con la plantilla, asi que una
+ * oleada entera solo tiene una copia de la geometria en memoria. Es seguro
+ * usarla desde el hilo del WaveLoader y desde el de render a la vez.
+ */
+class CowboyTemplateCache {
+
+    private static final String COWBOY_MODEL = "Models/Cowboy/Cowboy.j3o";
+
+    private final AssetManager assetManager;
+    private final boolean instancing;
+    private Spatial template;
+    private int loadCount = 0;
+
+    /**
+     * @param instancing activa "UseInstancing" en los materiales de la
+     *     plantilla para que un InstancedNode pueda agrupar la oleada
+     */
+    CowboyTemplateCache(AssetManager assetManager, boolean instancing) {
+        this.assetManager = assetManager;
+        this.instancing = instancing;
+    }
+
+    /** Devuelve un modelo nuevo que comparte mallas y materiales con la plantilla. */
+    synchronized Spatial createModel() {
+        return getTemplate().clone(false);
+    }
+
+    synchronized Spatial getTemplate() {
+        if (template == null) {
+            Spatial model = assetManager.loadModel(COWBOY_MODEL);
+            model.setLocalTranslation(0, 0, 0);
+            model.scale(0.5f);
+            loadCount++;
+            if (instancing) {
+                enableInstancing(model);
+            }
+            template = model;
+        }
+        return template;
+    }
+
+    /** Veces que se ha cargado el modelo desde el AssetManager. */
+    synchronized int getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * Activa UseInstancing en los materiales de la plantilla. InstancedNode
+     * no agrupa las geometrias con BatchHint.Never, asi que esas se dejan como
+     * estan; cualquier otra con un material sin UseInstancing haria fallar
+     * InstancedNode.instance() en mitad de la oleada, y se falla aqui, al
+     * cargar el modelo, diciendo cual es.
+     */
+    private static void enableInstancing(Spatial model) {
+        model.depthFirstTraversal(new SceneGraphVisitorAdapter() {
+            @Override
+            public void visit(Geometry geom) {
+                if (geom.getBatchHint() == Spatial.BatchHint.Never) return;
+                Material mat = geom.getMaterial();
+                if (mat.getMaterialDef().getMaterialParam("UseInstancing") == null) {
+                    throw new IllegalStateException("La geometria " + geom.getName() + " del vaquero usa "
+                            + mat.getMaterialDef().getName() + ", que no admite instancing; marcala con "
+                            + "BatchHint.Never o desactiva instancedCowboys");
+                }
+                mat.setBoolean("UseInstancing", true);
+            }
+        });
+    }
+}
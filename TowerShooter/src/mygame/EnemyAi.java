@@ -0,0 +1,113 @@
+package mygame;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fase de calculo de la IA: obtiene la velocidad de todos los enemigos con
+ * {@link EnemySteering}. Por encima de un umbral reparte el trabajo en lotes
+ * fork-join; como cada enemigo usa su propio generador aleatorio, el
+ * resultado es identico al de un solo hilo. Solo se recalculan los enemigos
+ * marcados en lodDue por {@link EnemyLod}, con el tiempo acumulado desde su
+ * ultimo calculo. La direccion base sale del {@link FlowField} si hay uno, y
+ * con una {@link SpatialHashGrid} se le suma la separacion entre vecinos.
+ * Aplicar las velocidades a la fisica y procesar los contactos con la torre
+ * queda para el hilo de render.
+ */
+class EnemyAi {
+
+    private final ForkJoinPool pool;
+    private final boolean parallel;
+    private final int parallelThreshold;
+    private final int batchSize;
+
+    private FlowField flowField;
+    private SpatialHashGrid separationGrid;
+    private float separationRadius;
+    private float separationStrength;
+
+    private EnemyRegistry enemies;
+    private float towerX, towerY, towerZ;
+    private float enemySpeed;
+    private float tpf;
+
+    EnemyAi(boolean parallel, int parallelThreshold, int batchSize) {
+        this(ForkJoinPool.commonPool(), parallel, parallelThreshold, batchSize);
+    }
+
+    /** Con un pool propio; con uno de un solo hilo los lotes no se reparten. */
+    EnemyAi(ForkJoinPool pool, boolean parallel, int parallelThreshold, int batchSize) {
+        this.pool = pool;
+        this.parallel = parallel;
+        this.parallelThreshold = parallelThreshold;
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    /** Campo de flujo que da la direccion base; null para ir en linea recta a la torre. */
+    void setFlowField(FlowField flowField) {
+        this.flowField = flowField;
+    }
+
+    /**
+     * Anade a la direccion un empuje para separarse de los vecinos a menos de
+     * {@code radius}; la rejilla se tiene que reconstruir antes de cada
+     * {@link #steerAll}. Con {@code grid} null no hay separacion.
+     */
+    void setSeparation(SpatialHashGrid grid, float radius, float strength) {
+        this.separationGrid = grid;
+        this.separationRadius = radius;
+        this.separationStrength = strength;
+    }
+
+    void steerAll(EnemyRegistry enemies, float towerX, float towerY, float towerZ, float enemySpeed, float tpf) {
+        this.enemies = enemies;
+        this.towerX = towerX;
+        this.towerY = towerY;
+        this.towerZ = towerZ;
+        this.enemySpeed = enemySpeed;
+        this.tpf = tpf;
+
+        int count = enemies.size();
+        if (parallel && count >= parallelThreshold && pool.getParallelism() > 1) {
+            pool.invoke(new Batch(0, count));
+        } else {
+            steerRange(0, count);
+        }
+        this.enemies = null;
+    }
+
+    private void steerRange(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (enemies.lodDue[i]) {
+                EnemySteering.steer(enemies, i, towerX, towerY, towerZ, enemySpeed, tpf + enemies.lodElapsed[i],
+                        flowField);
+                if (separationGrid != null) {
+                    EnemySteering.separate(enemies, separationGrid, i, separationRadius, separationStrength,
+                            enemySpeed);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private final class Batch extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+
+        Batch(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= batchSize) {
+                steerRange(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Batch(from, mid), new Batch(mid, to));
+        }
+    }
+}
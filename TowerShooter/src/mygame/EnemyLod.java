@@ -0,0 +1,149 @@
+package mygame;
+
+import com.bulletphysics.collision.broadphase.BroadphasePair;
+import com.bulletphysics.collision.broadphase.BroadphaseProxy;
+import com.bulletphysics.collision.broadphase.OverlapCallback;
+import com.bulletphysics.collision.dispatch.CollisionWorld;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.control.RigidBodyControl;
+import com.jme3.math.Vector3f;
+
+/**
+ * Nivel de detalle de la IA segun la distancia a la torre. Los enemigos
+ * cercanos (NEAR) recalculan su direccion cada frame; los intermedios (MID)
+ * y lejanos (FAR) solo cada cierto numero de frames y mantienen entre medias
+ * la ultima velocidad. Los lejanos pueden ademas pasar a cinematicos: se
+ * mueven por su rumbo pegados al terreno sin que el solver los integre, y
+ * siguen recibiendo impactos de balas y rayos como cualquier otro cuerpo.
+ * Con {@link LocomotionMode#KINEMATIC} todos los enemigos se mueven asi.
+ *
+ * Uso por frame, en el hilo de render: {@link #schedule}, leer posiciones,
+ * {@link EnemyAi#steerAll} y {@link #apply}.
+ */
+class EnemyLod {
+
+    static final int NEAR = 0;
+    static final int MID = 1;
+    static final int FAR = 2;
+
+    /** Semialtura de la caja de colision: el centro queda a esta altura sobre el suelo. */
+    private static final float GROUND_OFFSET = 1f;
+
+    private final float nearDistance;
+    private final float farDistance;
+    private final int midInterval;
+    private final int farInterval;
+    private final boolean farKinematic;
+    private final boolean allKinematic;
+
+    private final Vector3f scratch = new Vector3f();
+    private final PairDropper pairDropper = new PairDropper();
+
+    /**
+     * @param midInterval frames entre recalculos en el nivel MID
+     * @param farInterval frames entre recalculos en el nivel FAR
+     */
+    EnemyLod(float nearDistance, float farDistance, int midInterval, int farInterval, boolean farKinematic,
+            LocomotionMode locomotion) {
+        this.nearDistance = nearDistance;
+        this.farDistance = farDistance;
+        this.midInterval = Math.max(midInterval, 1);
+        this.farInterval = Math.max(farInterval, 1);
+        this.farKinematic = farKinematic;
+        this.allKinematic = locomotion == LocomotionMode.KINEMATIC;
+    }
+
+    /** Sin niveles: todos se recalculan cada frame. */
+    static EnemyLod disabled(LocomotionMode locomotion) {
+        return new EnemyLod(Float.MAX_VALUE, Float.MAX_VALUE, 1, 1, false, locomotion);
+    }
+
+    /** Marca en lodDue a quien toca recalcular este frame; el resto acumula el tiempo. */
+    void schedule(EnemyRegistry enemies, float tpf) {
+        for (int i = 0; i < enemies.size(); i++) {
+            boolean due = enemies.lodCountdown[i] <= 0;
+            enemies.lodDue[i] = due;
+            if (!due) {
+                enemies.lodCountdown[i]--;
+                enemies.lodElapsed[i] += tpf;
+            }
+        }
+    }
+
+    /**
+     * Tras la IA: reclasifica a los recalculados, aplica la velocidad a los
+     * dinamicos y mueve a los cinematicos sobre el terreno.
+     */
+    void apply(EnemyRegistry enemies, HeightSampler ground, float tpf) {
+        for (int i = 0; i < enemies.size(); i++) {
+            RigidBodyControl body = enemies.bodies[i];
+            if (enemies.lodDue[i]) {
+                reschedule(enemies, i);
+                boolean kinematic = allKinematic || (farKinematic && enemies.lodTier[i] == FAR);
+                if (kinematic != body.isKinematic()) {
+                    setKinematic(enemies, i, body, kinematic);
+                }
+            }
+
+            if (body.isKinematic()) {
+                float x = enemies.posX[i] + enemies.velX[i] * tpf;
+                float z = enemies.posZ[i] + enemies.velZ[i] * tpf;
+                float y = ground.heightAt(x, z) + GROUND_OFFSET;
+                enemies.posX[i] = x;
+                enemies.posY[i] = y;
+                enemies.posZ[i] = z;
+                // El control copia la posicion del nodo al cuerpo antes del paso fisico
+                enemies.nodes[i].setLocalTranslation(x, y, z);
+            } else {
+                body.setLinearVelocity(scratch.set(enemies.velX[i], enemies.velY[i], enemies.velZ[i]));
+            }
+        }
+    }
+
+    private void reschedule(EnemyRegistry enemies, int i) {
+        float distance = enemies.towerDistance[i];
+        int tier = distance < nearDistance ? NEAR : (distance < farDistance ? MID : FAR);
+        int interval = tier == NEAR ? 1 : (tier == MID ? midInterval : farInterval);
+        // Al cambiar de nivel se reparte el siguiente recalculo para no juntarlos todos en un frame
+        enemies.lodCountdown[i] = (tier != enemies.lodTier[i] ? i % interval : interval) - 1;
+        enemies.lodTier[i] = tier;
+        enemies.lodElapsed[i] = 0;
+    }
+
+    /**
+     * Bullet solo mira el filtro del broadphase al crear un par: un dinamico
+     * que pasa a cinematico seguiria con sus pares con el terreno y con los
+     * otros cinematicos en cada paso. Se le cambia el filtro y se tiran sus
+     * pares; el broadphase vuelve a crear en el siguiente paso los que el
+     * filtro nuevo deje. Sacarlo y volver a anadirlo al espacio tambien
+     * valdria, pero crea el proxy de nuevo en cada cambio de nivel.
+     */
+    private void setKinematic(EnemyRegistry enemies, int i, RigidBodyControl body, boolean kinematic) {
+        body.setKinematic(kinematic);
+        if (!kinematic) {
+            body.setPhysicsLocation(scratch.set(enemies.posX[i], enemies.posY[i], enemies.posZ[i]));
+            body.activate();
+        }
+        PhysicsSpace space = body.getPhysicsSpace();
+        BroadphaseProxy proxy = body.getObjectId().getBroadphaseHandle();
+        if (space != null && proxy != null) {
+            CollisionGroups.applyBroadphaseFilter(body);
+            CollisionWorld world = space.getDynamicsWorld();
+            pairDropper.proxy = proxy;
+            world.getBroadphase().getOverlappingPairCache()
+                    .processAllOverlappingPairs(pairDropper, world.getDispatcher());
+            pairDropper.proxy = null;
+        }
+    }
+
+    /** Quita de la cache los pares de un proxy, como el de Bullet pero sin crearlo en cada llamada. */
+    private static final class PairDropper extends OverlapCallback {
+
+        BroadphaseProxy proxy;
+
+        @Override
+        public boolean processOverlap(BroadphasePair pair) {
+            return pair.pProxy0 == proxy || pair.pProxy1 == proxy;
+        }
+    }
+}
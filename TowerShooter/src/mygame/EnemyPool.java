@@ -0,0 +1,75 @@
+package mygame;
+
+import com.jme3.bullet.control.RigidBodyControl;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+
+import java.util.Arrays;
+
+/**
+ * Vaqueros retirados (muertos, llegados a la torre o quitados al reiniciar)
+ * que se guardan fuera de la escena y del espacio fisico, con su modelo y su
+ * RigidBodyControl, para la siguiente oleada. Asi el cambio de nivel y el
+ * reinicio solo construyen los vaqueros que faltan.
+ */
+class EnemyPool {
+
+    private Node[] free = new Node[64];
+    private int freeCount = 0;
+
+    private int reused = 0;
+    private int released = 0;
+
+    /** Guarda un vaquero ya sacado de la escena y del espacio fisico. */
+    void release(Node cowboy) {
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = cowboy;
+        released++;
+    }
+
+    /**
+     * Saca un vaquero del pool y lo deja como recien construido en
+     * {@code position}: parado, sin rotacion y con el modo de locomocion
+     * indicado. Devuelve null si el pool esta vacio.
+     */
+    Node acquire(Vector3f position, boolean kinematic) {
+        if (freeCount == 0) return null;
+        Node cowboy = free[--freeCount];
+        free[freeCount] = null;
+        reused++;
+
+        cowboy.setLocalTranslation(position);
+        cowboy.setLocalRotation(Quaternion.IDENTITY);
+
+        RigidBodyControl physics = cowboy.getControl(RigidBodyControl.class);
+        physics.setKinematic(kinematic);
+        physics.setPhysicsLocation(position);
+        physics.setPhysicsRotation(Quaternion.IDENTITY);
+        physics.setLinearVelocity(Vector3f.ZERO);
+        physics.setAngularVelocity(Vector3f.ZERO);
+        physics.activate();
+        return cowboy;
+    }
+
+    /** Vaqueros disponibles. */
+    int size() {
+        return freeCount;
+    }
+
+    /** Vaqueros reutilizados desde el inicio. */
+    int getReused() {
+        return reused;
+    }
+
+    int getReleased() {
+        return released;
+    }
+
+    @Override
+    public String toString() {
+        return "EnemyPool[free=" + freeCount + ", reused=" + reused + ", released=" + released + "]";
+    }
+}
@@ -0,0 +1,145 @@
+package mygame;
+
+import com.jme3.bullet.control.RigidBodyControl;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Estado de los enemigos vivos en arreglos primitivos indexados por un id
+ * denso (0..size-1). Al eliminar un enemigo el ultimo ocupa su hueco, asi que
+ * los ids solo son estables hasta la siguiente eliminacion; para volver del
+ * nodo al id se usa {@link #idOf(Spatial)}.
+ */
+class EnemyRegistry {
+
+    private static final String ID_KEY = "enemyId";
+
+    private int size = 0;
+    private int nextNetId = 0;
+
+    Node[] nodes;
+    RigidBodyControl[] bodies;
+    int[] health;
+    int[] pattern;
+    float[] timer;
+    float[] posX, posY, posZ;
+    float[] velX, velY, velZ;
+    float[] towerDistance;
+    /** Nivel de detalle de la IA ({@link EnemyLod}) y su planificacion. */
+    int[] lodTier;
+    int[] lodCountdown;
+    float[] lodElapsed;
+    boolean[] lodDue;
+    /** Generador propio de cada enemigo, para que la IA sea determinista aunque se reparta entre hilos. */
+    SplittableRandom[] rng;
+    /** Id que no cambia mientras el enemigo vive; con el se le identifica en los snapshots de red. */
+    int[] netId;
+
+    EnemyRegistry() {
+        allocate(16);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int add(Node node, RigidBodyControl body, int initialHealth, int patternOrdinal, float initialTimer, long seed) {
+        if (size == nodes.length) {
+            allocate(size * 2);
+        }
+        int id = size++;
+        nodes[id] = node;
+        bodies[id] = body;
+        health[id] = initialHealth;
+        pattern[id] = patternOrdinal;
+        timer[id] = initialTimer;
+        posX[id] = node.getLocalTranslation().x;
+        posY[id] = node.getLocalTranslation().y;
+        posZ[id] = node.getLocalTranslation().z;
+        velX[id] = velY[id] = velZ[id] = 0;
+        towerDistance[id] = Float.MAX_VALUE;
+        lodTier[id] = EnemyLod.NEAR;
+        lodCountdown[id] = 0;
+        lodElapsed[id] = 0;
+        lodDue[id] = true;
+        rng[id] = new SplittableRandom(seed);
+        netId[id] = nextNetId++;
+        node.setUserData(ID_KEY, id);
+        return id;
+    }
+
+    /** Quita el enemigo moviendo el ultimo a su posicion (swap-remove). */
+    void remove(int id) {
+        int last = --size;
+        nodes[id].setUserData(ID_KEY, null);
+        if (id != last) {
+            nodes[id] = nodes[last];
+            bodies[id] = bodies[last];
+            health[id] = health[last];
+            pattern[id] = pattern[last];
+            timer[id] = timer[last];
+            posX[id] = posX[last];
+            posY[id] = posY[last];
+            posZ[id] = posZ[last];
+            velX[id] = velX[last];
+            velY[id] = velY[last];
+            velZ[id] = velZ[last];
+            towerDistance[id] = towerDistance[last];
+            lodTier[id] = lodTier[last];
+            lodCountdown[id] = lodCountdown[last];
+            lodElapsed[id] = lodElapsed[last];
+            lodDue[id] = lodDue[last];
+            rng[id] = rng[last];
+            netId[id] = netId[last];
+            nodes[id].setUserData(ID_KEY, id);
+        }
+        nodes[last] = null;
+        bodies[last] = null;
+        rng[last] = null;
+    }
+
+    /** Id actual del enemigo, o -1 si el nodo no esta registrado. */
+    int idOf(Spatial node) {
+        Integer id = node.getUserData(ID_KEY);
+        if (id == null || id >= size || nodes[id] != node) return -1;
+        return id;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            nodes[i].setUserData(ID_KEY, null);
+        }
+        Arrays.fill(nodes, 0, size, null);
+        Arrays.fill(bodies, 0, size, null);
+        Arrays.fill(rng, 0, size, null);
+        size = 0;
+    }
+
+    private void allocate(int capacity) {
+        nodes = nodes == null ? new Node[capacity] : Arrays.copyOf(nodes, capacity);
+        bodies = bodies == null ? new RigidBodyControl[capacity] : Arrays.copyOf(bodies, capacity);
+        health = health == null ? new int[capacity] : Arrays.copyOf(health, capacity);
+        pattern = pattern == null ? new int[capacity] : Arrays.copyOf(pattern, capacity);
+        timer = timer == null ? new float[capacity] : Arrays.copyOf(timer, capacity);
+        posX = posX == null ? new float[capacity] : Arrays.copyOf(posX, capacity);
+        posY = posY == null ? new float[capacity] : Arrays.copyOf(posY, capacity);
+        posZ = posZ == null ? new float[capacity] : Arrays.copyOf(posZ, capacity);
+        velX = velX == null ? new float[capacity] : Arrays.copyOf(velX, capacity);
+        velY = velY == null ? new float[capacity] : Arrays.copyOf(velY, capacity);
+        velZ = velZ == null ? new float[capacity] : Arrays.copyOf(velZ, capacity);
+        towerDistance = towerDistance == null ? new float[capacity] : Arrays.copyOf(towerDistance, capacity);
+        lodTier = lodTier == null ? new int[capacity] : Arrays.copyOf(lodTier, capacity);
+        lodCountdown = lodCountdown == null ? new int[capacity] : Arrays.copyOf(lodCountdown, capacity);
+        lodElapsed = lodElapsed == null ? new float[capacity] : Arrays.copyOf(lodElapsed, capacity);
+        lodDue = lodDue == null ? new boolean[capacity] : Arrays.copyOf(lodDue, capacity);
+        rng = rng == null ? new SplittableRandom[capacity] : Arrays.copyOf(rng, capacity);
+        netId = netId == null ? new int[capacity] : Arrays.copyOf(netId, capacity);
+    }
+}
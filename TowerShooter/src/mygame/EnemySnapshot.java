@@ -0,0 +1,126 @@
+package mygame;
+
+import java.util.Arrays;
+
+/**
+ * Estado de los enemigos en un tick del servidor, cuantizado y ordenado por
+ * {@link EnemyRegistry#netId}: es lo que se envia a los clientes. Las
+ * posiciones se guardan en enteros de 1/{@link #POSITION_SCALE} unidades, asi
+ * que dos snapshots se comparan y se restan sin errores de redondeo.
+ */
+class EnemySnapshot {
+
+    /** Pasos de cuantizacion por unidad de mundo (unos 3 cm). */
+    static final float POSITION_SCALE = 32f;
+
+    int tick = -1;
+    int score, lives, level;
+    /** Enemigos vivos en todo el mapa, incluidos los que no van en el snapshot. */
+    int total;
+
+    int count = 0;
+    int[] ids = new int[64];
+    int[] x = new int[64], y = new int[64], z = new int[64];
+    int[] health = new int[64];
+    int[] pattern = new int[64];
+
+    private long[] order = new long[64];
+
+    static int quantize(float position) {
+        return Math.round(position * POSITION_SCALE);
+    }
+
+    static float position(int quantized) {
+        return quantized / POSITION_SCALE;
+    }
+
+    /** Copia los enemigos vivos del registro, ordenados por id de red. */
+    void capture(EnemyRegistry enemies, int tick) {
+        this.tick = tick;
+        int n = enemies.size();
+        ensureCapacity(n);
+        if (order.length < n) {
+            order = new long[Math.max(n, order.length * 2)];
+        }
+        for (int i = 0; i < n; i++) {
+            order[i] = (long) enemies.netId[i] << 32 | i;
+        }
+        Arrays.sort(order, 0, n);
+        for (int k = 0; k < n; k++) {
+            int i = (int) order[k];
+            ids[k] = enemies.netId[i];
+            x[k] = quantize(enemies.posX[i]);
+            y[k] = quantize(enemies.posY[i]);
+            z[k] = quantize(enemies.posZ[i]);
+            health[k] = enemies.health[i];
+            pattern[k] = enemies.pattern[i];
+        }
+        count = n;
+    }
+
+    /**
+     * Se queda con los enemigos de {@code world} a menos de {@code radius} de
+     * (centerX, centerZ), como mucho {@code max}; si sobran se quitan los mas
+     * lejanos.
+     */
+    void selectAround(EnemySnapshot world, float centerX, float centerZ, float radius, int max) {
+        copyHeader(world);
+        ensureCapacity(world.count);
+        if (order.length < world.count) {
+            order = new long[Math.max(world.count, order.length * 2)];
+        }
+        int cx = quantize(centerX);
+        int cz = quantize(centerZ);
+        long radius2 = (long) quantize(radius) * quantize(radius);
+
+        int found = 0;
+        for (int k = 0; k < world.count; k++) {
+            long dx = world.x[k] - cx;
+            long dz = world.z[k] - cz;
+            long distance2 = dx * dx + dz * dz;
+            if (distance2 < radius2) {
+                // Distancia en la parte alta para ordenar por ella si hay que recortar
+                order[found++] = Math.min(distance2, Integer.MAX_VALUE) << 32 | k;
+            }
+        }
+        if (found > max) {
+            Arrays.sort(order, 0, found);
+            found = max;
+            // De vuelta al orden por id, que es el de world
+            for (int k = 0; k < found; k++) {
+                order[k] &= 0xFFFFFFFFL;
+            }
+            Arrays.sort(order, 0, found);
+        }
+
+        for (int n = 0; n < found; n++) {
+            int k = (int) order[n];
+            ids[n] = world.ids[k];
+            x[n] = world.x[k];
+            y[n] = world.y[k];
+            z[n] = world.z[k];
+            health[n] = world.health[k];
+            pattern[n] = world.pattern[k];
+        }
+        count = found;
+    }
+
+    void copyHeader(EnemySnapshot other) {
+        tick = other.tick;
+        score = other.score;
+        lives = other.lives;
+        level = other.level;
+        total = other.total;
+    }
+
+    void ensureCapacity(int capacity) {
+        if (ids.length >= capacity) return;
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        z = Arrays.copyOf(z, newCapacity);
+        health = Arrays.copyOf(health, newCapacity);
+        pattern = Arrays.copyOf(pattern, newCapacity);
+    }
+}
@@ -0,0 +1,209 @@
+package mygame;
+
+import com.jme3.math.FastMath;
+
+import java.util.SplittableRandom;
+
+/**
+ * Calculo de la velocidad de cada vaquero segun su {@link MovementPattern}.
+ * Trabaja sobre los arreglos de {@link EnemyRegistry} con aritmetica escalar,
+ * de modo que no crea ningun objeto por enemigo ni por frame.
+ */
+final class EnemySteering {
+
+    private EnemySteering() {
+    }
+
+    /**
+     * Avanza el temporizador del enemigo {@code i} y escribe su velocidad en
+     * velX/velY/velZ y su distancia a la torre en towerDistance, a partir de
+     * la posicion cacheada en posX/posY/posZ. Solo lee y escribe el estado
+     * del propio enemigo (incluido su generador aleatorio), asi que se puede
+     * llamar en paralelo para enemigos distintos.
+     *
+     * @return la distancia del enemigo a la torre
+     */
+    static float steer(EnemyRegistry enemies, int i, float towerX, float towerY, float towerZ,
+            float enemySpeed, float tpf) {
+        return steer(enemies, i, towerX, towerY, towerZ, enemySpeed, tpf, null);
+    }
+
+    /**
+     * Como {@link #steer(EnemyRegistry, int, float, float, float, float, float)},
+     * pero la direccion base sale del campo de flujo cuando el enemigo esta
+     * dentro de el; fuera (o con {@code flow} null) es la linea recta a la torre.
+     */
+    static float steer(EnemyRegistry enemies, int i, float towerX, float towerY, float towerZ,
+            float enemySpeed, float tpf, FlowField flow) {
+        SplittableRandom rand = enemies.rng[i];
+        float toX = towerX - enemies.posX[i];
+        float toY = towerY - enemies.posY[i];
+        float toZ = towerZ - enemies.posZ[i];
+        float distanceToTower = FastMath.sqrt(toX * toX + toY * toY + toZ * toZ);
+
+        // Direccion hacia la torre normalizada en XZ, como la del campo de flujo, para que
+        // la velocidad no cambie al salir del campo ni con la altura (cero se queda en cero)
+        float horizontal = FastMath.sqrt(toX * toX + toZ * toZ);
+        float dirX = toX, dirZ = toZ;
+        if (horizontal > 0f) {
+            dirX /= horizontal;
+            dirZ /= horizontal;
+        }
+        int cell = flow != null ? flow.cellAt(enemies.posX[i], enemies.posZ[i]) : -1;
+        if (cell >= 0 && (flow.dirX[cell] != 0f || flow.dirZ[cell] != 0f)) {
+            dirX = flow.dirX[cell];
+            dirZ = flow.dirZ[cell];
+        }
+
+        float timer = enemies.timer[i] + tpf;
+        float velX, velZ;
+
+        switch (MovementPattern.VALUES[enemies.pattern[i]]) {
+            case SINUSOIDAL: {
+                float amplitude = 5f * (distanceToTower / 120f);
+                float frequency = 2f;
+                float lateralMovement = amplitude * FastMath.sin(timer * frequency);
+
+                float perpX = -dirZ, perpZ = dirX;
+                float perpLength = FastMath.sqrt(perpX * perpX + perpZ * perpZ);
+                if (perpLength > 0f) {
+                    perpX /= perpLength;
+                    perpZ /= perpLength;
+                }
+
+                float speedFactor = 0.5f + (distanceToTower / 120f) * 0.5f;
+                velX = dirX * enemySpeed * speedFactor + perpX * lateralMovement;
+                velZ = dirZ * enemySpeed * speedFactor + perpZ * lateralMovement;
+                break;
+            }
+            case SPIRAL: {
+                float spiralRadius = 8f * (distanceToTower / 120f);
+                float spiralSpeed = 3f;
+                float offsetScale = spiralRadius > 0f ? 2f : 0f;
+
+                float spiralSpeedFactor = 1f + (1 - distanceToTower / 120f) * 2f;
+                velX = dirX * enemySpeed * spiralSpeedFactor + FastMath.cos(timer * spiralSpeed) * offsetScale;
+                velZ = dirZ * enemySpeed * spiralSpeedFactor + FastMath.sin(timer * spiralSpeed) * offsetScale;
+                break;
+            }
+            case RANDOM: {
+                float x = dirX, z = dirZ;
+                if (timer > 1f) {
+                    timer = 0f;
+
+                    float randomness = 0.7f * (distanceToTower / 120f);
+                    float offX = rand.nextFloat() * 2 - 1;
+                    float offZ = rand.nextFloat() * 2 - 1;
+                    float offLength = FastMath.sqrt(offX * offX + offZ * offZ);
+                    if (offLength > 0f) {
+                        offX = offX / offLength * randomness;
+                        offZ = offZ / offLength * randomness;
+                    }
+
+                    x += offX;
+                    z += offZ;
+                    float length = FastMath.sqrt(x * x + z * z);
+                    if (length > 0f) {
+                        x /= length;
+                        z /= length;
+                    }
+                }
+
+                float randomSpeedFactor = 0.7f + rand.nextFloat() * 0.6f;
+                velX = x * enemySpeed * randomSpeedFactor;
+                velZ = z * enemySpeed * randomSpeedFactor;
+                break;
+            }
+            case ZIGZAG: {
+                float x = dirX, z = dirZ;
+                if (timer > 1.5f) {
+                    timer = 0f;
+
+                    // (+-1, 0, +-1) normalizado y escalado a 3
+                    float offset = 3f / FastMath.sqrt(2f);
+                    x += rand.nextFloat() > 0.5f ? offset : -offset;
+                    z += rand.nextFloat() > 0.5f ? offset : -offset;
+                    float length = FastMath.sqrt(x * x + z * z);
+                    if (length > 0f) {
+                        x /= length;
+                        z /= length;
+                    }
+                }
+
+                velX = x * enemySpeed * 1.2f;
+                velZ = z * enemySpeed * 1.2f;
+                break;
+            }
+            case CIRCLE_APPROACH: {
+                float circleRadius = 10f * (distanceToTower / 120f);
+                float circleSpeed = 2f;
+
+                float approachSpeed = enemySpeed * 0.7f;
+                float circleComponentSpeed = circleRadius > 0f ? enemySpeed * 0.5f : 0f;
+                velX = dirX * approachSpeed + FastMath.cos(timer * circleSpeed) * circleComponentSpeed;
+                velZ = dirZ * approachSpeed + FastMath.sin(timer * circleSpeed) * circleComponentSpeed;
+                break;
+            }
+            case RETREAT_AND_ADVANCE: {
+                float scale = 1f;
+                if (timer > 2f) {
+                    timer = 0f;
+                    scale = rand.nextFloat() < 0.3f ? -1f : 1.5f;
+                }
+
+                velX = dirX * scale * enemySpeed * 0.8f;
+                velZ = dirZ * scale * enemySpeed * 0.8f;
+                break;
+            }
+            default:
+                velX = dirX * enemySpeed;
+                velZ = dirZ * enemySpeed;
+                break;
+        }
+
+        enemies.timer[i] = timer;
+        enemies.velX[i] = velX;
+        enemies.velY[i] = FastMath.sin(timer * 3f) * 0.3f;
+        enemies.velZ[i] = velZ;
+        enemies.towerDistance[i] = distanceToTower;
+        return distanceToTower;
+    }
+
+    /**
+     * Suma a la velocidad del enemigo {@code i} un empuje para apartarse de
+     * los que tiene a menos de {@code radius}, mas fuerte cuanto mas cerca
+     * estan. Lee las posiciones de los vecinos de la rejilla y solo escribe
+     * las del propio enemigo, asi que tambien se puede llamar en paralelo.
+     */
+    static void separate(EnemyRegistry enemies, SpatialHashGrid grid, int i, float radius, float strength,
+            float enemySpeed) {
+        float x = enemies.posX[i];
+        float z = enemies.posZ[i];
+        float radius2 = radius * radius;
+        float pushX = 0f, pushZ = 0f;
+
+        int minCol = grid.col(x - radius), maxCol = grid.col(x + radius);
+        int minRow = grid.row(z - radius), maxRow = grid.row(z + radius);
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                int cell = r * grid.cols() + c;
+                for (int k = grid.cellStart[cell]; k < grid.cellStart[cell + 1]; k++) {
+                    int j = grid.items[k];
+                    float dx = x - enemies.posX[j];
+                    float dz = z - enemies.posZ[j];
+                    float distance2 = dx * dx + dz * dz;
+                    // Se salta a si mismo y a los que estan justo encima (sin direccion definida)
+                    if (j == i || distance2 >= radius2 || distance2 == 0f) continue;
+
+                    float distance = FastMath.sqrt(distance2);
+                    float weight = (radius - distance) / (radius * distance);
+                    pushX += dx * weight;
+                    pushZ += dz * weight;
+                }
+            }
+        }
+
+        enemies.velX[i] += pushX * strength * enemySpeed;
+        enemies.velZ[i] += pushZ * strength * enemySpeed;
+    }
+}
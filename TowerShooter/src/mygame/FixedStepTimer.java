@@ -0,0 +1,58 @@
+package mygame;
+
+import com.jme3.system.Timer;
+
+/**
+ * Temporizador de paso fijo: cada frame avanza exactamente {@code 1 / rate}
+ * segundos, vaya el frame rapido o lento. Con el mismo tpf en cada frame la
+ * fisica da un subpaso por frame y el juego no depende del reloj de la
+ * maquina, que es lo que hace falta para que una repeticion salga igual.
+ */
+class FixedStepTimer extends Timer {
+
+    private static final long RESOLUTION = 1_000_000_000L;
+
+    private final int rate;
+    private final float step;
+    private long ticks = 0;
+
+    FixedStepTimer(int rate) {
+        this.rate = rate;
+        this.step = 1f / rate;
+    }
+
+    /** Frames transcurridos desde el ultimo reset. */
+    long getTicks() {
+        return ticks;
+    }
+
+    @Override
+    public long getTime() {
+        return ticks * RESOLUTION / rate;
+    }
+
+    @Override
+    public long getResolution() {
+        return RESOLUTION;
+    }
+
+    @Override
+    public float getFrameRate() {
+        return rate;
+    }
+
+    @Override
+    public float getTimePerFrame() {
+        return step;
+    }
+
+    @Override
+    public void update() {
+        ticks++;
+    }
+
+    @Override
+    public void reset() {
+        ticks = 0;
+    }
+}
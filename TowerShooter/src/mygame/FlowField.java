@@ -0,0 +1,219 @@
+package mygame;
+
+import com.jme3.math.FastMath;
+
+import java.util.Arrays;
+
+/**
+ * Campo de direcciones hacia la torre sobre una rejilla cuadrada centrada en
+ * ella. Se construye una vez con Dijkstra desde la celda de la torre, con un
+ * coste por arista que crece con la pendiente del terreno, y cada celda
+ * guarda la direccion de bajada del coste. Consultarlo es O(1) y no depende
+ * del tamano de la oleada.
+ *
+ * Tras {@link #build} solo se lee, asi que se puede consultar desde varios
+ * hilos a la vez.
+ */
+class FlowField {
+
+    private static final int[] NEIGHBOR_COL = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] NEIGHBOR_ROW = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private final float cellSize;
+    private final int cells;
+    private final float slopeWeight;
+    private final float originX, originZ;
+
+    private final float[] cost;
+    /** Direccion normalizada en el plano XZ; (0, 0) en la celda de la torre. */
+    final float[] dirX, dirZ;
+
+    private final float[] heights;
+    private final int[] heap;
+    private final int[] heapIndex;
+    private int heapSize;
+
+    /**
+     * @param halfExtent distancia del centro al borde de la rejilla
+     * @param cellSize lado de cada celda en unidades de mundo
+     * @param slopeWeight coste extra por unidad de pendiente (0 ignora el terreno)
+     */
+    FlowField(float centerX, float centerZ, float halfExtent, float cellSize, float slopeWeight) {
+        this.cellSize = cellSize;
+        this.cells = 2 * (int) Math.ceil(halfExtent / cellSize) + 1;
+        this.slopeWeight = slopeWeight;
+        this.originX = centerX - (cells / 2) * cellSize;
+        this.originZ = centerZ - (cells / 2) * cellSize;
+
+        int count = cells * cells;
+        cost = new float[count];
+        dirX = new float[count];
+        dirZ = new float[count];
+        heights = new float[count];
+        heap = new int[count];
+        heapIndex = new int[count];
+    }
+
+    /** Recalcula costes y direcciones sobre el terreno dado. */
+    void build(HeightSampler ground) {
+        for (int row = 0; row < cells; row++) {
+            for (int col = 0; col < cells; col++) {
+                heights[row * cells + col] = ground.heightAt(originX + col * cellSize, originZ + row * cellSize);
+            }
+        }
+        computeCosts();
+        computeDirections();
+    }
+
+    /** Celda que contiene (x, z), o -1 si queda fuera de la rejilla. */
+    int cellAt(float x, float z) {
+        int col = (int) ((x - originX) / cellSize + 0.5f);
+        int row = (int) ((z - originZ) / cellSize + 0.5f);
+        if (x < originX - cellSize / 2 || z < originZ - cellSize / 2 || col >= cells || row >= cells) return -1;
+        return row * cells + col;
+    }
+
+    /** Celdas por lado. */
+    int size() {
+        return cells;
+    }
+
+    private void computeCosts() {
+        Arrays.fill(cost, Float.MAX_VALUE);
+        Arrays.fill(heapIndex, -1);
+        heapSize = 0;
+
+        int center = (cells / 2) * cells + cells / 2;
+        cost[center] = 0f;
+        push(center);
+
+        float diagonal = cellSize * FastMath.sqrt(2f);
+        while (heapSize > 0) {
+            int cell = pop();
+            int row = cell / cells;
+            int col = cell - row * cells;
+            for (int k = 0; k < NEIGHBOR_COL.length; k++) {
+                int c = col + NEIGHBOR_COL[k];
+                int r = row + NEIGHBOR_ROW[k];
+                if (c < 0 || r < 0 || c >= cells || r >= cells) continue;
+
+                int next = r * cells + c;
+                float length = k < 4 ? cellSize : diagonal;
+                float slope = Math.abs(heights[next] - heights[cell]) / length;
+                float candidate = cost[cell] + length * (1f + slopeWeight * slope);
+                if (candidate < cost[next]) {
+                    cost[next] = candidate;
+                    if (heapIndex[next] < 0) {
+                        push(next);
+                    } else {
+                        siftUp(heapIndex[next]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Direccion de bajada del coste: suma de las direcciones a los vecinos mas
+     * baratos, pesadas por lo que baja el coste por unidad de distancia. Si
+     * se anula o lleva a una celda que no es mas barata (la linea detras de
+     * una colina, donde los caminos se separan) se toma el vecino de menor
+     * coste, asi que seguir el campo nunca deja a un enemigo yendo y viniendo
+     * entre dos celdas.
+     */
+    private void computeDirections() {
+        float diagonal = FastMath.sqrt(2f);
+        for (int row = 0; row < cells; row++) {
+            for (int col = 0; col < cells; col++) {
+                int cell = row * cells + col;
+                float gx = 0f, gz = 0f;
+                float best = cost[cell];
+                int bestK = -1;
+                for (int k = 0; k < NEIGHBOR_COL.length; k++) {
+                    int c = col + NEIGHBOR_COL[k];
+                    int r = row + NEIGHBOR_ROW[k];
+                    if (c < 0 || r < 0 || c >= cells || r >= cells) continue;
+
+                    float neighborCost = cost[r * cells + c];
+                    if (neighborCost >= cost[cell]) continue;
+                    float length = k < 4 ? 1f : diagonal;
+                    float drop = (cost[cell] - neighborCost) / (length * length);
+                    gx += NEIGHBOR_COL[k] * drop;
+                    gz += NEIGHBOR_ROW[k] * drop;
+                    if (neighborCost < best) {
+                        best = neighborCost;
+                        bestK = k;
+                    }
+                }
+
+                float length = FastMath.sqrt(gx * gx + gz * gz);
+                if (length >= 1e-4f && !descends(col, row, gx / length, gz / length)) {
+                    length = 0f;
+                }
+                if (length < 1e-4f && bestK >= 0) {
+                    gx = NEIGHBOR_COL[bestK];
+                    gz = NEIGHBOR_ROW[bestK];
+                    length = FastMath.sqrt(gx * gx + gz * gz);
+                }
+                dirX[cell] = length > 0f ? gx / length : 0f;
+                dirZ[cell] = length > 0f ? gz / length : 0f;
+            }
+        }
+    }
+
+    /** Si la celda vecina en la direccion (x, z) redondeada es mas barata que (col, row). */
+    private boolean descends(int col, int row, float x, float z) {
+        int c = col + Math.round(x);
+        int r = row + Math.round(z);
+        if (c < 0 || r < 0 || c >= cells || r >= cells) return false;
+        return cost[r * cells + c] < cost[row * cells + col];
+    }
+
+    // Monticulo binario indexado por celda, para poder bajar el coste de una celda ya encolada
+
+    private void push(int cell) {
+        heap[heapSize] = cell;
+        heapIndex[cell] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int index) {
+        int cell = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (cost[heap[parent]] <= cost[cell]) break;
+            heap[index] = heap[parent];
+            heapIndex[heap[index]] = index;
+            index = parent;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+
+    private void siftDown(int index) {
+        int cell = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && cost[heap[child + 1]] < cost[heap[child]]) child++;
+            if (cost[heap[child]] >= cost[cell]) break;
+            heap[index] = heap[child];
+            heapIndex[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+}
@@ -0,0 +1,172 @@
+package mygame;
+
+import com.jme3.app.Application;
+import com.jme3.app.SimpleApplication;
+import com.jme3.app.state.BaseAppState;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.font.BitmapFont;
+import com.jme3.font.BitmapText;
+import com.jme3.math.ColorRGBA;
+import com.jme3.scene.Node;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Tiempos por etapa del frame en buffers circulares preasignados, con una
+ * capa en el guiNode (F3) que muestra media y p99 de las ultimas
+ * {@link #SAMPLE_CAPACITY} muestras de cada etapa. Solo mide mientras esta
+ * activo: desactivado, {@link #start()} y {@link #lap} no llaman a nanoTime.
+ *
+ * Uso en simpleUpdate:
+ *
+ * <pre>
+ * long t = profiler.start();
+ * checkCollisions();
+ * t = profiler.lap(FrameProfiler.COLLISIONS, t);
+ * </pre>
+ *
+ * El paso fisico se mide con {@link #physicsTimer()}; en PARALLEL esas
+ * muestras se escriben desde el hilo de fisica, pero cada etapa solo tiene un
+ * hilo escritor.
+ */
+class FrameProfiler extends BaseAppState {
+
+    static final int SCRIPT = 0;
+    static final int COLLISIONS = 1;
+    static final int BULLETS = 2;
+    static final int FIRE = 3;
+    static final int SPAWN = 4;
+    static final int ENEMIES = 5;
+    static final int HEALTH_BARS = 6;
+    static final int HUD = 7;
+    static final int FRAME = 8;
+    static final int PHYSICS = 9;
+
+    private static final String[] STAGE_NAMES = {
+        "script", "colisiones", "balas", "disparo", "spawn", "enemigos", "barras", "hud", "frame", "fisica"
+    };
+
+    static final int SAMPLE_CAPACITY = 256;
+
+    /** Segundos entre refrescos del texto de la capa. */
+    private static final float OVERLAY_REFRESH = 0.5f;
+
+    private final long[][] samples = new long[STAGE_NAMES.length][SAMPLE_CAPACITY];
+    private final int[] counts = new int[STAGE_NAMES.length];
+    private final long[] sorted = new long[SAMPLE_CAPACITY];
+
+    private volatile boolean recording = false;
+    private long physicsStart;
+
+    private Node guiNode;
+    private BitmapText overlay;
+    private final StringBuilder text = new StringBuilder(512);
+    private float sinceRefresh = 0f;
+
+    /** Inicio de una medicion, o 0 si el profiler esta desactivado. */
+    long start() {
+        return recording ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Registra el tiempo desde {@code start} en la etapa y devuelve el
+     * instante actual para encadenar la siguiente.
+     */
+    long lap(int stage, long start) {
+        if (!recording) return 0;
+        long now = System.nanoTime();
+        record(stage, now - start);
+        return now;
+    }
+
+    void record(int stage, long nanos) {
+        samples[stage][counts[stage] % SAMPLE_CAPACITY] = nanos;
+        counts[stage]++;
+    }
+
+    /** Listener que mide cada subpaso fisico en la etapa PHYSICS. */
+    PhysicsTickListener physicsTimer() {
+        return new PhysicsTickListener() {
+            @Override
+            public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+                physicsStart = recording ? System.nanoTime() : 0;
+            }
+
+            @Override
+            public void physicsTick(PhysicsSpace space, float timeStep) {
+                if (recording && physicsStart != 0) {
+                    record(PHYSICS, System.nanoTime() - physicsStart);
+                }
+            }
+        };
+    }
+
+    /** Media en nanosegundos de las muestras guardadas de la etapa. */
+    long averageNanos(int stage) {
+        int count = Math.min(counts[stage], SAMPLE_CAPACITY);
+        if (count == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += samples[stage][i];
+        }
+        return sum / count;
+    }
+
+    /** Percentil (0-100) en nanosegundos de las muestras guardadas de la etapa. */
+    long percentileNanos(int stage, double percentile) {
+        int count = Math.min(counts[stage], SAMPLE_CAPACITY);
+        if (count == 0) return 0;
+        System.arraycopy(samples[stage], 0, sorted, 0, count);
+        Arrays.sort(sorted, 0, count);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))];
+    }
+
+    /** Tabla de media y p99 por etapa, en milisegundos. */
+    String summary() {
+        text.setLength(0);
+        for (int stage = 0; stage < STAGE_NAMES.length; stage++) {
+            text.append(String.format(Locale.ROOT, "%-11s %7.3f %7.3f%n", STAGE_NAMES[stage],
+                    averageNanos(stage) / 1e6, percentileNanos(stage, 99) / 1e6));
+        }
+        return text.toString();
+    }
+
+    @Override
+    protected void initialize(Application app) {
+        guiNode = ((SimpleApplication) app).getGuiNode();
+        BitmapFont font = app.getAssetManager().loadFont("Interface/Fonts/Default.fnt");
+        overlay = new BitmapText(font, false);
+        overlay.setSize(font.getCharSet().getRenderedSize());
+        overlay.setColor(ColorRGBA.White);
+        overlay.setLocalTranslation(app.getCamera().getWidth() - 300, app.getCamera().getHeight() - 15, 0);
+    }
+
+    @Override
+    public void update(float tpf) {
+        sinceRefresh += tpf;
+        if (sinceRefresh >= OVERLAY_REFRESH) {
+            sinceRefresh = 0f;
+            overlay.setText("etapa        media     p99 (ms)\n" + summary());
+        }
+    }
+
+    @Override
+    protected void onEnable() {
+        Arrays.fill(counts, 0);
+        recording = true;
+        guiNode.attachChild(overlay);
+    }
+
+    @Override
+    protected void onDisable() {
+        recording = false;
+        guiNode.detachChild(overlay);
+    }
+
+    @Override
+    protected void cleanup(Application app) {
+    }
+}
@@ -0,0 +1,183 @@
+package mygame;
+
+/**
+ * Parametros de ajuste del juego. Los valores por defecto son los del juego
+ * normal; el resto de modos (pruebas de carga, benchmarks) los sobreescriben.
+ */
+public class GameConfig {
+
+    /** Balas que se precargan al iniciar y que el pool conserva para reutilizar. */
+    public int bulletPoolCapacity = 64;
+
+    /** Balas en vuelo como maximo; al disparar con todas ocupadas se retira la mas antigua. */
+    public int maxLiveBullets = 64;
+
+    /** Segundos que vuela una bala antes de retirarse si no impacta. */
+    public float bulletLifetime = 5f;
+
+    /** Distancia que recorre una bala antes de retirarse si no impacta. */
+    public float bulletMaxDistance = 150f;
+
+    /** Segundos entre disparos mientras se mantiene pulsado el disparo. */
+    public float shootCooldown = 0.15f;
+
+    /** Nivel con el que empieza (y se reinicia) la partida. */
+    public int startLevel = 1;
+
+    /** Enemigos por oleada; 0 usa la progresion normal 3 + 3*(nivel-1). */
+    public int enemiesPerWave = 0;
+
+    /** Modo de disparo inicial; se alterna en partida con TAB. */
+    public WeaponMode weaponMode = WeaponMode.PROJECTILE;
+
+    /** Alcance del rayo en modo HITSCAN. */
+    public float hitscanRange = 250f;
+
+    /**
+     * Colision del terreno como HeightfieldCollisionShape construido desde el
+     * mapa de alturas; con false se usa la malla de triangulos del TerrainQuad.
+     */
+    public boolean heightfieldTerrain = true;
+
+    /** Clona los vaqueros de una plantilla cacheada en vez de cargar el j3o por enemigo. */
+    public boolean cowboyTemplateCache = true;
+
+    /** Agrupa cada oleada en un InstancedNode (solo con cowboyTemplateCache). */
+    public boolean instancedCowboys = false;
+
+    /**
+     * Milisegundos por frame dedicados a crear la oleada; 0 la crea entera en
+     * un frame.
+     */
+    public float spawnBudgetMillis = 2f;
+
+    /** Enemigos maximos creados por frame; 0 sin limite (solo cuenta el tiempo). */
+    public int spawnMaxPerFrame = 0;
+
+    /**
+     * Guarda los vaqueros retirados (muertos o quitados al reiniciar) para la
+     * siguiente oleada en vez de construirlos de nuevo.
+     */
+    public boolean enemyPool = true;
+
+    /** Reparte el calculo de la IA entre nucleos cuando hay muchos enemigos. */
+    public boolean parallelAi = true;
+
+    /** Numero minimo de enemigos para usar la IA en paralelo. */
+    public int parallelAiThreshold = 512;
+
+    /** Enemigos por lote fork-join en la IA paralela. */
+    public int aiBatchSize = 256;
+
+    /**
+     * Movimiento de los vaqueros. KINEMATIC los saca de la integracion y de
+     * los contactos del solver, pero ya no se empujan entre ellos ni contra
+     * la torre.
+     */
+    public LocomotionMode locomotion = LocomotionMode.DYNAMIC;
+
+    /**
+     * Niveles de detalle de la IA por distancia a la torre: los enemigos
+     * lejanos recalculan su rumbo con menos frecuencia.
+     */
+    public boolean aiLod = true;
+
+    /** Por debajo de esta distancia a la torre la IA se recalcula cada frame. */
+    public float lodNearDistance = 40f;
+
+    /** A partir de esta distancia el enemigo esta en el nivel lejano. */
+    public float lodFarDistance = 80f;
+
+    /** Frames entre recalculos de la IA en el nivel intermedio. */
+    public int lodMidInterval = 2;
+
+    /** Frames entre recalculos de la IA en el nivel lejano. */
+    public int lodFarInterval = 6;
+
+    /**
+     * Los enemigos lejanos pasan a cuerpos cinematicos que avanzan por su
+     * rumbo pegados al terreno, fuera de la integracion del solver.
+     */
+    public boolean lodFarKinematic = true;
+
+    /**
+     * Los enemigos siguen un campo de flujo que rodea las pendientes en vez de
+     * ir en linea recta a la torre.
+     */
+    public boolean flowField = true;
+
+    /** Lado de cada celda del campo de flujo (el terreno tiene un vertice cada 2 unidades). */
+    public float flowFieldCellSize = 2f;
+
+    /** Coste extra por unidad de pendiente al calcular el campo; 0 lo deja en linea recta. */
+    public float flowFieldSlopeWeight = 8f;
+
+    /** Los enemigos se apartan de los vecinos cercanos en vez de amontonarse. */
+    public boolean separation = true;
+
+    /** Distancia a la que empiezan a apartarse (la caja de colision mide 2). */
+    public float separationRadius = 3f;
+
+    /** Fuerza del empuje de separacion, relativa a la velocidad de los enemigos. */
+    public float separationStrength = 1.5f;
+
+    /**
+     * Ejecuta el paso fisico en su propio hilo (BulletAppState PARALLEL),
+     * solapado con el render del frame.
+     */
+    public boolean parallelPhysics = false;
+
+    /** Muestra al arrancar la capa de tiempos por etapa (se alterna con F3). */
+    public boolean profilerOverlay = false;
+
+    /** Pasos fisicos por segundo (paso fijo). */
+    public int physicsTickRate = 60;
+
+    /** Maximo de subpasos fisicos por frame cuando el frame va lento. */
+    public int physicsMaxSubSteps = 4;
+
+    /**
+     * Partida reproducible: todo el azar sale de {@link #seed}, cada frame
+     * avanza exactamente 1/physicsTickRate segundos, la fisica va en el hilo
+     * de render y las oleadas se crean un numero fijo de enemigos por frame
+     * en vez de por tiempo.
+     */
+    public boolean deterministic = false;
+
+    /** Semilla de la partida en modo determinista. */
+    public long seed = 1L;
+
+    /** Fichero donde grabar la entrada de cada frame (requiere deterministic); null no graba. */
+    public String recordInput = null;
+
+    /** Un jugador, servidor de una partida en red o cliente de uno. */
+    public NetMode netMode = NetMode.OFFLINE;
+
+    /** Servidor al que se conecta el cliente. */
+    public String netHost = "localhost";
+
+    /** Puerto TCP y UDP del servidor. */
+    public int netPort = 6143;
+
+    /** Snapshots por segundo que envia el servidor a cada cliente. */
+    public int netTickRate = 20;
+
+    /** Solo se envian a cada cliente los enemigos a menos de esta distancia de su camara (en XZ). */
+    public float netInterestRadius = 100f;
+
+    /** Enemigos maximos por snapshot; si hay mas se envian los mas cercanos al cliente. */
+    public int netMaxEnemies = 256;
+
+    /** Retraso con que el cliente pinta los snapshots, para tener siempre dos entre los que interpolar. */
+    public float netInterpolationDelay = 0.1f;
+
+    /** Distancia maxima entre el origen de un disparo remoto y la ultima posicion que ha enviado el cliente. */
+    public float netFireOriginRadius = 4f;
+
+    /**
+     * Disparos seguidos que se aceptan a un cliente que llevaba un rato sin
+     * disparar; a la larga el ritmo es el de shootCooldown. Da margen a que la
+     * red entregue juntos, y con algo de adelanto, disparos hechos a su ritmo.
+     */
+    public int netFireBurst = 3;
+}
@@ -0,0 +1,91 @@
+package mygame;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Eventos JFR del juego. Si no hay ninguna grabacion activa, begin/commit
+ * apenas cuestan nada; para grabarlos sin ventana:
+ *
+ * <pre>
+ * java -XX:StartFlightRecording=filename=partida.jfr,settings=profile -cp ... mygame.HeadlessRunner ...
+ * jfr print --categories TowerShooter partida.jfr
+ * </pre>
+ */
+final class GameEvents {
+
+    private GameEvents() {
+    }
+
+    @Name("mygame.Frame")
+    @Label("Frame")
+    @Category("TowerShooter")
+    @Description("Un simpleUpdate completo")
+    static final class Frame extends Event {
+        @Label("Nivel")
+        int level;
+
+        @Label("Enemigos vivos")
+        int enemies;
+
+        @Label("Balas activas")
+        int bullets;
+    }
+
+    @Name("mygame.Spawn")
+    @Label("Spawn")
+    @Category("TowerShooter")
+    @Description("Creacion de un enemigo de la oleada")
+    static final class Spawn extends Event {
+        @Label("Nivel")
+        int level;
+
+        @Label("Indice en la oleada")
+        int index;
+
+        @Label("Preparado en segundo plano")
+        boolean prepared;
+
+        @Label("Reutilizado del pool")
+        boolean pooled;
+    }
+
+    @Name("mygame.Hit")
+    @Label("Hit")
+    @Category("TowerShooter")
+    @Description("Impacto en un enemigo")
+    static final class Hit extends Event {
+        @Label("Arma")
+        String weapon;
+
+        @Label("Vida restante")
+        int health;
+    }
+
+    @Name("mygame.Kill")
+    @Label("Kill")
+    @Category("TowerShooter")
+    @Description("Enemigo eliminado por el jugador")
+    static final class Kill extends Event {
+        @Label("Nivel")
+        int level;
+
+        @Label("Puntuacion")
+        int score;
+    }
+
+    @Name("mygame.BulletExpiry")
+    @Label("Bullet Expiry")
+    @Category("TowerShooter")
+    @Description("Bala retirada sin haber impactado")
+    static final class BulletExpiry extends Event {
+        @Label("Motivo")
+        String reason;
+
+        @Label("Edad (s)")
+        float age;
+    }
+}
@@ -0,0 +1,10 @@
+package mygame;
+
+/**
+ * Control programado de la partida, en lugar del teclado y el raton. Se
+ * llama al principio de cada simpleUpdate, en el hilo de render.
+ */
+interface GameScript {
+
+    void update(Main game, float tpf);
+}
@@ -0,0 +1,100 @@
+package mygame;
+
+import java.util.Arrays;
+
+/**
+ * Contadores de una partida y tiempos de simpleUpdate y del frame completo,
+ * para las pruebas de carga sin ventana. Los tiempos se guardan en buffers
+ * circulares, asi que los percentiles salen de las ultimas
+ * {@link #SAMPLE_CAPACITY} muestras.
+ */
+class GameStats {
+
+    static final int SAMPLE_CAPACITY = 1 << 18;
+
+    private final long[] updateNanos = new long[SAMPLE_CAPACITY];
+    private long frames = 0;
+    private final long[] frameNanos = new long[SAMPLE_CAPACITY];
+    private long frameSamples = 0;
+
+    int kills = 0;
+    int livesLost = 0;
+    int shotsFired = 0;
+    int gamesOver = 0;
+
+    /** Cambios de nivel y reinicios tras game over medidos con {@link #recordTransition}. */
+    private final int[] transitions = new int[2];
+    private final long[] transitionNanos = new long[2];
+    private final long[] worstTransitionNanos = new long[2];
+
+    /** Resumen de la linea de tiempo de muertes (frame y puntuacion de cada una). */
+    private long killTimelineHash = 1;
+
+    void recordUpdate(long nanos) {
+        updateNanos[(int) (frames % SAMPLE_CAPACITY)] = nanos;
+        frames++;
+    }
+
+    /** Anota lo que ha durado un frame entero: estados, paso fisico y render incluidos. */
+    void recordFrame(long nanos) {
+        frameNanos[(int) (frameSamples % SAMPLE_CAPACITY)] = nanos;
+        frameSamples++;
+    }
+
+    /** Anota una muerte en la linea de tiempo; dos repeticiones iguales dan el mismo resumen. */
+    void recordKill(long tick, int score) {
+        killTimelineHash = 31 * (31 * killTimelineHash + tick) + score;
+    }
+
+    /**
+     * Anota lo que ha tardado en verse el primer frame con enemigos de la
+     * nueva oleada, desde que empezo el cambio de nivel o el reinicio.
+     */
+    void recordTransition(boolean afterGameOver, long nanos) {
+        int kind = afterGameOver ? 1 : 0;
+        transitions[kind]++;
+        transitionNanos[kind] += nanos;
+        worstTransitionNanos[kind] = Math.max(worstTransitionNanos[kind], nanos);
+    }
+
+    int getTransitions(boolean afterGameOver) {
+        return transitions[afterGameOver ? 1 : 0];
+    }
+
+    /** Media en nanosegundos, 0 si no hubo ninguna. */
+    long transitionMeanNanos(boolean afterGameOver) {
+        int kind = afterGameOver ? 1 : 0;
+        return transitions[kind] == 0 ? 0 : transitionNanos[kind] / transitions[kind];
+    }
+
+    long transitionWorstNanos(boolean afterGameOver) {
+        return worstTransitionNanos[afterGameOver ? 1 : 0];
+    }
+
+    long getKillTimelineHash() {
+        return killTimelineHash;
+    }
+
+    long getFrames() {
+        return frames;
+    }
+
+    /** Percentil (0-100) del tiempo de simpleUpdate en nanosegundos. */
+    long updateNanosPercentile(double percentile) {
+        return percentile(updateNanos, frames, percentile);
+    }
+
+    /** Percentil (0-100) de la duracion del frame completo en nanosegundos. */
+    long frameNanosPercentile(double percentile) {
+        return percentile(frameNanos, frameSamples, percentile);
+    }
+
+    private static long percentile(long[] samples, long recorded, double percentile) {
+        int count = (int) Math.min(recorded, SAMPLE_CAPACITY);
+        if (count == 0) return 0;
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))];
+    }
+}
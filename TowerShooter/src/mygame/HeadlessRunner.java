@@ -0,0 +1,318 @@
+package mygame;
+
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.system.AppSettings;
+import com.jme3.system.JmeContext;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Ejecuta el juego sin ventana ni GPU con un guion que apunta al enemigo mas
+ * cercano y dispara, y al terminar imprime el rendimiento y el resultado.
+ * Sirve para pruebas de carga con oleadas mucho mayores que las normales:
+ *
+ * <pre>
+ * java -cp ... mygame.HeadlessRunner --level 10 --enemies 500 --fire-rate 20 --duration 60
+ * </pre>
+ *
+ * Opciones: --level, --enemies, --fire-rate (disparos/s), --duration (s),
+ * --weapon (projectile|hitscan), --parallel-physics, --spawn-budget (ms por frame
+ * para crear la oleada, 0 para crearla en un solo frame), --locomotion
+ * (dynamic|kinematic), --profile (anade al informe la media y el p99 de cada
+ * etapa del frame), --soak (la mitad del tiempo dispara al cielo y anota cada
+ * minuto los cuerpos fisicos y las balas vivas).
+ *
+ * Prueba de resistencia de 30 minutos:
+ *
+ * <pre>
+ * java -cp ... mygame.HeadlessRunner --soak --duration 1800 --fire-rate 20
+ * </pre>
+ *
+ * Partidas reproducibles: --deterministic, --seed (implica --deterministic),
+ * --record FICHERO (graba la entrada de cada frame, implica --deterministic) y
+ * --replay FICHERO (repite una grabacion con la configuracion con que se
+ * grabo; --repeat N la repite N veces y falla si el resultado cambia):
+ *
+ * <pre>
+ * java -cp ... mygame.HeadlessRunner --seed 42 --enemies 300 --duration 120 --record lenta.bin
+ * java -cp ... mygame.HeadlessRunner --replay lenta.bin --repeat 3
+ * </pre>
+ *
+ * Partida en red por loopback: --net-clients N arranca el juego como servidor
+ * y conecta N clientes de prueba en la misma JVM ({@link LoopbackBots});
+ * --net-tick-rate, --net-interest y --port ajustan el servidor. El informe
+ * anade el tiempo del tick de red y los bytes por cliente:
+ *
+ * <pre>
+ * java -cp ... mygame.HeadlessRunner --enemies 150 --net-clients 4 --duration 60
+ * </pre>
+ */
+public class HeadlessRunner {
+
+    private final GameConfig config;
+    private final float duration;
+    private final boolean soak;
+    private final int netClients;
+    private CountDownLatch finished;
+    /** Se abre en el primer frame, cuando el servidor ya acepta clientes. */
+    private CountDownLatch ready;
+
+    /** Muestras de la prueba de resistencia: segundo, cuerpos fisicos, balas vivas. */
+    private final List<int[]> soakSamples = new ArrayList<>();
+    private double seconds;
+
+    HeadlessRunner(GameConfig config, float duration, boolean soak, int netClients) {
+        this.config = config;
+        this.duration = duration;
+        this.soak = soak;
+        this.netClients = netClients;
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        GameConfig config = new GameConfig();
+        float duration = 30f;
+        boolean soak = false;
+        String replay = null;
+        int repeat = 1;
+        int netClients = 0;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--level":
+                    config.startLevel = Integer.parseInt(args[++i]);
+                    break;
+                case "--enemies":
+                    config.enemiesPerWave = Integer.parseInt(args[++i]);
+                    break;
+                case "--fire-rate":
+                    config.shootCooldown = 1f / Float.parseFloat(args[++i]);
+                    break;
+                case "--duration":
+                    duration = Float.parseFloat(args[++i]);
+                    break;
+                case "--weapon":
+                    config.weaponMode = WeaponMode.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    break;
+                case "--parallel-physics":
+                    config.parallelPhysics = true;
+                    break;
+                case "--locomotion":
+                    config.locomotion = LocomotionMode.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    break;
+                case "--spawn-budget":
+                    config.spawnBudgetMillis = Float.parseFloat(args[++i]);
+                    break;
+                case "--profile":
+                    config.profilerOverlay = true;
+                    break;
+                case "--soak":
+                    soak = true;
+                    break;
+                case "--deterministic":
+                    config.deterministic = true;
+                    break;
+                case "--seed":
+                    config.seed = Long.parseLong(args[++i]);
+                    config.deterministic = true;
+                    break;
+                case "--record":
+                    config.recordInput = args[++i];
+                    config.deterministic = true;
+                    break;
+                case "--replay":
+                    replay = args[++i];
+                    break;
+                case "--repeat":
+                    repeat = Integer.parseInt(args[++i]);
+                    break;
+                case "--net-clients":
+                    netClients = Integer.parseInt(args[++i]);
+                    config.netMode = NetMode.SERVER;
+                    break;
+                case "--net-tick-rate":
+                    config.netTickRate = Integer.parseInt(args[++i]);
+                    break;
+                case "--net-interest":
+                    config.netInterestRadius = Float.parseFloat(args[++i]);
+                    break;
+                case "--port":
+                    config.netPort = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opcion desconocida: " + arg);
+            }
+        }
+
+        HeadlessRunner runner = new HeadlessRunner(config, duration, soak, netClients);
+        if (replay != null) {
+            runner.replay(Paths.get(replay), repeat);
+        } else {
+            runner.report(runner.run(runner.new AimAndShoot()));
+        }
+    }
+
+    /**
+     * Repite la grabacion {@code repeat} veces; todas tienen que acabar con la
+     * misma linea de tiempo de muertes y el mismo nivel.
+     */
+    void replay(Path path, int repeat) throws InterruptedException, IOException {
+        long expectedTimeline = 0;
+        int expectedKills = 0;
+        int expectedLevel = 0;
+        for (int run = 1; run <= repeat; run++) {
+            InputReplay script = InputReplay.open(path);
+            script.configure(config);
+            script.setOnFinished(() -> finished.countDown());
+            System.out.println("Repeticion " + run + " de " + repeat + ": " + script.getTickCount() + " frames");
+            Main game = run(script);
+            report(game);
+
+            System.out.println(String.format(Locale.ROOT,
+                    "Al final de la grabacion: %d eliminados, nivel %d, linea de tiempo %016x",
+                    script.getFinalKills(), script.getFinalLevel(), script.getFinalKillTimeline()));
+            if (run == 1) {
+                expectedTimeline = script.getFinalKillTimeline();
+                expectedKills = script.getFinalKills();
+                expectedLevel = script.getFinalLevel();
+            } else if (script.getFinalKillTimeline() != expectedTimeline || script.getFinalKills() != expectedKills
+                    || script.getFinalLevel() != expectedLevel) {
+                throw new IllegalStateException("La repeticion " + run + " no coincide con la primera");
+            }
+        }
+        if (repeat > 1) {
+            System.out.println("Las " + repeat + " repeticiones coinciden");
+        }
+    }
+
+    private Main run(GameScript script) throws InterruptedException, IOException {
+        finished = new CountDownLatch(1);
+        ready = new CountDownLatch(1);
+        Main game = new Main(config);
+        AppSettings settings = new AppSettings(true);
+        settings.setResolution(1280, 720);
+        settings.setAudioRenderer(null);
+        game.setSettings(settings);
+        game.setShowSettings(false);
+        game.setPauseOnLostFocus(false);
+        game.setScript(script);
+
+        long start = System.nanoTime();
+        game.start(JmeContext.Type.Headless);
+        LoopbackBots bots = null;
+        if (netClients > 0) {
+            ready.await();
+            bots = new LoopbackBots(config, netClients);
+            bots.start(game.getCamera().getLocation().clone());
+        }
+        finished.await();
+        if (bots != null) {
+            bots.stop();
+        }
+        game.stop(true);
+        seconds = (System.nanoTime() - start) / 1e9;
+        if (bots != null) {
+            System.out.println(bots.report(seconds));
+        }
+        return game;
+    }
+
+    private void report(Main game) {
+        System.out.println(report(game, seconds));
+        if (config.profilerOverlay) {
+            System.out.println("etapa        media     p99 (ms)");
+            System.out.print(game.getProfiler().summary());
+        }
+        if (soak) {
+            System.out.println(soakReport());
+        }
+        if (game.getNetServer() != null) {
+            System.out.print(game.getNetServer().summary(seconds));
+        }
+    }
+
+    private String report(Main game, double seconds) {
+        GameStats stats = game.getStats();
+        return String.format(Locale.ROOT,
+                "Frames: %d (%.1f fps)%n"
+                + "simpleUpdate p50: %.3f ms, p99: %.3f ms, peor: %.3f ms%n"
+                + "Frame completo p50: %.3f ms, p99: %.3f ms, peor: %.3f ms%n"
+                + "Disparos: %d, enemigos eliminados: %d, vidas perdidas: %d, game overs: %d, nivel final: %d%n"
+                + "Primer frame tras subir de nivel: %d veces, media %.3f ms, peor %.3f ms%n"
+                + "Primer frame tras game over: %d veces, media %.3f ms, peor %.3f ms%n"
+                + "Linea de tiempo de muertes: %016x",
+                stats.getFrames(), stats.getFrames() / seconds,
+                stats.updateNanosPercentile(50) / 1e6, stats.updateNanosPercentile(99) / 1e6,
+                stats.updateNanosPercentile(100) / 1e6,
+                stats.frameNanosPercentile(50) / 1e6, stats.frameNanosPercentile(99) / 1e6,
+                stats.frameNanosPercentile(100) / 1e6,
+                stats.shotsFired, stats.kills, stats.livesLost, stats.gamesOver, game.getCurrentLevel(),
+                stats.getTransitions(false), stats.transitionMeanNanos(false) / 1e6, stats.transitionWorstNanos(false) / 1e6,
+                stats.getTransitions(true), stats.transitionMeanNanos(true) / 1e6, stats.transitionWorstNanos(true) / 1e6,
+                stats.getKillTimelineHash());
+    }
+
+    private String soakReport() {
+        StringBuilder report = new StringBuilder("segundo  cuerpos  balas\n");
+        int maxBodies = 0;
+        int maxBullets = 0;
+        for (int[] sample : soakSamples) {
+            report.append(String.format(Locale.ROOT, "%7d  %7d  %5d%n", sample[0], sample[1], sample[2]));
+            maxBodies = Math.max(maxBodies, sample[1]);
+            maxBullets = Math.max(maxBullets, sample[2]);
+        }
+        report.append(String.format(Locale.ROOT, "Maximo: %d cuerpos, %d balas (limite %d)",
+                maxBodies, maxBullets, config.maxLiveBullets));
+        return report.toString();
+    }
+
+    /**
+     * Apunta la camara al enemigo mas cercano y mantiene el disparo pulsado.
+     * Con --soak alterna cada segundo entre el enemigo y el cielo, para que
+     * haya balas que no impactan nunca.
+     */
+    private final class AimAndShoot implements GameScript {
+
+        private static final float SOAK_SAMPLE_INTERVAL = 60f;
+
+        private final Vector3f target = new Vector3f();
+        private float elapsed = 0f;
+        private float nextSample = 0f;
+
+        @Override
+        public void update(Main game, float tpf) {
+            ready.countDown();
+            elapsed += tpf;
+            if (elapsed >= duration) {
+                game.setShooting(false);
+                finished.countDown();
+                return;
+            }
+
+            if (soak && elapsed >= nextSample) {
+                soakSamples.add(new int[]{(int) elapsed, game.getPhysicsBodyCount(), game.getLiveBulletCount()});
+                nextSample += SOAK_SAMPLE_INTERVAL;
+            }
+
+            Camera cam = game.getCamera();
+            boolean hasTarget = game.findNearestEnemy(cam.getLocation(), target);
+            if (soak && (int) elapsed % 2 == 1) {
+                target.set(cam.getLocation()).addLocal(0, 10, 20);
+                cam.lookAt(target, Vector3f.UNIT_Y);
+                game.setShooting(true);
+                return;
+            }
+            if (hasTarget) {
+                cam.lookAt(target, Vector3f.UNIT_Y);
+            }
+            game.setShooting(hasTarget);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package mygame;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.util.BufferUtils;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Todas las barras de vida en una sola malla dinamica. Cada barra son dos
+ * quads (fondo y relleno) que comparten la posicion del enemigo; el vertex
+ * shader (MatDefs/HealthBar.j3md) los orienta hacia la camara, asi que en CPU
+ * no hay lookAt por barra. Los buffers se modifican en su sitio y solo cuando
+ * cambia la vida o la posicion de alguna barra.
+ *
+ * Los huecos siguen los ids del {@link EnemyRegistry}: se anaden en el mismo
+ * orden y {@link #remove(int)} mueve la ultima barra al hueco igual que el registro.
+ */
+class HealthBarBatch {
+
+    private static final int VERTS_PER_BAR = 8;
+    private static final int INDICES_PER_BAR = 12;
+
+    private static final float WIDTH = 2f;
+    private static final float HEIGHT = 0.2f;
+    private static final float OFFSET_Y = 2f;
+    /** Desplazamiento del relleno hacia la camara para que no pelee con el fondo. */
+    private static final float FILL_BIAS = 0.01f;
+
+    private static final ColorRGBA BACKGROUND_COLOR = ColorRGBA.DarkGray;
+    private static final ColorRGBA FILL_COLOR = ColorRGBA.Red;
+
+    private final Mesh mesh = new Mesh();
+    private final Geometry geometry;
+
+    private FloatBuffer positions;
+    private FloatBuffer corners;
+    private FloatBuffer colors;
+    private IntBuffer indices;
+
+    private float[] barX, barY, barZ, fill;
+    private int size = 0;
+    private int capacity = 0;
+
+    private boolean positionsDirty, cornersDirty, countDirty;
+
+    HealthBarBatch(AssetManager assetManager) {
+        allocate(64);
+        geometry = new Geometry("HealthBars", mesh);
+        geometry.setMaterial(new Material(assetManager, "MatDefs/HealthBar.j3md"));
+        // Los vertices se desplazan en el shader, el bound de la malla no sirve
+        geometry.setCullHint(Spatial.CullHint.Never);
+    }
+
+    Geometry getGeometry() {
+        return geometry;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Anade una barra llena en la posicion del enemigo y devuelve su hueco. */
+    int add(float x, float y, float z) {
+        if (size == capacity) {
+            allocate(capacity * 2);
+        }
+        int slot = size++;
+        barX[slot] = x;
+        barY[slot] = y;
+        barZ[slot] = z;
+        fill[slot] = 1f;
+        writePosition(slot);
+        writeFill(slot);
+        countDirty = true;
+        return slot;
+    }
+
+    /** Quita la barra moviendo la ultima a su hueco (swap-remove). */
+    void remove(int slot) {
+        int last = --size;
+        if (slot != last) {
+            barX[slot] = barX[last];
+            barY[slot] = barY[last];
+            barZ[slot] = barZ[last];
+            fill[slot] = fill[last];
+            writePosition(slot);
+            writeFill(slot);
+        }
+        countDirty = true;
+    }
+
+    void clear() {
+        size = 0;
+        countDirty = true;
+    }
+
+    void setPosition(int slot, float x, float y, float z) {
+        if (barX[slot] == x && barY[slot] == y && barZ[slot] == z) return;
+        barX[slot] = x;
+        barY[slot] = y;
+        barZ[slot] = z;
+        writePosition(slot);
+    }
+
+    /** @param fraction vida restante entre 0 y 1 */
+    void setHealth(int slot, float fraction) {
+        fraction = Math.max(0f, Math.min(1f, fraction));
+        if (fill[slot] == fraction) return;
+        fill[slot] = fraction;
+        writeFill(slot);
+    }
+
+    /** Marca para subir a la GPU solo los buffers que han cambiado este frame. */
+    void flush() {
+        if (countDirty) {
+            indices.limit(size * INDICES_PER_BAR);
+            mesh.setBuffer(Type.Index, 3, indices);
+            countDirty = false;
+        }
+        if (positionsDirty) {
+            mesh.getBuffer(Type.Position).setUpdateNeeded();
+            positionsDirty = false;
+        }
+        if (cornersDirty) {
+            mesh.getBuffer(Type.TexCoord).setUpdateNeeded();
+            cornersDirty = false;
+        }
+    }
+
+    private void writePosition(int slot) {
+        int base = slot * VERTS_PER_BAR * 3;
+        float y = barY[slot] + OFFSET_Y;
+        for (int v = 0; v < VERTS_PER_BAR; v++) {
+            positions.put(base + v * 3, barX[slot]);
+            positions.put(base + v * 3 + 1, y);
+            positions.put(base + v * 3 + 2, barZ[slot]);
+        }
+        positionsDirty = true;
+    }
+
+    /** Esquinas del fondo y del relleno en unidades de la barra: (x, y, desplazamiento hacia la camara). */
+    private void writeFill(int slot) {
+        int base = slot * VERTS_PER_BAR * 3;
+        float left = -WIDTH / 2, right = WIDTH / 2;
+        float bottom = -HEIGHT / 2, top = HEIGHT / 2;
+        float fillRight = left + WIDTH * fill[slot];
+
+        putCorner(base, 0, left, bottom, 0);
+        putCorner(base, 1, right, bottom, 0);
+        putCorner(base, 2, right, top, 0);
+        putCorner(base, 3, left, top, 0);
+
+        putCorner(base, 4, left, bottom, FILL_BIAS);
+        putCorner(base, 5, fillRight, bottom, FILL_BIAS);
+        putCorner(base, 6, fillRight, top, FILL_BIAS);
+        putCorner(base, 7, left, top, FILL_BIAS);
+        cornersDirty = true;
+    }
+
+    private void putCorner(int base, int vertex, float x, float y, float bias) {
+        int i = base + vertex * 3;
+        corners.put(i, x);
+        corners.put(i + 1, y);
+        corners.put(i + 2, bias);
+    }
+
+    /** Crea buffers para newCapacity barras y copia las que ya hay; solo al crecer. */
+    private void allocate(int newCapacity) {
+        float[] oldX = barX, oldY = barY, oldZ = barZ, oldFill = fill;
+        barX = new float[newCapacity];
+        barY = new float[newCapacity];
+        barZ = new float[newCapacity];
+        fill = new float[newCapacity];
+        if (oldX != null) {
+            System.arraycopy(oldX, 0, barX, 0, size);
+            System.arraycopy(oldY, 0, barY, 0, size);
+            System.arraycopy(oldZ, 0, barZ, 0, size);
+            System.arraycopy(oldFill, 0, fill, 0, size);
+        }
+        capacity = newCapacity;
+
+        int vertexCount = newCapacity * VERTS_PER_BAR;
+        positions = BufferUtils.createFloatBuffer(vertexCount * 3);
+        corners = BufferUtils.createFloatBuffer(vertexCount * 3);
+        colors = BufferUtils.createFloatBuffer(vertexCount * 4);
+        indices = BufferUtils.createIntBuffer(newCapacity * INDICES_PER_BAR);
+
+        for (int bar = 0; bar < newCapacity; bar++) {
+            int v = bar * VERTS_PER_BAR;
+            for (int k = 0; k < VERTS_PER_BAR; k++) {
+                ColorRGBA color = k < 4 ? BACKGROUND_COLOR : FILL_COLOR;
+                colors.put(color.r).put(color.g).put(color.b).put(color.a);
+            }
+            for (int quad = v; quad < v + VERTS_PER_BAR; quad += 4) {
+                indices.put(quad).put(quad + 1).put(quad + 2);
+                indices.put(quad).put(quad + 2).put(quad + 3);
+            }
+        }
+        colors.flip();
+        indices.flip();
+
+        for (int slot = 0; slot < size; slot++) {
+            writePosition(slot);
+            writeFill(slot);
+        }
+
+        mesh.setBuffer(Type.Position, 3, positions);
+        mesh.setBuffer(Type.TexCoord, 3, corners);
+        mesh.setBuffer(Type.Color, 4, colors);
+        mesh.setBuffer(Type.Index, 3, indices);
+        mesh.setDynamic();
+        countDirty = true;
+    }
+}
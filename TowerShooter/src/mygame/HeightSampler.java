@@ -0,0 +1,76 @@
+package mygame;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+
+import java.util.Random;
+
+/**
+ * Copia plana del mapa de alturas del terreno para consultar la altura del
+ * suelo sin recorrer el arbol del TerrainQuad ni crear vectores. Usa la misma
+ * convencion que el TerrainQuad: centrado en su traslacion, fila z y columna x,
+ * y escalado por su escala local.
+ */
+class HeightSampler {
+
+    private final float[] heights;
+    private final int size;
+    private final float half;
+    private final float scaleX, scaleY, scaleZ;
+    private final float originX, originY, originZ;
+
+    /**
+     * @param heights alturas size x size tal como las devuelve HeightMap.getHeightMap()
+     * @param scale escala local del terreno
+     * @param translation traslacion del terreno
+     */
+    HeightSampler(float[] heights, int size, Vector3f scale, Vector3f translation) {
+        if (heights.length != size * size) {
+            throw new IllegalArgumentException("Se esperaban " + size * size + " alturas y hay " + heights.length);
+        }
+        this.heights = heights;
+        this.size = size;
+        this.half = (size - 1) / 2f;
+        this.scaleX = scale.x;
+        this.scaleY = scale.y;
+        this.scaleZ = scale.z;
+        this.originX = translation.x;
+        this.originY = translation.y;
+        this.originZ = translation.z;
+    }
+
+    /** Altura del suelo en (x, z) en coordenadas de mundo, interpolada entre los cuatro vertices de la celda. */
+    float heightAt(float x, float z) {
+        float gx = clamp((x - originX) / scaleX + half);
+        float gz = clamp((z - originZ) / scaleZ + half);
+
+        int col = Math.min((int) gx, size - 2);
+        int row = Math.min((int) gz, size - 2);
+        float fx = gx - col;
+        float fz = gz - row;
+
+        int i = row * size + col;
+        float top = heights[i] + (heights[i + 1] - heights[i]) * fx;
+        float bottom = heights[i + size] + (heights[i + size + 1] - heights[i + size]) * fx;
+        return originY + (top + (bottom - top) * fz) * scaleY;
+    }
+
+    /**
+     * Punto aleatorio uniforme en el anillo [minDistance, maxDistance] alrededor
+     * del origen, a heightOffset sobre el suelo. Se muestrea en polares, asi
+     * que no hay candidatos descartados.
+     */
+    Vector3f randomPointInRing(Random rand, float minDistance, float maxDistance, float heightOffset, Vector3f store) {
+        float angle = rand.nextFloat() * FastMath.TWO_PI;
+        // Raiz del area para que la densidad sea uniforme en el anillo
+        float min2 = minDistance * minDistance;
+        float radius = FastMath.sqrt(min2 + rand.nextFloat() * (maxDistance * maxDistance - min2));
+        float x = radius * FastMath.cos(angle);
+        float z = radius * FastMath.sin(angle);
+        return store.set(x, heightAt(x, z) + heightOffset, z);
+    }
+
+    private float clamp(float g) {
+        return g < 0 ? 0 : (g > size - 1 ? size - 1 : g);
+    }
+}
@@ -0,0 +1,61 @@
+package mygame;
+
+import com.jme3.bullet.collision.PhysicsCollisionEvent;
+import com.jme3.bullet.collision.PhysicsCollisionListener;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.scene.Spatial;
+
+import java.util.Arrays;
+
+/**
+ * Recoge los contactos bala-vaquero que reporta el motor fisico para
+ * procesarlos una vez por frame. Un mismo impacto puede llegar varias veces
+ * (un evento por punto de contacto y paso); quien vacia la cola debe ignorar
+ * las balas que ya se hayan retirado.
+ */
+class HitEventQueue implements PhysicsCollisionListener {
+
+    private Spatial[] bullets = new Spatial[64];
+    private Spatial[] enemies = new Spatial[64];
+    private int size = 0;
+
+    @Override
+    public void collision(PhysicsCollisionEvent event) {
+        PhysicsCollisionObject a = event.getObjectA();
+        PhysicsCollisionObject b = event.getObjectB();
+        if (a.getCollisionGroup() == CollisionGroups.BULLETS && b.getCollisionGroup() == CollisionGroups.ENEMIES) {
+            add(event.getNodeA(), event.getNodeB());
+        } else if (b.getCollisionGroup() == CollisionGroups.BULLETS && a.getCollisionGroup() == CollisionGroups.ENEMIES) {
+            add(event.getNodeB(), event.getNodeA());
+        }
+    }
+
+    private void add(Spatial bullet, Spatial enemy) {
+        if (bullet == null || enemy == null) return;
+        if (size == bullets.length) {
+            bullets = Arrays.copyOf(bullets, size * 2);
+            enemies = Arrays.copyOf(enemies, size * 2);
+        }
+        bullets[size] = bullet;
+        enemies[size] = enemy;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Spatial getBullet(int index) {
+        return bullets[index];
+    }
+
+    Spatial getEnemy(int index) {
+        return enemies[index];
+    }
+
+    void clear() {
+        Arrays.fill(bullets, 0, size, null);
+        Arrays.fill(enemies, 0, size, null);
+        size = 0;
+    }
+}
@@ -0,0 +1,260 @@
+package mygame;
+
+import com.jme3.app.Application;
+import com.jme3.app.SimpleApplication;
+import com.jme3.app.state.BaseAppState;
+import com.jme3.asset.AssetManager;
+import com.jme3.font.BitmapFont;
+import com.jme3.font.BitmapText;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+
+/**
+ * HUD de puntuacion, vidas y enemigos. El juego le pasa los valores cada
+ * frame con los setters y al final del frame llama a {@link #flush}, pero los
+ * textos solo se reconstruyen cuando un valor cambia de verdad, y los colores
+ * y tamanos solo cuando cambia el resaltado.
+ * Cada panel tiene su propio material y los colores estan precreados, asi que
+ * un frame sin cambios no asigna memoria.
+ */
+class HudState extends BaseAppState {
+
+    private static final ColorRGBA PANEL_COLOR = new ColorRGBA(0.1f, 0.1f, 0.1f, 0.7f);
+    private static final ColorRGBA SCORE_HIGHLIGHT_COLOR = new ColorRGBA(0.3f, 0.3f, 0, 0.9f);
+    private static final ColorRGBA LIVES_HIGHLIGHT_COLOR = new ColorRGBA(0.3f, 0, 0, 0.9f);
+    private static final ColorRGBA LIVES_VALUE_COLOR = new ColorRGBA(1, 0.6f, 0.6f, 1);
+
+    private static final int COUNT_CACHE_SIZE = 2048;
+    private static final int SCORE_CACHE_SIZE = 4096;
+
+    private final float hudElementWidth = 180f;
+    private final float hudElementHeight = 40f;
+    private final float hudPadding = 15f;
+
+    /** Todo lo que pinta el HUD; se quita entero en cleanup. */
+    private final Node hudNode = new Node("Hud");
+    private int screenWidth, screenHeight;
+
+    private Material scoreBgMat, livesBgMat, enemiesBgMat;
+    private BitmapText scoreValueText, livesValueText, enemiesValueText;
+    private BitmapText gameOverText;
+    private BitmapText levelCompleteText;
+
+    private final String[] countStrings = new String[COUNT_CACHE_SIZE];
+    private final String[] scoreStrings = new String[SCORE_CACHE_SIZE];
+
+    private int score, lives, enemies;
+    private boolean scoreDirty = true, livesDirty = true, enemiesDirty = true;
+    private int shownScoreHighlight = -1, shownLivesHighlight = -1;
+
+    private long textRebuilds = 0;
+
+    @Override
+    protected void initialize(Application app) {
+        build(app.getAssetManager(), ((SimpleApplication) app).getGuiNode(),
+                app.getCamera().getWidth(), app.getCamera().getHeight());
+    }
+
+    /** Crea los paneles; separado de initialize para poder usarlo sin Application. */
+    void build(AssetManager assetManager, Node guiNode, int screenWidth, int screenHeight) {
+        guiNode.attachChild(hudNode);
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+        BitmapFont font = assetManager.loadFont("Interface/Fonts/Default.fnt");
+
+        scoreBgMat = createPanelMaterial(assetManager);
+        livesBgMat = createPanelMaterial(assetManager);
+        enemiesBgMat = createPanelMaterial(assetManager);
+
+        float top = screenHeight;
+        createPanel(font, "Score", "SCORE:", new ColorRGBA(1, 1, 0.8f, 1), scoreBgMat,
+                top - hudElementHeight/2 - hudPadding,
+                top - hudPadding - hudElementHeight/4);
+        createPanel(font, "Lives", "LIVES:", new ColorRGBA(1, 0.8f, 0.8f, 1), livesBgMat,
+                top - hudElementHeight - hudPadding * 2 - hudElementHeight/2,
+                top - hudPadding * 2 - hudElementHeight - hudElementHeight/4);
+        createPanel(font, "Enemies", "ENEMIES:", new ColorRGBA(0.8f, 1, 0.8f, 1), enemiesBgMat,
+                top - hudElementHeight * 2 - hudPadding * 3 - hudElementHeight/2,
+                top - hudPadding * 3 - hudElementHeight * 2 - hudElementHeight/4);
+
+        scoreValueText = createValueText(font, ColorRGBA.Yellow, top - hudPadding - hudElementHeight/4);
+        livesValueText = createValueText(font, LIVES_VALUE_COLOR,
+                top - hudPadding * 2 - hudElementHeight - hudElementHeight/4);
+        enemiesValueText = createValueText(font, new ColorRGBA(0.6f, 1, 0.6f, 1),
+                top - hudPadding * 3 - hudElementHeight * 2 - hudElementHeight/4);
+
+        gameOverText = new BitmapText(font, false);
+        gameOverText.setSize(font.getCharSet().getRenderedSize() * 2.5f);
+        gameOverText.setColor(new ColorRGBA(1, 0.2f, 0.2f, 1));
+        gameOverText.setText("GAME OVER\nReiniciando...");
+
+        levelCompleteText = new BitmapText(font, false);
+        levelCompleteText.setSize(font.getCharSet().getRenderedSize() * 3f);
+        levelCompleteText.setColor(new ColorRGBA(0.2f, 1, 0.2f, 1));
+    }
+
+    private static Material createPanelMaterial(AssetManager assetManager) {
+        Material mat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+        mat.setColor("Color", PANEL_COLOR);
+        return mat;
+    }
+
+    private void createPanel(BitmapFont font, String name, String label, ColorRGBA labelColor, Material bgMat,
+            float backgroundY, float textY) {
+        Geometry background = new Geometry(name + "Background", new Box(hudElementWidth/2, hudElementHeight/2, 0));
+        background.setMaterial(bgMat);
+        background.setLocalTranslation(hudElementWidth/2 + hudPadding, backgroundY, 0);
+        hudNode.attachChild(background);
+
+        BitmapText labelText = new BitmapText(font, false);
+        labelText.setSize(24);
+        labelText.setColor(labelColor);
+        labelText.setText(label);
+        labelText.setLocalTranslation(hudPadding * 2, textY, 0);
+        hudNode.attachChild(labelText);
+    }
+
+    private BitmapText createValueText(BitmapFont font, ColorRGBA color, float textY) {
+        BitmapText valueText = new BitmapText(font, false);
+        valueText.setSize(28);
+        valueText.setColor(color);
+        valueText.setLocalTranslation(hudElementWidth - hudPadding * 2 - 30, textY, 0);
+        hudNode.attachChild(valueText);
+        return valueText;
+    }
+
+    void setScore(int score) {
+        if (score != this.score) {
+            this.score = score;
+            scoreDirty = true;
+        }
+    }
+
+    void setLives(int lives) {
+        if (lives != this.lives) {
+            this.lives = lives;
+            livesDirty = true;
+        }
+    }
+
+    void setEnemies(int enemies) {
+        if (enemies != this.enemies) {
+            this.enemies = enemies;
+            enemiesDirty = true;
+        }
+    }
+
+    void showGameOver() {
+        gameOverText.setLocalTranslation(
+            screenWidth/2 - gameOverText.getLineWidth()/2,
+            screenHeight/2 + gameOverText.getLineHeight(),
+            0
+        );
+        hudNode.attachChild(gameOverText);
+    }
+
+    void showLevelComplete(int level) {
+        levelCompleteText.setText("LEVEL " + level + " COMPLETE!");
+        levelCompleteText.setLocalTranslation(
+            screenWidth/2 - levelCompleteText.getLineWidth()/2,
+            screenHeight/2 + levelCompleteText.getLineHeight(),
+            0
+        );
+        hudNode.attachChild(levelCompleteText);
+    }
+
+    void hideMessages() {
+        hudNode.detachChild(gameOverText);
+        hudNode.detachChild(levelCompleteText);
+    }
+
+    /** Valor del contador ENEMIES. */
+    int getEnemies() {
+        return enemies;
+    }
+
+    /** Veces que se ha reconstruido el texto de un valor del HUD. */
+    long getTextRebuilds() {
+        return textRebuilds;
+    }
+
+    /**
+     * Pasa a los textos los valores que han cambiado. Main lo llama despues
+     * de actualizar el juego, asi que el HUD muestra los valores del mismo
+     * frame; desde update() iria un frame por detras, porque los estados se
+     * actualizan antes que simpleUpdate.
+     */
+    void flush() {
+        if (scoreDirty) {
+            scoreDirty = false;
+            scoreValueText.setText(scoreString(score));
+            textRebuilds++;
+
+            int highlight = score > 0 && score % 100 == 0 ? 1 : 0;
+            if (highlight != shownScoreHighlight) {
+                shownScoreHighlight = highlight;
+                scoreBgMat.setColor("Color", highlight == 1 ? SCORE_HIGHLIGHT_COLOR : PANEL_COLOR);
+                scoreValueText.setColor(highlight == 1 ? ColorRGBA.Orange : ColorRGBA.Yellow);
+                scoreValueText.setSize(highlight == 1 ? 32 : 28);
+            }
+        }
+
+        if (livesDirty) {
+            livesDirty = false;
+            livesValueText.setText(countString(lives));
+            textRebuilds++;
+
+            int highlight = lives <= 1 ? 1 : 0;
+            if (highlight != shownLivesHighlight) {
+                shownLivesHighlight = highlight;
+                livesBgMat.setColor("Color", highlight == 1 ? LIVES_HIGHLIGHT_COLOR : PANEL_COLOR);
+                livesValueText.setColor(highlight == 1 ? ColorRGBA.Red : LIVES_VALUE_COLOR);
+                livesValueText.setSize(highlight == 1 ? 32 : 28);
+            }
+        }
+
+        if (enemiesDirty) {
+            enemiesDirty = false;
+            enemiesValueText.setText(countString(enemies));
+            textRebuilds++;
+        }
+    }
+
+    private String countString(int value) {
+        if (value < 0 || value >= COUNT_CACHE_SIZE) return String.valueOf(value);
+        String text = countStrings[value];
+        if (text == null) {
+            text = String.valueOf(value);
+            countStrings[value] = text;
+        }
+        return text;
+    }
+
+    /** La puntuacion sube de 10 en 10, asi que se cachea por decenas. */
+    private String scoreString(int value) {
+        int index = value / 10;
+        if (value < 0 || value % 10 != 0 || index >= SCORE_CACHE_SIZE) return String.format("%,d", value);
+        String text = scoreStrings[index];
+        if (text == null) {
+            text = String.format("%,d", value);
+            scoreStrings[index] = text;
+        }
+        return text;
+    }
+
+    @Override
+    protected void cleanup(Application app) {
+        hudNode.removeFromParent();
+    }
+
+    @Override
+    protected void onEnable() {
+    }
+
+    @Override
+    protected void onDisable() {
+    }
+}
@@ -0,0 +1,164 @@
+package mygame;
+
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Graba la entrada de cada frame de una partida determinista (disparo, arma,
+ * posicion y rotacion de la camara) en un fichero binario compacto, para
+ * repetirla con {@link InputReplay}.
+ *
+ * Formato: una cabecera de {@link #HEADER_SIZE} bytes con la semilla y la
+ * configuracion que cambia la simulacion, y despues un registro por cada
+ * frame en que algo cambia:
+ *
+ * <pre>
+ * varint  frames desde el registro anterior
+ * byte    mascara: bits 0-6 componentes de la camara que cambian
+ *         (x, y, z de la posicion y x, y, z, w de la rotacion), bit 7 cambia el estado
+ * byte    estado (bit 0 disparando, bit 1 HITSCAN), solo si el bit 7 esta activo
+ * varint  por cada componente que cambia, bits del float XOR los del valor anterior
+ * </pre>
+ *
+ * Los floats se guardan sin perdida (el XOR de dos valores parecidos tiene
+ * los bits altos a cero y ocupa pocos bytes como varint), asi que la
+ * repeticion apunta exactamente igual que la partida grabada.
+ */
+class InputRecorder implements AutoCloseable {
+
+    static final int MAGIC = 0x54535250;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 48;
+    /** Posicion en la cabecera del numero de frames, que se escribe al cerrar. */
+    static final int TICK_COUNT_OFFSET = 40;
+
+    static final int STATE_SHOOTING = 1;
+    static final int STATE_HITSCAN = 2;
+    static final int MASK_STATE = 0x80;
+    static final int COMPONENTS = 7;
+
+    /** Registro mas largo: varint de frames, mascara, estado y 7 varints de 5 bytes. */
+    private static final int MAX_RECORD = 10 + 1 + 1 + COMPONENTS * 5;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    private final int[] previous = new int[COMPONENTS];
+    private final int[] current = new int[COMPONENTS];
+    private int previousState = -1;
+    private long previousTick = 0;
+    private long ticks = 0;
+    private long bytes = 0;
+
+    private InputRecorder(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /** Crea (o trunca) el fichero y escribe la cabecera con la configuracion de la partida. */
+    static InputRecorder create(Path path, GameConfig config) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        InputRecorder recorder = new InputRecorder(channel);
+        ByteBuffer header = recorder.buffer;
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        header.putShort((short) 0);
+        header.putLong(config.seed);
+        header.putInt(config.physicsTickRate);
+        header.putInt(config.startLevel);
+        header.putInt(config.enemiesPerWave);
+        header.putFloat(config.shootCooldown);
+        header.put((byte) config.weaponMode.ordinal());
+        header.put((byte) config.locomotion.ordinal());
+        header.putShort((short) 0);
+        header.putInt(config.spawnMaxPerFrame);
+        header.putLong(0L);
+        if (header.position() != HEADER_SIZE) {
+            throw new IllegalStateException("Cabecera de " + header.position() + " bytes");
+        }
+        return recorder;
+    }
+
+    /** Anota la entrada del frame {@code tick}; los frames se tienen que grabar en orden. */
+    void record(long tick, boolean shooting, WeaponMode weapon, Vector3f location, Quaternion rotation) {
+        current[0] = Float.floatToRawIntBits(location.x);
+        current[1] = Float.floatToRawIntBits(location.y);
+        current[2] = Float.floatToRawIntBits(location.z);
+        current[3] = Float.floatToRawIntBits(rotation.getX());
+        current[4] = Float.floatToRawIntBits(rotation.getY());
+        current[5] = Float.floatToRawIntBits(rotation.getZ());
+        current[6] = Float.floatToRawIntBits(rotation.getW());
+        int state = (shooting ? STATE_SHOOTING : 0) | (weapon == WeaponMode.HITSCAN ? STATE_HITSCAN : 0);
+        ticks = tick + 1;
+
+        int mask = state != previousState ? MASK_STATE : 0;
+        for (int c = 0; c < COMPONENTS; c++) {
+            if (current[c] != previous[c] || previousState < 0) {
+                mask |= 1 << c;
+            }
+        }
+        if (mask == 0) return;
+
+        if (buffer.remaining() < MAX_RECORD) {
+            flush();
+        }
+        putVarLong(tick - previousTick);
+        buffer.put((byte) mask);
+        if ((mask & MASK_STATE) != 0) {
+            buffer.put((byte) state);
+        }
+        for (int c = 0; c < COMPONENTS; c++) {
+            if ((mask & (1 << c)) != 0) {
+                putVarLong((current[c] ^ previous[c]) & 0xFFFFFFFFL);
+                previous[c] = current[c];
+            }
+        }
+        previousState = state;
+        previousTick = tick;
+    }
+
+    /** Frames grabados hasta ahora. */
+    long getTicks() {
+        return ticks;
+    }
+
+    /** Bytes escritos hasta ahora, cabecera incluida. */
+    long getBytes() {
+        return bytes + buffer.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        ByteBuffer count = ByteBuffer.allocate(Long.BYTES).putLong(0, ticks);
+        channel.write(count, TICK_COUNT_OFFSET);
+        channel.close();
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                bytes += channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir la grabacion", e);
+        }
+        buffer.clear();
+    }
+
+    private void putVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
@@ -0,0 +1,178 @@
+package mygame;
+
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Repite una grabacion de {@link InputRecorder}: en cada frame coloca la
+ * camara y el disparo tal como estaban al grabar. Se usa como
+ * {@link GameScript} de una partida configurada con {@link #configure}, y al
+ * llegar al final de la grabacion guarda el resultado y avisa con
+ * {@code onFinished}.
+ */
+class InputReplay implements GameScript {
+
+    private final ByteBuffer data;
+    private final long seed;
+    private final int tickRate;
+    private final int startLevel;
+    private final int enemiesPerWave;
+    private final float shootCooldown;
+    private final WeaponMode weaponMode;
+    private final LocomotionMode locomotion;
+    private final int spawnMaxPerFrame;
+    private final long tickCount;
+
+    private final int[] bits = new int[InputRecorder.COMPONENTS];
+    private int state = 0;
+    /** Frame del siguiente registro, o -1 si no quedan. */
+    private long nextTick = 0;
+
+    private final Vector3f location = new Vector3f();
+    private final Quaternion rotation = new Quaternion();
+    private Runnable onFinished;
+    private boolean finished = false;
+
+    // Resultado en el ultimo frame grabado; los frames que corran hasta parar el juego no cuentan
+    private long finalKillTimeline;
+    private int finalKills;
+    private int finalLevel;
+
+    private InputReplay(ByteBuffer data) {
+        if (data.remaining() < InputRecorder.HEADER_SIZE || data.getInt() != InputRecorder.MAGIC) {
+            throw new IllegalArgumentException("No es una grabacion de TowerShooter");
+        }
+        short version = data.getShort();
+        if (version != InputRecorder.VERSION) {
+            throw new IllegalArgumentException("Version de grabacion no soportada: " + version);
+        }
+        data.getShort();
+        seed = data.getLong();
+        tickRate = data.getInt();
+        startLevel = data.getInt();
+        enemiesPerWave = data.getInt();
+        shootCooldown = data.getFloat();
+        weaponMode = WeaponMode.values()[data.get()];
+        locomotion = LocomotionMode.values()[data.get()];
+        data.getShort();
+        spawnMaxPerFrame = data.getInt();
+        tickCount = data.getLong();
+        this.data = data;
+        if (tickCount == 0) {
+            throw new IllegalArgumentException("La grabacion no se cerro o esta vacia");
+        }
+        readTick();
+    }
+
+    /** Lee la grabacion entera en memoria. */
+    static InputReplay open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+            while (data.hasRemaining() && channel.read(data) >= 0) {
+                // leer hasta llenar el buffer
+            }
+            data.flip();
+            return new InputReplay(data);
+        }
+    }
+
+    /** Copia en {@code config} la semilla y los ajustes con que se grabo, en modo determinista. */
+    void configure(GameConfig config) {
+        config.deterministic = true;
+        config.seed = seed;
+        config.physicsTickRate = tickRate;
+        config.startLevel = startLevel;
+        config.enemiesPerWave = enemiesPerWave;
+        config.shootCooldown = shootCooldown;
+        config.weaponMode = weaponMode;
+        config.locomotion = locomotion;
+        config.spawnMaxPerFrame = spawnMaxPerFrame;
+        config.recordInput = null;
+    }
+
+    void setOnFinished(Runnable onFinished) {
+        this.onFinished = onFinished;
+    }
+
+    long getTickCount() {
+        return tickCount;
+    }
+
+    long getFinalKillTimeline() {
+        return finalKillTimeline;
+    }
+
+    int getFinalKills() {
+        return finalKills;
+    }
+
+    int getFinalLevel() {
+        return finalLevel;
+    }
+
+    @Override
+    public void update(Main game, float tpf) {
+        long tick = game.getTick();
+        if (tick >= tickCount) {
+            game.setShooting(false);
+            if (!finished) {
+                finished = true;
+                GameStats stats = game.getStats();
+                finalKillTimeline = stats.getKillTimelineHash();
+                finalKills = stats.kills;
+                finalLevel = game.getCurrentLevel();
+                if (onFinished != null) onFinished.run();
+            }
+            return;
+        }
+
+        while (nextTick == tick) {
+            readRecord();
+            readTick();
+        }
+
+        Camera cam = game.getCamera();
+        cam.setLocation(location.set(Float.intBitsToFloat(bits[0]), Float.intBitsToFloat(bits[1]),
+                Float.intBitsToFloat(bits[2])));
+        cam.setRotation(rotation.set(Float.intBitsToFloat(bits[3]), Float.intBitsToFloat(bits[4]),
+                Float.intBitsToFloat(bits[5]), Float.intBitsToFloat(bits[6])));
+        game.setShooting((state & InputRecorder.STATE_SHOOTING) != 0);
+        game.setWeaponMode((state & InputRecorder.STATE_HITSCAN) != 0 ? WeaponMode.HITSCAN : WeaponMode.PROJECTILE);
+    }
+
+    /** Lee el salto de frames hasta el siguiente registro. */
+    private void readTick() {
+        nextTick = data.hasRemaining() ? nextTick + getVarLong() : -1;
+    }
+
+    private void readRecord() {
+        int mask = data.get() & 0xFF;
+        if ((mask & InputRecorder.MASK_STATE) != 0) {
+            state = data.get();
+        }
+        for (int c = 0; c < InputRecorder.COMPONENTS; c++) {
+            if ((mask & (1 << c)) != 0) {
+                bits[c] ^= (int) getVarLong();
+            }
+        }
+    }
+
+    private long getVarLong() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,227 @@
+package mygame;
+
+import com.jme3.scene.Spatial;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Balas en vuelo, en un buffer circular ordenado por instante de caducidad.
+ * Todas salen a la misma velocidad, asi que caducan en el mismo orden en que
+ * se disparan: cada frame solo se miran las de la cabeza que ya han caducado,
+ * sin recorrer las demas. Las que impactan se marcan como muertas por su
+ * hueco en el pool ({@link BulletPool#slotOf}) y se descartan cuando llegan
+ * a la cabeza.
+ *
+ * Como maximo hay {@code capacity} balas vivas; si se dispara con todas
+ * ocupadas se retira la mas antigua. El buffer tiene el doble de entradas,
+ * asi que cuando se llena de muertas al menos la mitad se pueden compactar
+ * de una vez.
+ */
+class LiveBullets {
+
+    static final String EXPIRED_LIFETIME = "vida";
+    static final String EXPIRED_DISTANCE = "distancia";
+    static final String EXPIRED_EVICTED = "limite";
+
+    /** Recibe cada bala que se retira sin haber impactado. */
+    interface Sink {
+        void expired(Spatial bullet, String reason, float age);
+    }
+
+    private final int capacity;
+    private final float lifetime;
+    private final float maxDistance;
+
+    private final Spatial[] ring;
+    private final int[] ringSlot;
+    private final int[] ringShot;
+    private final float[] firedAt;
+    private final float[] expiresAt;
+    private final String[] reason;
+    private int head = 0;
+    private int count = 0;
+
+    /** Disparo vivo que ocupa cada hueco del pool, o -1. */
+    private int[] shotBySlot = new int[64];
+    private int nextShot = 0;
+    private int live = 0;
+
+    /**
+     * @param capacity balas vivas como maximo
+     * @param lifetime segundos de vuelo antes de retirar la bala
+     * @param maxDistance distancia maxima recorrida antes de retirarla
+     */
+    LiveBullets(int capacity, float lifetime, float maxDistance) {
+        this.capacity = Math.max(capacity, 1);
+        int size = this.capacity * 2;
+        this.lifetime = lifetime;
+        this.maxDistance = maxDistance;
+        ring = new Spatial[size];
+        ringSlot = new int[size];
+        ringShot = new int[size];
+        firedAt = new float[size];
+        expiresAt = new float[size];
+        reason = new String[size];
+        Arrays.fill(shotBySlot, -1);
+    }
+
+    /**
+     * Si ya hay {@code capacity} balas vivas retira la mas antigua y la pasa
+     * a {@code sink}. Se llama antes de sacar la bala del pool, para que al
+     * disparar con todas ocupadas se reutilice la retirada en vez de crear otra.
+     */
+    void makeRoom(float now, Sink sink) {
+        dropDead();
+        if (live == capacity) {
+            // Tras dropDead la cabeza es la viva mas antigua
+            Spatial oldest = ring[head];
+            float age = now - firedAt[head];
+            pop();
+            sink.expired(oldest, EXPIRED_EVICTED, age);
+        }
+    }
+
+    /**
+     * Registra una bala recien disparada. Si ya hay {@code capacity} vivas,
+     * antes se retira la mas antigua y se pasa a {@code sink}.
+     */
+    void add(Spatial bullet, float speed, float now, Sink sink) {
+        makeRoom(now, sink);
+        if (count == ring.length) {
+            compact();
+        }
+
+        int slot = BulletPool.slotOf(bullet);
+        if (slot >= shotBySlot.length) {
+            int oldLength = shotBySlot.length;
+            shotBySlot = Arrays.copyOf(shotBySlot, Math.max(slot + 1, oldLength * 2));
+            Arrays.fill(shotBySlot, oldLength, shotBySlot.length, -1);
+        }
+
+        float distanceTime = speed > 0 ? maxDistance / speed : Float.MAX_VALUE;
+        int tail = (head + count) % ring.length;
+        ring[tail] = bullet;
+        ringSlot[tail] = slot;
+        ringShot[tail] = nextShot;
+        firedAt[tail] = now;
+        expiresAt[tail] = now + Math.min(lifetime, distanceTime);
+        reason[tail] = distanceTime < lifetime ? EXPIRED_DISTANCE : EXPIRED_LIFETIME;
+        shotBySlot[slot] = nextShot++;
+        count++;
+        live++;
+    }
+
+    /**
+     * Da de baja una bala que ha impactado; su entrada del buffer se descarta
+     * al llegar a la cabeza.
+     *
+     * @return false si la bala no estaba viva
+     */
+    boolean remove(Spatial bullet) {
+        int slot = BulletPool.slotOf(bullet);
+        if (slot < 0 || slot >= shotBySlot.length || shotBySlot[slot] < 0) return false;
+        shotBySlot[slot] = -1;
+        live--;
+        return true;
+    }
+
+    boolean contains(Spatial bullet) {
+        int slot = BulletPool.slotOf(bullet);
+        return slot >= 0 && slot < shotBySlot.length && shotBySlot[slot] >= 0;
+    }
+
+    /**
+     * Retira las balas caducadas en {@code now}.
+     *
+     * @return cuantas se han retirado
+     */
+    int expire(float now, Sink sink) {
+        int expired = 0;
+        while (count > 0) {
+            if (!isLive(head)) {
+                pop();
+            } else if (expiresAt[head] <= now) {
+                Spatial bullet = ring[head];
+                String why = reason[head];
+                float age = now - firedAt[head];
+                pop();
+                sink.expired(bullet, why, age);
+                expired++;
+            } else {
+                break;
+            }
+        }
+        return expired;
+    }
+
+    /** Retira todas las balas vivas sin notificar el motivo (reinicio de partida). */
+    void clear(Consumer<Spatial> release) {
+        while (count > 0) {
+            Spatial bullet = isLive(head) ? ring[head] : null;
+            pop();
+            if (bullet != null) {
+                release.accept(bullet);
+            }
+        }
+    }
+
+    /** Balas vivas. */
+    int size() {
+        return live;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    private boolean isLive(int index) {
+        return shotBySlot[ringSlot[index]] == ringShot[index];
+    }
+
+    /**
+     * Junta las entradas vivas al principio del buffer. Solo se llama con el
+     * buffer lleno, y entonces al menos la mitad de las entradas son muertas.
+     */
+    private void compact() {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int from = (head + i) % ring.length;
+            if (!isLive(from)) continue;
+            int to = (head + kept) % ring.length;
+            if (to != from) {
+                ring[to] = ring[from];
+                ringSlot[to] = ringSlot[from];
+                ringShot[to] = ringShot[from];
+                firedAt[to] = firedAt[from];
+                expiresAt[to] = expiresAt[from];
+                reason[to] = reason[from];
+            }
+            kept++;
+        }
+        for (int i = kept; i < count; i++) {
+            int index = (head + i) % ring.length;
+            ring[index] = null;
+            reason[index] = null;
+        }
+        count = kept;
+    }
+
+    private void dropDead() {
+        while (count > 0 && !isLive(head)) {
+            pop();
+        }
+    }
+
+    /** Quita la entrada de la cabeza; si la bala seguia viva, la da de baja. */
+    private void pop() {
+        if (isLive(head)) {
+            shotBySlot[ringSlot[head]] = -1;
+            live--;
+        }
+        ring[head] = null;
+        reason[head] = null;
+        head = (head + 1) % ring.length;
+        count--;
+    }
+}
@@ -0,0 +1,11 @@
+package mygame;
+
+/**
+ * Como se mueven los vaqueros.
+ */
+public enum LocomotionMode {
+    /** Cuerpos dinamicos a los que la IA fija la velocidad (comportamiento original). */
+    DYNAMIC,
+    /** Cuerpos cinematicos pegados al terreno; la fisica solo sirve para los impactos. */
+    KINEMATIC
+}
@@ -0,0 +1,117 @@
+package mygame;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Clientes sin ventana para probar el servidor en la misma JVM: se conectan
+ * por loopback, se colocan alrededor de la plataforma de la torre, muestrean
+ * el interpolador a 60 Hz como haria el render y disparan al enemigo mas
+ * cercano de su vista al ritmo de shootCooldown.
+ */
+class LoopbackBots {
+
+    private static final Logger logger = Logger.getLogger(LoopbackBots.class.getName());
+    private static final long FRAME_MILLIS = 16;
+
+    private final GameConfig config;
+    private final NetClient[] clients;
+    private final Vector3f[] positions;
+    private final float[] sinceShot;
+    private final long[] shots;
+    private final Vector3f direction = new Vector3f();
+    private ScheduledExecutorService scheduler;
+
+    LoopbackBots(GameConfig config, int count) {
+        this.config = config;
+        this.clients = new NetClient[count];
+        this.positions = new Vector3f[count];
+        this.sinceShot = new float[count];
+        this.shots = new long[count];
+    }
+
+    /** Conecta los clientes alrededor de {@code platform} y empieza a moverlos. */
+    void start(Vector3f platform) throws IOException {
+        for (int i = 0; i < clients.length; i++) {
+            float angle = FastMath.TWO_PI * i / clients.length;
+            positions[i] = platform.add(FastMath.cos(angle) * 1.5f, 0, FastMath.sin(angle) * 1.5f);
+            clients[i] = NetClient.connect(config);
+            clients[i].setView(positions[i]);
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "loopback-bots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::update, 0, FRAME_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void update() {
+        try {
+            double now = System.nanoTime() / 1e9;
+            for (int i = 0; i < clients.length; i++) {
+                SnapshotInterpolator view = clients[i].getInterpolator();
+                view.sample(now);
+                sinceShot[i] += FRAME_MILLIS / 1000f;
+                if (sinceShot[i] < config.shootCooldown) continue;
+
+                int nearest = nearest(view, positions[i]);
+                if (nearest < 0) continue;
+                direction.set(view.x[nearest], view.y[nearest], view.z[nearest])
+                        .subtractLocal(positions[i]).normalizeLocal();
+                clients[i].fire(config.weaponMode, positions[i], direction);
+                sinceShot[i] = 0;
+                shots[i]++;
+            }
+        } catch (RuntimeException e) {
+            // Una excepcion pararia el planificador sin avisar
+            logger.log(Level.WARNING, "Error en los clientes de prueba", e);
+        }
+    }
+
+    private static int nearest(SnapshotInterpolator view, Vector3f from) {
+        int nearest = -1;
+        float nearestDistance = Float.MAX_VALUE;
+        for (int k = 0; k < view.count; k++) {
+            float dx = view.x[k] - from.x;
+            float dy = view.y[k] - from.y;
+            float dz = view.z[k] - from.z;
+            float distance = dx * dx + dy * dy + dz * dz;
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearest = k;
+            }
+        }
+        return nearest;
+    }
+
+    void stop() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        for (NetClient client : clients) {
+            if (client != null) client.close();
+        }
+    }
+
+    /** Lo que ha recibido y disparado cada cliente. */
+    String report(double seconds) {
+        StringBuilder report = new StringBuilder("bot  recibidos  descartados  KB/s   disparos  enemigos a la vista\n");
+        for (int i = 0; i < clients.length; i++) {
+            SnapshotInterpolator view = clients[i].getInterpolator();
+            report.append(String.format(Locale.ROOT, "%3d  %9d  %11d  %5.2f  %8d  %d%n",
+                    i, view.getReceived(), view.getDiscarded(), clients[i].getBytes() / 1024.0 / seconds,
+                    shots[i], view.count));
+        }
+        return report.toString();
+    }
+}
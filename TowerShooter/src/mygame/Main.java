@@ -2,20 +2,21 @@ package mygame;
 
 import com.jme3.app.SimpleApplication;
 import com.jme3.bullet.BulletAppState;
-import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.PhysicsRayTestResult;
+import com.jme3.bullet.collision.shapes.HeightfieldCollisionShape;
 import com.jme3.bullet.control.RigidBodyControl;
-import com.jme3.font.BitmapText;
 import com.jme3.input.KeyInput;
 import com.jme3.input.controls.ActionListener;
 import com.jme3.input.controls.KeyTrigger;
 import com.jme3.light.DirectionalLight;
 import com.jme3.material.Material;
 import com.jme3.math.ColorRGBA;
-import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
+import com.jme3.scene.instancing.InstancedNode;
 import com.jme3.scene.shape.Box;
 import com.jme3.scene.shape.Sphere;
 import com.jme3.terrain.geomipmap.TerrainQuad;
@@ -25,88 +26,319 @@ import com.jme3.texture.Texture.WrapMode;
 import com.jme3.terrain.heightmap.HeightMap;
 import com.jme3.math.FastMath;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class Main extends SimpleApplication {
 
+    private static final Logger logger = Logger.getLogger(Main.class.getName());
+
+    private static final float BULLET_SPEED = 50f;
+
+    /** Enemigos por frame al crear una oleada en modo determinista si no se fija spawnMaxPerFrame. */
+    private static final int DETERMINISTIC_SPAWN_PER_FRAME = 8;
+
+    private final GameConfig config;
+
     private BulletAppState bulletAppState;
     private Node tower;
     private TerrainQuad terrain;
+    private HeightSampler ground;
+
+    private BulletPool bulletPool;
+    private final HitEventQueue hitEvents = new HitEventQueue();
+    private final LiveBullets liveBullets;
+    private final LiveBullets.Sink expireBullet = this::expireBullet;
+    /** Segundos de partida; reloj de caducidad de las balas. */
+    private float bulletClock = 0f;
+    private final EnemyRegistry enemies = new EnemyRegistry();
+    private final EnemyAi enemyAi;
+    private final EnemyLod enemyLod;
+    private CowboyTemplateCache cowboyTemplates;
+    private Node enemyParent;
+    private CowboySpawner cowboySpawner;
+
+    /** Enemigos por celda para la separacion; se reconstruye cada frame. */
+    private SpatialHashGrid crowdGrid;
+
+    private HealthBarBatch healthBars;
+    private final WaveSpawner waveSpawner;
+    private WaveLoader waveLoader;
+    private WaveLoader.PreparedWave preparedWave;
+    private final EnemyPool enemyPool = new EnemyPool();
+    private long waveHeapBefore;
+    /** nanoTime del inicio del cambio de nivel o reinicio en curso; 0 si no hay ninguno. */
+    private long transitionStart = 0;
+    private boolean transitionAfterGameOver;
+
+    private HudState hud;
+    private InputRecorder recorder;
+    private NetServer netServer;
+    private NetClient netClient;
+    private RemoteEnemyState remoteEnemies;
+    private long tick = 0;
+    private FrameProfiler profiler;
 
-    private ArrayList<Spatial> activeBullets = new ArrayList<>();
-    private ArrayList<Node> enemyCowboys = new ArrayList<>();
-
-    private HashMap<Node, Integer> enemyHealth = new HashMap<>();
-    private HashMap<Node, HealthBar> enemyHealthBars = new HashMap<>();
-    private Material healthBarBgMat;
-    private Material healthBarFillMat;
-
-    // Campos para el HUD
-    private Geometry scoreBackground;
-    private Geometry livesBackground;
-    private Geometry enemiesBackground;
-    private BitmapText scoreLabelText, livesLabelText, enemiesLabelText;
-    private BitmapText scoreValueText, livesValueText, enemiesValueText;
-    private BitmapText gameOverText;
-    private float hudElementWidth = 180f;
-    private float hudElementHeight = 40f;
-    private float hudPadding = 15f;
-    
     private int score = 0;
     private int lives = 3;
     private boolean isGameOver = false;
-    private int currentLevel = 1;
-    private BitmapText levelCompleteText;
+    private int currentLevel;
     private float levelCompleteTimer = 0f;
     private boolean showingLevelComplete = false;
 
-    private Random rand = new Random();
-    private float shootCooldown = 0.15f;
+    private final Random rand;
+    /** Semilla de la proxima oleada; la misma con la que la prepara el WaveLoader. */
+    private long nextWaveSeed;
+    /** Azar de la oleada actual: posicion, temporizador y semilla de cada enemigo. */
+    private Random waveRandom;
     private float timeSinceLastShot = 0;
     private float enemySpeed = 3f;
 
     private boolean isShooting = false;
+    private final GameStats stats = new GameStats();
+    private GameScript script;
+    private WeaponMode weaponMode;
+    private final List<PhysicsRayTestResult> rayResults = new ArrayList<>();
+    private final Vector3f rayEnd = new Vector3f();
     private float gameOverTimer = 0f;
 
-    private enum MovementPattern {
-        SINUSOIDAL, SPIRAL, RANDOM, ZIGZAG, CIRCLE_APPROACH, RETREAT_AND_ADVANCE
+    private final Vector3f scratchPosition = new Vector3f();
+    private final Vector3f remoteOrigin = new Vector3f();
+    private final Vector3f remoteDirection = new Vector3f();
+
+    public Main() {
+        this(new GameConfig());
+    }
+
+    public Main(GameConfig config) {
+        this.config = config;
+        this.weaponMode = config.weaponMode;
+        this.currentLevel = config.startLevel;
+        if (config.recordInput != null && !config.deterministic) {
+            throw new IllegalArgumentException("Grabar la entrada requiere el modo determinista");
+        }
+        if (config.deterministic && config.netMode != NetMode.OFFLINE) {
+            throw new IllegalArgumentException("Una partida en red no puede ser determinista");
+        }
+        this.rand = config.deterministic ? new Random(config.seed) : new Random();
+        this.enemyAi = new EnemyAi(config.parallelAi, config.parallelAiThreshold, config.aiBatchSize);
+        this.enemyLod = config.aiLod
+                ? new EnemyLod(config.lodNearDistance, config.lodFarDistance, config.lodMidInterval,
+                        config.lodFarInterval, config.lodFarKinematic, config.locomotion)
+                : EnemyLod.disabled(config.locomotion);
+        // En modo determinista cuantos enemigos se crean por frame no puede depender del reloj
+        this.waveSpawner = config.deterministic
+                ? new WaveSpawner(this::spawnEnemy, 0f,
+                        config.spawnMaxPerFrame > 0 ? config.spawnMaxPerFrame : DETERMINISTIC_SPAWN_PER_FRAME)
+                : new WaveSpawner(this::spawnEnemy, config.spawnBudgetMillis, config.spawnMaxPerFrame);
+        this.liveBullets = new LiveBullets(config.maxLiveBullets, config.bulletLifetime, config.bulletMaxDistance);
+    }
+
+    void setScript(GameScript script) {
+        this.script = script;
+    }
+
+    GameStats getStats() {
+        return stats;
+    }
+
+    int getCurrentLevel() {
+        return currentLevel;
+    }
+
+    /** Cuerpos rigidos en el espacio fisico: terreno, torre, enemigos y balas. */
+    int getPhysicsBodyCount() {
+        return bulletAppState.getPhysicsSpace().getRigidBodyList().size();
+    }
+
+    /** Enemigos vivos, sin contar los que faltan por crear. */
+    int getEnemyCount() {
+        return enemies.size();
+    }
+
+    int getLiveBulletCount() {
+        return liveBullets.size();
     }
-    private HashMap<Node, MovementPattern> enemyMovementPatterns = new HashMap<>();
-    private HashMap<Node, Float> enemyMovementTimers = new HashMap<>();
 
+    /** Frames jugados desde el arranque; durante simpleUpdate, el numero del frame actual. */
+    long getTick() {
+        return tick;
+    }
+
+    void setWeaponMode(WeaponMode weaponMode) {
+        this.weaponMode = weaponMode;
+    }
+
+    void setShooting(boolean shooting) {
+        isShooting = shooting;
+    }
+
+    /**
+     * Escribe en {@code store} la posicion del enemigo vivo mas cercano a
+     * {@code from}.
+     *
+     * @return false si no queda ningun enemigo
+     */
+    boolean findNearestEnemy(Vector3f from, Vector3f store) {
+        int nearest = -1;
+        float nearestDistance = Float.MAX_VALUE;
+        for (int i = 0; i < enemies.size(); i++) {
+            float dx = enemies.posX[i] - from.x;
+            float dy = enemies.posY[i] - from.y;
+            float dz = enemies.posZ[i] - from.z;
+            float distance = dx * dx + dy * dy + dz * dz;
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearest = i;
+            }
+        }
+        if (nearest < 0) return false;
+        store.set(enemies.posX[nearest], enemies.posY[nearest], enemies.posZ[nearest]);
+        return true;
+    }
+
+    /**
+     * Sin argumentos, un jugador. Con --server la partida acepta clientes; con
+     * --connect HOST se une a la de otro y solo pinta lo que este le envia.
+     * --port cambia el puerto de ambos.
+     */
     public static void main(String[] args) {
-        Main app = new Main();
+        GameConfig config = new GameConfig();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--server":
+                    config.netMode = NetMode.SERVER;
+                    break;
+                case "--connect":
+                    config.netMode = NetMode.CLIENT;
+                    config.netHost = args[++i];
+                    break;
+                case "--port":
+                    config.netPort = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opcion desconocida: " + args[i]);
+            }
+        }
+        Main app = new Main(config);
         app.start();
     }
 
     @Override
     public void simpleInitApp() {
         flyCam.setMoveSpeed(30);
+        if (config.deterministic) {
+            // Despues de initialize(), que coge el temporizador del contexto
+            setTimer(new FixedStepTimer(config.physicsTickRate));
+            logger.log(Level.INFO, "Modo determinista: semilla {0}, {1} frames por segundo de juego",
+                    new Object[]{config.seed, config.physicsTickRate});
+        }
+        if (config.recordInput != null) {
+            try {
+                recorder = InputRecorder.create(Paths.get(config.recordInput), config);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo crear la grabacion " + config.recordInput, e);
+            }
+        }
         setUpLight();
 
-        bulletAppState = new BulletAppState();
-        stateManager.attach(bulletAppState);
-        bulletAppState.getPhysicsSpace().setGravity(new Vector3f(0, -9.8f, 0));
+        initPhysics();
+        bulletAppState.getPhysicsSpace().addCollisionListener(hitEvents);
+
+        profiler = new FrameProfiler();
+        profiler.setEnabled(config.profilerOverlay);
+        stateManager.attach(profiler);
+        bulletAppState.getPhysicsSpace().addTickListener(profiler.physicsTimer());
+
+        bulletPool = new BulletPool(assetManager, bulletAppState.getPhysicsSpace(), rootNode, config.bulletPoolCapacity);
+        bulletPool.prewarm();
 
         createFloor();
         createTower();
+        initFlowField();
+        initSeparation();
         
-        initHealthBarMaterials();
-        createEnemyCowboys();
+        initHealthBars();
+        initEnemyParent();
+        if (config.netMode == NetMode.CLIENT) {
+            startClient();
+        } else {
+            waveLoader = new WaveLoader(this, cowboySpawner);
+            nextWaveSeed = rand.nextLong();
+            createEnemyCowboys();
+        }
+        if (config.netMode == NetMode.SERVER) {
+            startServer();
+        }
 
         initKeys();
-        initHUD();
+
+        hud = new HudState();
+        stateManager.attach(hud);
+        updateHUD();
     }
 
-    private void initHealthBarMaterials() {
-        healthBarBgMat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
-        healthBarBgMat.setColor("Color", ColorRGBA.DarkGray);
-        
-        healthBarFillMat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
-        healthBarFillMat.setColor("Color", ColorRGBA.Red);
+    private void initPhysics() {
+        bulletAppState = new BulletAppState();
+        // En PARALLEL el paso fisico corre entre render() y postRender() del
+        // BulletAppState; todo lo que toca cuerpos o el espacio fisico desde el
+        // juego (velocidades, altas, bajas, rayTest) ocurre en simpleUpdate, con
+        // la fisica parada, y nunca desde los hilos de la IA.
+        if (config.parallelPhysics && !config.deterministic) {
+            bulletAppState.setThreadingType(BulletAppState.ThreadingType.PARALLEL);
+        }
+        stateManager.attach(bulletAppState);
+
+        PhysicsSpace physicsSpace = bulletAppState.getPhysicsSpace();
+        physicsSpace.setGravity(new Vector3f(0, -9.8f, 0));
+        physicsSpace.setAccuracy(1f / config.physicsTickRate);
+        physicsSpace.setMaxSubSteps(config.physicsMaxSubSteps);
+        logger.log(Level.INFO, "Fisica {0} a {1} Hz, maximo {2} subpasos",
+                new Object[]{bulletAppState.getThreadingType(), config.physicsTickRate, config.physicsMaxSubSteps});
+    }
+
+    private void initHealthBars() {
+        healthBars = new HealthBarBatch(assetManager);
+        rootNode.attachChild(healthBars.getGeometry());
+    }
+
+    private void initEnemyParent() {
+        boolean instanced = config.cowboyTemplateCache && config.instancedCowboys;
+        cowboyTemplates = new CowboyTemplateCache(assetManager, instanced);
+        if (instanced) {
+            enemyParent = new InstancedNode("Cowboys");
+            rootNode.attachChild(enemyParent);
+        } else {
+            enemyParent = rootNode;
+        }
+        cowboySpawner = new CowboySpawner(assetManager, config.cowboyTemplateCache ? cowboyTemplates : null,
+                config.locomotion, enemyPool, bulletAppState.getPhysicsSpace(), enemyParent, enemies, healthBars);
+    }
+
+    private void startServer() {
+        try {
+            netServer = NetServer.start(config);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el puerto " + config.netPort, e);
+        }
+    }
+
+    /** En el cliente no se crean oleadas: los enemigos llegan del servidor. */
+    private void startClient() {
+        try {
+            netClient = NetClient.connect(config);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo conectar a " + config.netHost + ":" + config.netPort, e);
+        }
+        remoteEnemies = new RemoteEnemyState(netClient, cowboyTemplates, healthBars, enemyParent,
+                tower.getWorldTranslation());
+        stateManager.attach(remoteEnemies);
     }
 
     private void setUpLight() {
@@ -133,12 +365,28 @@ public class Main extends SimpleApplication {
         terrain.setMaterial(mat);
         terrain.setLocalTranslation(0, 0, 0);
         terrain.setLocalScale(2f, 1f, 2f);
+        ground = new HeightSampler(heightmap.getHeightMap(), heightmap.getSize(),
+                terrain.getLocalScale(), terrain.getLocalTranslation());
+
+        long physicsStart = System.nanoTime();
+        long heapBefore = usedHeap();
 
-        RigidBodyControl terrainControl = new RigidBodyControl(0);
+        RigidBodyControl terrainControl;
+        if (config.heightfieldTerrain) {
+            // Mismo mapa de alturas y escala que el TerrainQuad, sin generar triangulos
+            terrainControl = new RigidBodyControl(
+                    new HeightfieldCollisionShape(heightmap.getHeightMap(), terrain.getLocalScale()), 0);
+        } else {
+            terrainControl = new RigidBodyControl(0);
+        }
         terrain.addControl(terrainControl);
         terrainControl.setFriction(0.8f);
         bulletAppState.getPhysicsSpace().add(terrainControl);
         rootNode.attachChild(terrain);
+
+        logger.log(Level.INFO, "Colision del terreno ({0}) creada en {1} ms (~{2} KB)",
+                new Object[]{config.heightfieldTerrain ? "heightfield" : "malla",
+                    (System.nanoTime() - physicsStart) / 1_000_000.0, (usedHeap() - heapBefore) / 1024});
     }
 
     private void createTower() {
@@ -148,7 +396,7 @@ public class Main extends SimpleApplication {
         mat.setColor("Specular", ColorRGBA.White);
         mat.setFloat("Shininess", 64f);
 
-        float terrainHeight = terrain.getHeight(new Vector2f(0, 0));
+        float terrainHeight = ground.heightAt(0, 0);
 
         Geometry base = new Geometry("Base", new Box(2, 0.2f, 2));
         base.setMaterial(mat);
@@ -199,222 +447,184 @@ public class Main extends SimpleApplication {
         cam.lookAt(tower.getLocalTranslation().add(0, 6, 0), Vector3f.UNIT_Y);
     }
 
+    /**
+     * Campo de flujo hacia la torre. Ni el terreno ni la torre cambian entre
+     * niveles, asi que se construye una sola vez y lo comparten todas las oleadas.
+     */
+    private void initFlowField() {
+        if (!config.flowField) return;
+
+        long start = System.nanoTime();
+        Vector3f towerPos = tower.getWorldTranslation();
+        // Cubre el anillo de aparicion (hasta 120) con margen
+        FlowField flow = new FlowField(towerPos.x, towerPos.z, 130f, config.flowFieldCellSize,
+                config.flowFieldSlopeWeight);
+        flow.build(ground);
+        enemyAi.setFlowField(flow);
+        logger.log(Level.INFO, "Campo de flujo de {0}x{0} celdas construido en {1} ms",
+                new Object[]{flow.size(), (System.nanoTime() - start) / 1_000_000.0});
+    }
+
+    private void initSeparation() {
+        if (!config.separation) return;
+
+        Vector3f towerPos = tower.getWorldTranslation();
+        crowdGrid = new SpatialHashGrid(towerPos.x, towerPos.z, 130f, config.separationRadius);
+        enemyAi.setSeparation(crowdGrid, config.separationRadius, config.separationStrength);
+    }
+
+    private int waveSize(int level) {
+        return config.enemiesPerWave > 0 ? config.enemiesPerWave : 3 + (level - 1) * 3;
+    }
+
+    /**
+     * Encola la oleada del nivel actual; los enemigos se crean en los frames
+     * siguientes, primero con los vaqueros del pool y despues con los que el
+     * WaveLoader haya montado en segundo plano.
+     */
     private void createEnemyCowboys() {
-        int numCowboys = 3 + (currentLevel - 1) * 3;
-        float minDistance = 90f;
-        float maxDistance = 120f;
-        int maxHealth = 3;
+        int numCowboys = waveSize(currentLevel);
+        int extra = Math.max(0, numCowboys - enemyPool.size());
+        preparedWave = waveLoader.take(extra);
+        logger.log(Level.INFO, "Nivel {0}: {1} vaqueros del pool, {2} nuevos {3}", new Object[]{currentLevel,
+                numCowboys - extra, extra,
+                preparedWave != null ? "preparados en segundo plano" : "sin preparar, se montan al crearlos"});
+        // El origen del vaquero no cambia el azar, asi que la oleada sale igual
+        waveRandom = new Random(nextWaveSeed);
+        waveHeapBefore = usedHeap();
+        waveSpawner.start(numCowboys);
+    }
 
-        MovementPattern[] patterns = MovementPattern.values();
-        
-        for (int i = 0; i < numCowboys; i++) {
-            Vector3f position;
-            float terrainHeight;
-            do {
-                float x = rand.nextFloat() * (maxDistance * 2) - maxDistance;
-                float z = rand.nextFloat() * (maxDistance * 2) - maxDistance;
-                terrainHeight = terrain.getHeight(new Vector2f(x, z));
-                position = new Vector3f(x, terrainHeight + 1, z);
-            } while (position.distance(Vector3f.ZERO) < minDistance);
-
-            Spatial cowboyModel = assetManager.loadModel("Models/Cowboy/Cowboy.j3o");
-            cowboyModel.setLocalTranslation(0, 0, 0);
-            cowboyModel.scale(0.5f);
-
-            Node cowboyNode = new Node("Cowboy_" + i);
-            cowboyNode.setLocalTranslation(position);
-            cowboyNode.attachChild(cowboyModel);
-            
-            HealthBar healthBar = new HealthBar(healthBarBgMat, healthBarFillMat);
-            cowboyNode.attachChild(healthBar.getNode());
-            enemyHealthBars.put(cowboyNode, healthBar);
-
-            RigidBodyControl physics = new RigidBodyControl(new BoxCollisionShape(new Vector3f(1, 1, 1)), 2);
-            cowboyNode.addControl(physics);
-            physics.setPhysicsLocation(position);
-            physics.setFriction(0.6f);
-            physics.setRestitution(0.2f);
-            physics.setKinematic(false);
-
-            bulletAppState.getPhysicsSpace().add(physics);
-            rootNode.attachChild(cowboyNode);
-            
-            enemyCowboys.add(cowboyNode);
-            enemyHealth.put(cowboyNode, maxHealth);
-            
-            MovementPattern pattern = patterns[i % patterns.length];
-            enemyMovementPatterns.put(cowboyNode, pattern);
-            enemyMovementTimers.put(cowboyNode, rand.nextFloat() * 5f);
+    private void updateWaveSpawn() {
+        if (!waveSpawner.isSpawning()) return;
+
+        boolean finished = waveSpawner.update();
+        if (enemyParent instanceof InstancedNode) {
+            ((InstancedNode) enemyParent).instance();
+        }
+
+        if (transitionStart != 0) {
+            long nanos = System.nanoTime() - transitionStart;
+            transitionStart = 0;
+            stats.recordTransition(transitionAfterGameOver, nanos);
+            logger.log(Level.INFO, "Nivel {0}: primer frame con enemigos {1} ms despues de {2}", new Object[]{
+                currentLevel, nanos / 1_000_000.0, transitionAfterGameOver ? "game over" : "subir de nivel"});
+        }
+
+        if (finished) {
+            preparedWave = null;
+            waveRandom = null;
+            int numCowboys = waveSpawner.getTotal();
+            long heapPerEnemy = (usedHeap() - waveHeapBefore) / Math.max(numCowboys, 1);
+            logger.log(Level.INFO, "Nivel {0}: {1} enemigos creados en {2} ms repartidos en {3} frames (peor frame {4} ms, ~{5} KB por enemigo, {6} cargas del modelo)",
+                    new Object[]{currentLevel, numCowboys, waveSpawner.getTotalNanos() / 1_000_000.0,
+                        waveSpawner.getFrames(), waveSpawner.getWorstFrameNanos() / 1_000_000.0, heapPerEnemy / 1024,
+                        config.cowboyTemplateCache ? cowboyTemplates.getLoadCount() : numCowboys});
         }
     }
 
+    private void spawnEnemy(int i) {
+        GameEvents.Spawn spawnEvent = new GameEvents.Spawn();
+        spawnEvent.begin();
+
+        Vector3f position = ground.randomPointInRing(waveRandom, 90f, 120f, 1, new Vector3f());
+        float timer = waveRandom.nextFloat() * 5f;
+        long seed = waveRandom.nextLong();
+        CowboySpawner.Source source = cowboySpawner.spawn(i, position, timer, seed, preparedWave);
+
+        spawnEvent.end();
+        if (spawnEvent.shouldCommit()) {
+            spawnEvent.level = currentLevel;
+            spawnEvent.index = i;
+            spawnEvent.prepared = source == CowboySpawner.Source.PREPARED;
+            spawnEvent.pooled = source == CowboySpawner.Source.POOL;
+            spawnEvent.commit();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
     private void initKeys() {
         inputManager.addMapping("Shoot", new KeyTrigger(KeyInput.KEY_SPACE));
-        inputManager.addListener(actionListener, "Shoot");
+        inputManager.addMapping("SwitchWeapon", new KeyTrigger(KeyInput.KEY_TAB));
+        inputManager.addMapping("ToggleProfiler", new KeyTrigger(KeyInput.KEY_F3));
+        inputManager.addListener(actionListener, "Shoot", "SwitchWeapon", "ToggleProfiler");
     }
 
     private final ActionListener actionListener = new ActionListener() {
         public void onAction(String name, boolean isPressed, float tpf) {
             if (name.equals("Shoot")) isShooting = isPressed;
+            if (name.equals("SwitchWeapon") && isPressed) {
+                weaponMode = weaponMode == WeaponMode.PROJECTILE ? WeaponMode.HITSCAN : WeaponMode.PROJECTILE;
+            }
+            if (name.equals("ToggleProfiler") && isPressed) {
+                profiler.setEnabled(!profiler.isEnabled());
+            }
         }
     };
 
-    private void shootBullet() {
-        Spatial bulletModel = assetManager.loadModel("Models/Bullet/Bullet.j3o");
-        bulletModel.setLocalTranslation(0, 0, 0);
-        bulletModel.rotate(0, -FastMath.HALF_PI, 0);
-
-        Node bulletNode = new Node("bullet");
-        bulletNode.attachChild(bulletModel);
-
-        Vector3f spawnPosition = cam.getLocation().add(cam.getDirection().mult(2));
-        bulletNode.setLocalTranslation(spawnPosition);
-        bulletNode.setLocalScale(0.5f);
-
-        Vector3f direction = cam.getDirection().normalize();
-        bulletNode.lookAt(spawnPosition.add(direction), Vector3f.UNIT_Y);
-
-        RigidBodyControl bulletPhysics = new RigidBodyControl(1);
-        bulletNode.addControl(bulletPhysics);
-        bulletPhysics.setLinearVelocity(direction.mult(50));
-        bulletPhysics.setGravity(Vector3f.ZERO);
-
-        rootNode.attachChild(bulletNode);
-        bulletAppState.getPhysicsSpace().add(bulletPhysics);
-        activeBullets.add(bulletNode);
+    private void fire(WeaponMode mode, Vector3f from, Vector3f direction) {
+        stats.shotsFired++;
+        if (mode == WeaponMode.HITSCAN) {
+            fireHitscan(from, direction);
+        } else {
+            shootBullet(from, direction);
+        }
     }
 
-    private void initHUD() {
-        guiFont = assetManager.loadFont("Interface/Fonts/Default.fnt");
-        
-        Material hudBgMat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
-        hudBgMat.setColor("Color", new ColorRGBA(0.1f, 0.1f, 0.1f, 0.7f));
-        
-        Material hudHighlightMat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
-        hudHighlightMat.setColor("Color", new ColorRGBA(0.2f, 0.2f, 0.1f, 0.8f));
-        
-        createScoreDisplay(hudBgMat, hudHighlightMat);
-        createLivesDisplay(hudBgMat, hudHighlightMat);
-        createEnemiesDisplay(hudBgMat, hudHighlightMat);
-        
-        gameOverText = new BitmapText(guiFont, false);
-        gameOverText.setSize(guiFont.getCharSet().getRenderedSize() * 2.5f);
-        gameOverText.setColor(new ColorRGBA(1, 0.2f, 0.2f, 1));
-        gameOverText.setText("GAME OVER\nReiniciando...");
-        
-        levelCompleteText = new BitmapText(guiFont, false);
-        levelCompleteText.setSize(guiFont.getCharSet().getRenderedSize() * 3f);
-        levelCompleteText.setColor(new ColorRGBA(0.2f, 1, 0.2f, 1));
-    }
-
-    private void createScoreDisplay(Material bgMat, Material highlightMat) {
-        Box scoreBox = new Box(hudElementWidth/2, hudElementHeight/2, 0);
-        scoreBackground = new Geometry("ScoreBackground", scoreBox);
-        scoreBackground.setMaterial(bgMat);
-        scoreBackground.setLocalTranslation(hudElementWidth/2 + hudPadding, 
-            settings.getHeight() - hudElementHeight/2 - hudPadding, 0);
-        guiNode.attachChild(scoreBackground);
-        
-        scoreLabelText = new BitmapText(guiFont, false);
-        scoreLabelText.setSize(24);
-        scoreLabelText.setColor(new ColorRGBA(1, 1, 0.8f, 1));
-        scoreLabelText.setText("SCORE:");
-        scoreLabelText.setLocalTranslation(hudPadding * 2, 
-            settings.getHeight() - hudPadding - hudElementHeight/4, 0);
-        guiNode.attachChild(scoreLabelText);
-        
-        scoreValueText = new BitmapText(guiFont, false);
-        scoreValueText.setSize(28);
-        scoreValueText.setColor(ColorRGBA.Yellow);
-        scoreValueText.setText("0");
-        scoreValueText.setLocalTranslation(hudElementWidth - hudPadding * 2 - 30, 
-            settings.getHeight() - hudPadding - hudElementHeight/4, 0);
-        guiNode.attachChild(scoreValueText);
-    }
-
-    private void createLivesDisplay(Material bgMat, Material highlightMat) {
-        Box livesBox = new Box(hudElementWidth/2, hudElementHeight/2, 0);
-        livesBackground = new Geometry("LivesBackground", livesBox);
-        livesBackground.setMaterial(bgMat);
-        livesBackground.setLocalTranslation(hudElementWidth/2 + hudPadding, 
-            settings.getHeight() - hudElementHeight - hudPadding * 2 - hudElementHeight/2, 0);
-        guiNode.attachChild(livesBackground);
-        
-        livesLabelText = new BitmapText(guiFont, false);
-        livesLabelText.setSize(24);
-        livesLabelText.setColor(new ColorRGBA(1, 0.8f, 0.8f, 1));
-        livesLabelText.setText("LIVES:");
-        livesLabelText.setLocalTranslation(hudPadding * 2, 
-            settings.getHeight() - hudPadding * 2 - hudElementHeight - hudElementHeight/4, 0);
-        guiNode.attachChild(livesLabelText);
-        
-        livesValueText = new BitmapText(guiFont, false);
-        livesValueText.setSize(28);
-        livesValueText.setColor(new ColorRGBA(1, 0.6f, 0.6f, 1));
-        livesValueText.setText("3");
-        livesValueText.setLocalTranslation(hudElementWidth - hudPadding * 2 - 30, 
-            settings.getHeight() - hudPadding * 2 - hudElementHeight - hudElementHeight/4, 0);
-        guiNode.attachChild(livesValueText);
-    }
-
-    private void createEnemiesDisplay(Material bgMat, Material highlightMat) {
-        Box enemiesBox = new Box(hudElementWidth/2, hudElementHeight/2, 0);
-        enemiesBackground = new Geometry("EnemiesBackground", enemiesBox);
-        enemiesBackground.setMaterial(bgMat);
-        enemiesBackground.setLocalTranslation(hudElementWidth/2 + hudPadding, 
-            settings.getHeight() - hudElementHeight * 2 - hudPadding * 3 - hudElementHeight/2, 0);
-        guiNode.attachChild(enemiesBackground);
-        
-        enemiesLabelText = new BitmapText(guiFont, false);
-        enemiesLabelText.setSize(24);
-        enemiesLabelText.setColor(new ColorRGBA(0.8f, 1, 0.8f, 1));
-        enemiesLabelText.setText("ENEMIES:");
-        enemiesLabelText.setLocalTranslation(hudPadding * 2, 
-            settings.getHeight() - hudPadding * 3 - hudElementHeight * 2 - hudElementHeight/4, 0);
-        guiNode.attachChild(enemiesLabelText);
-        
-        enemiesValueText = new BitmapText(guiFont, false);
-        enemiesValueText.setSize(28);
-        enemiesValueText.setColor(new ColorRGBA(0.6f, 1, 0.6f, 1));
-        enemiesValueText.setText("12");
-        enemiesValueText.setLocalTranslation(hudElementWidth - hudPadding * 2 - 30, 
-            settings.getHeight() - hudPadding * 3 - hudElementHeight * 2 - hudElementHeight/4, 0);
-        guiNode.attachChild(enemiesValueText);
+    /** Ejecuta los disparos que han llegado de los clientes desde el ultimo frame. */
+    private void fireRemote() {
+        NetMessages.Fire shot;
+        // NetServer ya los ha validado: arma, valores finitos, ritmo y origen cerca del cliente
+        while ((shot = netServer.pollFire()) != null) {
+            remoteOrigin.set(shot.originX, shot.originY, shot.originZ);
+            remoteDirection.set(shot.dirX, shot.dirY, shot.dirZ);
+            fire(WeaponMode.VALUES[shot.weapon], remoteOrigin, remoteDirection);
+        }
     }
 
-    private void updateHUD() {
-        scoreValueText.setText(String.format("%,d", score));
-        livesValueText.setText(String.valueOf(lives));
-        enemiesValueText.setText(String.valueOf(enemyCowboys.size()));
-        
-        updateScoreDisplay();
-        updateLivesDisplay();
+    private void shootBullet(Vector3f from, Vector3f aim) {
+        Vector3f spawnPosition = from.add(aim.mult(2));
+        Vector3f direction = aim.normalize();
+        liveBullets.makeRoom(bulletClock, expireBullet);
+        Spatial bullet = bulletPool.acquire(spawnPosition, direction, BULLET_SPEED);
+        liveBullets.add(bullet, BULLET_SPEED, bulletClock, expireBullet);
     }
 
-    private void updateScoreDisplay() {
-        if (score > 0 && score % 100 == 0) {
-            scoreBackground.getMaterial().setColor("Color", new ColorRGBA(0.3f, 0.3f, 0, 0.9f));
-            scoreValueText.setColor(ColorRGBA.Orange);
-            scoreValueText.setSize(32);
-        } else {
-            scoreBackground.getMaterial().setColor("Color", new ColorRGBA(0.1f, 0.1f, 0.1f, 0.7f));
-            scoreValueText.setColor(ColorRGBA.Yellow);
-            scoreValueText.setSize(28);
+    private void fireHitscan(Vector3f from, Vector3f aim) {
+        rayEnd.set(aim).normalizeLocal().multLocal(config.hitscanRange).addLocal(from);
+
+        rayResults.clear();
+        bulletAppState.getPhysicsSpace().rayTest(from, rayEnd, rayResults);
+
+        // El rayo se detiene en el primer obstaculo; las balas en vuelo no bloquean
+        PhysicsRayTestResult nearest = null;
+        for (PhysicsRayTestResult result : rayResults) {
+            Object target = result.getCollisionObject().getUserObject();
+            if (target instanceof Spatial && liveBullets.contains((Spatial) target)) continue;
+            if (nearest == null || result.getHitFraction() < nearest.getHitFraction()) {
+                nearest = result;
+            }
         }
-    }
+        if (nearest == null) return;
 
-    private void updateLivesDisplay() {
-        if (lives <= 1) {
-            livesBackground.getMaterial().setColor("Color", new ColorRGBA(0.3f, 0, 0, 0.9f));
-            livesValueText.setColor(ColorRGBA.Red);
-            livesValueText.setSize(32);
-        } else {
-            livesBackground.getMaterial().setColor("Color", new ColorRGBA(0.1f, 0.1f, 0.1f, 0.7f));
-            livesValueText.setColor(new ColorRGBA(1, 0.6f, 0.6f, 1));
-            livesValueText.setSize(28);
+        Object target = nearest.getCollisionObject().getUserObject();
+        int id = target instanceof Spatial ? enemies.idOf((Spatial) target) : -1;
+        if (id >= 0) {
+            hitEnemy(id, WeaponMode.HITSCAN);
         }
     }
 
+    private void updateHUD() {
+        hud.setScore(score);
+        hud.setLives(lives);
+        // Los que faltan por crear tambien cuentan
+        hud.setEnemies(enemies.size() + waveSpawner.getPending());
+    }
+
     private void addScore(int points) {
         score += points;
         if (score % 10 == 0) enemySpeed += 0.5f;
@@ -423,211 +633,193 @@ public class Main extends SimpleApplication {
 
     private void loseLife() {
         lives--;
+        stats.livesLost++;
         updateHUD();
         if (lives <= 0 && !isGameOver) {
             isGameOver = true;
-            gameOverText.setLocalTranslation(
-                settings.getWidth()/2 - gameOverText.getLineWidth()/2, 
-                settings.getHeight()/2 + gameOverText.getLineHeight(), 
-                0
-            );
-            guiNode.attachChild(gameOverText);
+            stats.gamesOver++;
+            hud.showGameOver();
+            // Los enemigos que quedan vuelven al pool en el reinicio
+            nextWaveSeed = rand.nextLong();
+            waveLoader.prepare(extraCowboys(waveSize(config.startLevel), enemies.size()));
         }
     }
 
     private void showLevelComplete() {
-        levelCompleteText.setText("LEVEL " + currentLevel + " COMPLETE!");
-        levelCompleteText.setLocalTranslation(
-            settings.getWidth()/2 - levelCompleteText.getLineWidth()/2, 
-            settings.getHeight()/2 + levelCompleteText.getLineHeight(), 
-            0
-        );
-        guiNode.attachChild(levelCompleteText);
+        hud.showLevelComplete(currentLevel);
         showingLevelComplete = true;
         levelCompleteTimer = 0f;
+        // Se aprovecha la pausa para montar la siguiente oleada
+        nextWaveSeed = rand.nextLong();
+        waveLoader.prepare(extraCowboys(waveSize(currentLevel), 0));
+    }
+
+    /**
+     * Vaqueros que habra que construir para una oleada de {@code count} si
+     * antes vuelven al pool otros {@code returning}.
+     */
+    private int extraCowboys(int count, int returning) {
+        int reusable = config.enemyPool ? enemyPool.size() + returning : 0;
+        return Math.max(0, count - reusable);
     }
 
     private void resetGame() {
+        transitionStart = System.nanoTime();
+        transitionAfterGameOver = true;
         score = 0;
         lives = 3;
-        currentLevel = 1;
+        currentLevel = config.startLevel;
         enemySpeed = 3f;
         isGameOver = false;
         gameOverTimer = 0;
-        guiNode.detachChild(gameOverText);
-        guiNode.detachChild(levelCompleteText);
+        hud.hideMessages();
         showingLevelComplete = false;
 
-        for (Spatial bullet : activeBullets) {
-            bulletAppState.getPhysicsSpace().remove(bullet.getControl(RigidBodyControl.class));
-            rootNode.detachChild(bullet);
-        }
-        activeBullets.clear();
+        liveBullets.clear(bulletPool::release);
+        hitEvents.clear();
+        logger.log(Level.INFO, "Reinicio de partida: {0}", bulletPool);
 
-        for (Node cowboy : enemyCowboys) {
-            bulletAppState.getPhysicsSpace().remove(cowboy.getControl(RigidBodyControl.class));
-            rootNode.detachChild(cowboy);
+        waveSpawner.cancel();
+        for (int i = enemies.size() - 1; i >= 0; i--) {
+            removeEnemy(i);
         }
-        enemyCowboys.clear();
-        enemyHealth.clear();
-        enemyHealthBars.clear();
-        enemyMovementPatterns.clear();
-        enemyMovementTimers.clear();
 
         createEnemyCowboys();
         updateHUD();
     }
 
-    private void updateEnemyMovement(float tpf) {
-        ArrayList<Node> toRemoveCowboys = new ArrayList<>();
-        for (Node cowboy : enemyCowboys) {
-            RigidBodyControl physics = cowboy.getControl(RigidBodyControl.class);
-            if (physics != null) {
-                Vector3f currentPos = physics.getPhysicsLocation();
-                Vector3f towerPos = tower.getWorldTranslation();
-                Vector3f direction = towerPos.subtract(currentPos).normalize();
-                
-                cowboy.getChild(0).lookAt(towerPos, Vector3f.UNIT_Y);
-                
-                MovementPattern pattern = enemyMovementPatterns.get(cowboy);
-                float timer = enemyMovementTimers.get(cowboy);
-                timer += tpf;
-                enemyMovementTimers.put(cowboy, timer);
-                
-                Vector3f horizontalVelocity;
-                float distanceToTower = currentPos.distance(towerPos);
-                
-                switch (pattern) {
-                    case SINUSOIDAL:
-                        float amplitude = 5f * (distanceToTower / 120f);
-                        float frequency = 2f;
-                        float lateralMovement = amplitude * FastMath.sin(timer * frequency);
-                        
-                        Vector3f perpendicular = new Vector3f(-direction.z, 0, direction.x).normalize();
-                        
-                        float speedFactor = 0.5f + (distanceToTower / 120f) * 0.5f;
-                        horizontalVelocity = direction.mult(enemySpeed * speedFactor)
-                                           .add(perpendicular.mult(lateralMovement));
-                        break;
-                        
-                    case SPIRAL:
-                        float spiralRadius = 8f * (distanceToTower / 120f);
-                        float spiralSpeed = 3f;
-                        
-                        Vector3f spiralOffset = new Vector3f(
-                            FastMath.cos(timer * spiralSpeed) * spiralRadius,
-                            0,
-                            FastMath.sin(timer * spiralSpeed) * spiralRadius
-                        );
-                        
-                        float spiralSpeedFactor = 1f + (1 - distanceToTower / 120f) * 2f;
-                        horizontalVelocity = direction.mult(enemySpeed * spiralSpeedFactor)
-                                           .add(spiralOffset.normalize().mult(2f));
-                        break;
-                        
-                    case RANDOM:
-                        if (timer > 1f) {
-                            timer = 0f;
-                            enemyMovementTimers.put(cowboy, timer);
-                            
-                            float randomness = 0.7f * (distanceToTower / 120f);
-                            Vector3f randomOffset = new Vector3f(
-                                rand.nextFloat() * 2 - 1,
-                                0,
-                                rand.nextFloat() * 2 - 1
-                            ).normalize().mult(randomness);
-                            
-                            direction = direction.add(randomOffset).normalize();
-                        }
-                        
-                        float randomSpeedFactor = 0.7f + rand.nextFloat() * 0.6f;
-                        horizontalVelocity = direction.mult(enemySpeed * randomSpeedFactor);
-                        break;
-                        
-                    case ZIGZAG:
-                        if (timer > 1.5f) {
-                            timer = 0f;
-                            enemyMovementTimers.put(cowboy, timer);
-                            
-                            Vector3f zigzagOffset = new Vector3f(
-                                rand.nextFloat() > 0.5f ? 1 : -1,
-                                0,
-                                rand.nextFloat() > 0.5f ? 1 : -1
-                            ).normalize().mult(3f);
-                            
-                            direction = direction.add(zigzagOffset).normalize();
-                        }
-                        
-                        horizontalVelocity = direction.mult(enemySpeed * 1.2f);
-                        break;
-                        
-                    case CIRCLE_APPROACH:
-                        float circleRadius = 10f * (distanceToTower / 120f);
-                        float circleSpeed = 2f;
-                        
-                        Vector3f circleOffset = new Vector3f(
-                            FastMath.cos(timer * circleSpeed) * circleRadius,
-                            0,
-                            FastMath.sin(timer * circleSpeed) * circleRadius
-                        );
-                        
-                        float approachSpeed = enemySpeed * 0.7f;
-                        float circleComponentSpeed = enemySpeed * 0.5f;
-                        horizontalVelocity = direction.mult(approachSpeed)
-                                               .add(circleOffset.normalize().mult(circleComponentSpeed));
-                        break;
-                        
-                    case RETREAT_AND_ADVANCE:
-                        if (timer > 2f) {
-                            timer = 0f;
-                            enemyMovementTimers.put(cowboy, timer);
-                            
-                            if (rand.nextFloat() < 0.3f) {
-                                direction = direction.mult(-1);
-                            } else {
-                                direction = direction.mult(1.5f);
-                            }
-                        }
-                        
-                        horizontalVelocity = direction.mult(enemySpeed * 0.8f);
-                        break;
-                        
-                    default:
-                        horizontalVelocity = direction.mult(enemySpeed);
-                        break;
-                }
-                
-                float verticalMovement = FastMath.sin(timer * 3f) * 0.3f;
-                physics.setLinearVelocity(new Vector3f(
-                    horizontalVelocity.x,
-                    verticalMovement,
-                    horizontalVelocity.z
-                ));
-                
-                if (distanceToTower < 5f) {
-                    toRemoveCowboys.add(cowboy);
-                    loseLife();
-                }
+    /** Movimiento de un frame de todos los enemigos; las pruebas lo llaman directamente. */
+    void updateEnemyMovement(float tpf) {
+        Vector3f towerPos = tower.getWorldTranslation();
+        enemyLod.schedule(enemies, tpf);
+        for (int i = 0; i < enemies.size(); i++) {
+            // Los cinematicos ya tienen en posX/posY/posZ la posicion que les dio EnemyLod
+            if (!enemies.bodies[i].isKinematic()) {
+                Vector3f currentPos = enemies.bodies[i].getPhysicsLocation(scratchPosition);
+                enemies.posX[i] = currentPos.x;
+                enemies.posY[i] = currentPos.y;
+                enemies.posZ[i] = currentPos.z;
+            }
+            
+            if (enemies.lodDue[i]) {
+                enemies.nodes[i].getChild(0).lookAt(towerPos, Vector3f.UNIT_Y);
             }
         }
+
+        if (crowdGrid != null) {
+            crowdGrid.rebuild(enemies.posX, enemies.posZ, enemies.size());
+        }
+        enemyAi.steerAll(enemies, towerPos.x, towerPos.y, towerPos.z, enemySpeed, tpf);
+        enemyLod.apply(enemies, ground, tpf);
         
-        for (Node cowboy : toRemoveCowboys) {
-            removeEnemy(cowboy);
+        // Recorrido inverso: al quitar un enemigo su hueco lo ocupa uno ya procesado.
+        // Los cercanos se recalculan cada frame, asi que su distancia a la torre esta al dia
+        for (int i = enemies.size() - 1; i >= 0; i--) {
+            if (enemies.towerDistance[i] < 5f) {
+                removeEnemy(i);
+                loseLife();
+            }
+        }
+    }
+
+    private void removeEnemy(int id) {
+        Node cowboy = enemies.nodes[id];
+        bulletAppState.getPhysicsSpace().remove(enemies.bodies[id]);
+        cowboy.removeFromParent();
+        if (config.enemyPool) {
+            enemyPool.release(cowboy);
+        }
+        enemies.remove(id);
+        healthBars.remove(id);
+    }
+
+    @Override
+    public void destroy() {
+        if (waveLoader != null) {
+            waveLoader.shutdown();
+        }
+        if (netServer != null) {
+            netServer.close();
+        }
+        if (netClient != null) {
+            netClient.close();
         }
+        if (recorder != null) {
+            try {
+                recorder.close();
+                logger.log(Level.INFO, "Grabacion {0}: {1} frames en {2} bytes",
+                        new Object[]{config.recordInput, recorder.getTicks(), recorder.getBytes()});
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "No se pudo cerrar la grabacion", e);
+            }
+        }
+        super.destroy();
+    }
+
+    FrameProfiler getProfiler() {
+        return profiler;
+    }
+
+    /** Servidor de red, o null si la partida no lo es. */
+    NetServer getNetServer() {
+        return netServer;
     }
 
-    private void removeEnemy(Node cowboy) {
-        enemyCowboys.remove(cowboy);
-        enemyHealth.remove(cowboy);
-        enemyHealthBars.remove(cowboy);
-        enemyMovementPatterns.remove(cowboy);
-        enemyMovementTimers.remove(cowboy);
-        bulletAppState.getPhysicsSpace().remove(cowboy.getControl(RigidBodyControl.class));
-        rootNode.detachChild(cowboy);
+    /**
+     * El frame entero: estados, simpleUpdate, paso fisico y render. Con la
+     * fisica PARALLEL incluye la espera al paso en postRender; no incluye la
+     * espera del contexto para no pasar de sus fps.
+     */
+    @Override
+    public void update() {
+        long start = System.nanoTime();
+        super.update();
+        stats.recordFrame(System.nanoTime() - start);
     }
 
     @Override
     public void simpleUpdate(float tpf) {
+        GameEvents.Frame frameEvent = new GameEvents.Frame();
+        frameEvent.begin();
+        long updateStart = System.nanoTime();
+        if (script != null) {
+            script.update(this, tpf);
+        }
+        if (recorder != null) {
+            recorder.record(tick, isShooting, weaponMode, cam.getLocation(), cam.getRotation());
+        }
+        profiler.lap(FrameProfiler.SCRIPT, updateStart);
+        updateGame(tpf);
+        hud.flush();
+        if (netServer != null) {
+            netServer.update(tpf, enemies, score, lives, currentLevel, enemies.size() + waveSpawner.getPending());
+        }
+        tick++;
+        long updateNanos = System.nanoTime() - updateStart;
+        stats.recordUpdate(updateNanos);
+        if (profiler.isEnabled()) {
+            profiler.record(FrameProfiler.FRAME, updateNanos);
+        }
+
+        frameEvent.end();
+        if (frameEvent.shouldCommit()) {
+            frameEvent.level = currentLevel;
+            frameEvent.enemies = enemies.size();
+            frameEvent.bullets = liveBullets.size();
+            frameEvent.commit();
+        }
+    }
+
+    private void updateGame(float tpf) {
+        if (netClient != null) {
+            updateRemoteGame(tpf);
+            return;
+        }
+        if (netServer != null && (isGameOver || showingLevelComplete)) {
+            // Lo disparado durante la pausa no se acumula para despues
+            netServer.discardFire();
+        }
+
         if (isGameOver) {
             gameOverTimer += tpf;
             if (gameOverTimer >= 5f) resetGame();
@@ -637,118 +829,124 @@ public class Main extends SimpleApplication {
         if (showingLevelComplete) {
             levelCompleteTimer += tpf;
             if (levelCompleteTimer >= 2f) {
-                guiNode.detachChild(levelCompleteText);
+                hud.hideMessages();
                 showingLevelComplete = false;
+                transitionStart = System.nanoTime();
+                transitionAfterGameOver = false;
                 createEnemyCowboys();
             }
             return;
         }
 
+        // Los impactos del paso fisico anterior se procesan antes de reciclar
+        // o disparar balas, para que un evento viejo no caiga en una bala reutilizada
+        long t = profiler.start();
+        checkCollisions();
+        t = profiler.lap(FrameProfiler.COLLISIONS, t);
+
+        bulletClock += tpf;
+        liveBullets.expire(bulletClock, expireBullet);
+        t = profiler.lap(FrameProfiler.BULLETS, t);
+
         timeSinceLastShot += tpf;
-        if (isShooting && timeSinceLastShot >= shootCooldown) {
-            shootBullet();
+        if (isShooting && timeSinceLastShot >= config.shootCooldown) {
+            fire(weaponMode, cam.getLocation(), cam.getDirection());
             timeSinceLastShot = 0;
         }
-
-        ArrayList<Spatial> toRemoveBullets = new ArrayList<>();
-        for (Spatial bullet : activeBullets) {
-            if (bullet.getLocalTranslation().y < -10) {
-                toRemoveBullets.add(bullet);
-            }
-        }
-        for (Spatial bullet : toRemoveBullets) {
-            activeBullets.remove(bullet);
-            bulletAppState.getPhysicsSpace().remove(bullet.getControl(RigidBodyControl.class));
-            rootNode.detachChild(bullet);
+        if (netServer != null) {
+            fireRemote();
         }
+        t = profiler.lap(FrameProfiler.FIRE, t);
 
+        updateWaveSpawn();
+        t = profiler.lap(FrameProfiler.SPAWN, t);
         updateEnemyMovement(tpf);
-        checkCollisions();
+        t = profiler.lap(FrameProfiler.ENEMIES, t);
+        updateHealthBars();
+        t = profiler.lap(FrameProfiler.HEALTH_BARS, t);
         updateHUD();
+        profiler.lap(FrameProfiler.HUD, t);
 
-        if (enemyCowboys.isEmpty() && !isGameOver && !showingLevelComplete) {
+        if (enemies.isEmpty() && !waveSpawner.isSpawning() && !isGameOver && !showingLevelComplete) {
             currentLevel++;
             showLevelComplete();
         }
     }
 
-    private void checkCollisions() {
-        Iterator<Spatial> bulletIterator = activeBullets.iterator();
-        while (bulletIterator.hasNext()) {
-            Spatial bullet = bulletIterator.next();
-            Iterator<Node> cowboyIterator = enemyCowboys.iterator();
-            while (cowboyIterator.hasNext()) {
-                Node cowboy = cowboyIterator.next();
-                if (bullet.getWorldBound().intersects(cowboy.getWorldBound())) {
-                    int maxHealth = 3;
-                    int health = enemyHealth.getOrDefault(cowboy, maxHealth);
-                    health--;
-                    
-                    HealthBar healthBar = enemyHealthBars.get(cowboy);
-                    if (healthBar != null) {
-                        healthBar.update(health, maxHealth);
-                    }
-                    
-                    if (health <= 0) {
-                        bulletAppState.getPhysicsSpace().remove(cowboy.getControl(RigidBodyControl.class));
-                        rootNode.detachChild(cowboy);
-                        cowboyIterator.remove();
-                        enemyHealth.remove(cowboy);
-                        enemyHealthBars.remove(cowboy);
-                        enemyMovementPatterns.remove(cowboy);
-                        enemyMovementTimers.remove(cowboy);
-                        addScore(10);
-                    } else {
-                        enemyHealth.put(cowboy, health);
-                    }
-
-                    bulletAppState.getPhysicsSpace().remove(bullet.getControl(RigidBodyControl.class));
-                    rootNode.detachChild(bullet);
-                    bulletIterator.remove();
-                    break;
-                }
-            }
+    /** Frame del cliente: solo se dispara y se copia al HUD lo que dice el servidor. */
+    private void updateRemoteGame(float tpf) {
+        timeSinceLastShot += tpf;
+        if (isShooting && timeSinceLastShot >= config.shootCooldown) {
+            stats.shotsFired++;
+            netClient.fire(weaponMode, cam.getLocation(), cam.getDirection());
+            timeSinceLastShot = 0;
         }
-        
-        for (Node cowboy : enemyCowboys) {
-            HealthBar healthBar = enemyHealthBars.get(cowboy);
-            if (healthBar != null) {
-                healthBar.getNode().lookAt(cam.getLocation(), Vector3f.UNIT_Y);
+
+        SnapshotInterpolator view = remoteEnemies.getView();
+        hud.setScore(view.score);
+        hud.setLives(view.lives);
+        hud.setEnemies(view.total);
+    }
+
+    private void checkCollisions() {
+        for (int i = 0; i < hitEvents.size(); i++) {
+            Spatial bullet = hitEvents.getBullet(i);
+            // La bala ya se consumio con otro contacto de este mismo impacto o caduco
+            if (!liveBullets.remove(bullet)) continue;
+
+            bulletPool.release(bullet);
+
+            int id = enemies.idOf(hitEvents.getEnemy(i));
+            if (id >= 0) {
+                hitEnemy(id, WeaponMode.PROJECTILE);
             }
         }
+        hitEvents.clear();
     }
 
-    private class HealthBar {
-        private Node barNode;
-        private Geometry background;
-        private Geometry healthFill;
-        private float maxWidth = 2f;
-        private float height = 0.2f;
-        private float offsetY = 2f;
+    /** Devuelve al pool una bala que se retira sin impactar (caducada o expulsada por el limite). */
+    private void expireBullet(Spatial bullet, String reason, float age) {
+        bulletPool.release(bullet);
 
-        public HealthBar(Material bgMat, Material fillMat) {
-            background = new Geometry("HealthBarBG", new Box(maxWidth/2, height/2, 0.01f));
-            background.setMaterial(bgMat);
-            
-            healthFill = new Geometry("HealthFill", new Box(maxWidth/2, height/2, 0.02f));
-            healthFill.setMaterial(fillMat);
-            
-            barNode = new Node("HealthBar");
-            barNode.attachChild(background);
-            barNode.attachChild(healthFill);
-            barNode.setLocalTranslation(0, offsetY, 0);
+        GameEvents.BulletExpiry expiryEvent = new GameEvents.BulletExpiry();
+        if (expiryEvent.shouldCommit()) {
+            expiryEvent.reason = reason;
+            expiryEvent.age = age;
+            expiryEvent.commit();
         }
+    }
 
-        public void update(float currentHealth, float maxHealth) {
-            float healthPercent = currentHealth / maxHealth;
-            float currentWidth = maxWidth * healthPercent;
-            
-            healthFill.setLocalScale(healthPercent, 1, 1);
-            healthFill.setLocalTranslation(-maxWidth/2 + currentWidth/2, 0, 0.01f);
+    private void updateHealthBars() {
+        for (int i = 0; i < enemies.size(); i++) {
+            healthBars.setPosition(i, enemies.posX[i], enemies.posY[i], enemies.posZ[i]);
         }
+        healthBars.flush();
+    }
+
+    /** {@code weapon} es el arma del disparo que impacta, no la que lleva el jugador local. */
+    private void hitEnemy(int id, WeaponMode weapon) {
+        int health = --enemies.health[id];
+        healthBars.setHealth(id, (float) health / CowboySpawner.MAX_HEALTH);
 
-        public Node getNode() {
-            return barNode;
+        GameEvents.Hit hitEvent = new GameEvents.Hit();
+        if (hitEvent.shouldCommit()) {
+            hitEvent.weapon = weapon.name();
+            hitEvent.health = health;
+            hitEvent.commit();
+        }
+        
+        if (health <= 0) {
+            removeEnemy(id);
+            stats.kills++;
+            addScore(10);
+            stats.recordKill(tick, score);
+
+            GameEvents.Kill killEvent = new GameEvents.Kill();
+            if (killEvent.shouldCommit()) {
+                killEvent.level = currentLevel;
+                killEvent.score = score;
+                killEvent.commit();
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,10 @@
+package mygame;
+
+/**
+ * Patrones de movimiento de los vaqueros hacia la torre.
+ */
+public enum MovementPattern {
+    SINUSOIDAL, SPIRAL, RANDOM, ZIGZAG, CIRCLE_APPROACH, RETREAT_AND_ADVANCE;
+
+    static final MovementPattern[] VALUES = values();
+}
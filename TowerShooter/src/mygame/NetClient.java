@@ -0,0 +1,86 @@
+package mygame;
+
+import com.jme3.math.Vector3f;
+import com.jme3.network.Client;
+import com.jme3.network.Message;
+import com.jme3.network.MessageListener;
+import com.jme3.network.Network;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lado cliente de la partida en red: recibe los snapshots en el
+ * {@link SnapshotInterpolator}, confirma cada uno junto con la posicion de
+ * la camara (que el servidor usa como centro de la zona de interes) y envia
+ * los disparos.
+ */
+class NetClient implements MessageListener<Client> {
+
+    private static final Logger logger = Logger.getLogger(NetClient.class.getName());
+
+    private final Client client;
+    private final SnapshotInterpolator interpolator;
+
+    private volatile float viewX, viewY, viewZ;
+    /** Solo los escribe el hilo de red. */
+    private volatile long bytes = 0;
+
+    private NetClient(Client client, GameConfig config) {
+        this.client = client;
+        this.interpolator = new SnapshotInterpolator(config.netTickRate, config.netInterpolationDelay);
+    }
+
+    /** Se conecta a {@code netHost}:{@code netPort}. */
+    static NetClient connect(GameConfig config) throws IOException {
+        NetMessages.register();
+        Client client = Network.connectToServer(NetServer.GAME_NAME, NetServer.PROTOCOL_VERSION,
+                config.netHost, config.netPort);
+        NetClient net = new NetClient(client, config);
+        client.addMessageListener(net, NetMessages.Snapshot.class);
+        client.start();
+        logger.log(Level.INFO, "Conectado a {0}:{1}", new Object[]{config.netHost, config.netPort});
+        return net;
+    }
+
+    @Override
+    public void messageReceived(Client source, Message m) {
+        byte[] data = ((NetMessages.Snapshot) m).data;
+        bytes += data.length;
+        if (interpolator.receive(data, System.nanoTime() / 1e9)) {
+            client.send(new NetMessages.ClientState(interpolator.getLatestTick(), viewX, viewY, viewZ));
+        }
+    }
+
+    /** Posicion de la camara; viaja con la siguiente confirmacion. */
+    void setView(Vector3f location) {
+        viewX = location.x;
+        viewY = location.y;
+        viewZ = location.z;
+    }
+
+    void fire(WeaponMode weapon, Vector3f origin, Vector3f direction) {
+        client.send(new NetMessages.Fire(weapon, origin.x, origin.y, origin.z,
+                direction.x, direction.y, direction.z));
+    }
+
+    SnapshotInterpolator getInterpolator() {
+        return interpolator;
+    }
+
+    /** Bytes de snapshot recibidos (sin las cabeceras del mensaje ni de UDP). */
+    long getBytes() {
+        return bytes;
+    }
+
+    boolean isConnected() {
+        return client.isConnected();
+    }
+
+    void close() {
+        if (client.isConnected()) {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package mygame;
+
+import com.jme3.network.AbstractMessage;
+import com.jme3.network.serializing.Serializable;
+import com.jme3.network.serializing.Serializer;
+
+/**
+ * Mensajes entre servidor y clientes. Los snapshots y el estado del cliente
+ * van por UDP (si se pierde uno, el siguiente lo sustituye); los disparos
+ * van por TCP.
+ */
+final class NetMessages {
+
+    private static boolean registered = false;
+
+    private NetMessages() {
+    }
+
+    /** Registra los mensajes en el serializador; hay que llamarlo antes de crear el servidor o el cliente. */
+    static synchronized void register() {
+        if (registered) return;
+        Serializer.registerClasses(Snapshot.class, ClientState.class, Fire.class);
+        registered = true;
+    }
+
+    /** Enemigos cercanos al cliente, codificados con {@link SnapshotCodec}. */
+    @Serializable
+    static final class Snapshot extends AbstractMessage {
+        byte[] data;
+
+        Snapshot() {
+            super(false);
+        }
+
+        Snapshot(byte[] data) {
+            super(false);
+            this.data = data;
+        }
+    }
+
+    /**
+     * Ultimo snapshot que el cliente ha recibido (la base de la siguiente
+     * diferencia) y posicion de su camara (el centro de su zona de interes).
+     */
+    @Serializable
+    static final class ClientState extends AbstractMessage {
+        int ackTick;
+        float x, y, z;
+
+        ClientState() {
+            super(false);
+        }
+
+        ClientState(int ackTick, float x, float y, float z) {
+            super(false);
+            this.ackTick = ackTick;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+
+    /** Disparo de un cliente; el servidor lo ejecuta como si fuera suyo. */
+    @Serializable
+    static final class Fire extends AbstractMessage {
+        int weapon;
+        float originX, originY, originZ;
+        float dirX, dirY, dirZ;
+
+        Fire() {
+            super(true);
+        }
+
+        Fire(WeaponMode weapon, float originX, float originY, float originZ, float dirX, float dirY, float dirZ) {
+            super(true);
+            this.weapon = weapon.ordinal();
+            this.originX = originX;
+            this.originY = originY;
+            this.originZ = originZ;
+            this.dirX = dirX;
+            this.dirY = dirY;
+            this.dirZ = dirZ;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package mygame;
+
+/**
+ * Papel del juego en una partida en red.
+ */
+public enum NetMode {
+    /** Un solo jugador, sin red (comportamiento original). */
+    OFFLINE,
+    /** Simula los enemigos y las balas, y envia snapshots a los clientes. */
+    SERVER,
+    /** No simula nada: pinta los enemigos que le llegan del servidor y le envia los disparos. */
+    CLIENT
+}
@@ -0,0 +1,292 @@
+package mygame;
+
+import com.jme3.network.ConnectionListener;
+import com.jme3.network.HostedConnection;
+import com.jme3.network.Message;
+import com.jme3.network.MessageListener;
+import com.jme3.network.Network;
+import com.jme3.network.Server;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lado servidor de la partida en red. El juego sigue simulando como siempre y
+ * le pasa el registro de enemigos cada frame; a {@code netTickRate} por
+ * segundo se toma un {@link EnemySnapshot} del mundo y a cada cliente se le
+ * envia la parte que cae en su zona de interes, codificada como diferencia
+ * con el ultimo snapshot que ha confirmado. Los disparos de los clientes se
+ * validan y encolan desde el hilo de red y el juego los ejecuta en su frame.
+ */
+class NetServer implements ConnectionListener, MessageListener<HostedConnection> {
+
+    static final String GAME_NAME = "TowerShooter";
+    static final int PROTOCOL_VERSION = 1;
+
+    private static final Logger logger = Logger.getLogger(NetServer.class.getName());
+    private static final String VIEW_KEY = "view";
+    private static final int TICK_SAMPLES = 4096;
+
+    /** Estado de un cliente conectado. */
+    static final class ClientView {
+        final int id;
+        final EnemySnapshot[] sent = new EnemySnapshot[SnapshotInterpolator.HISTORY];
+        volatile int ackTick = -1;
+        volatile float x, y, z;
+        /** Solo los toca el hilo de red. */
+        boolean hasView = false;
+        double fireTokens;
+        long lastFireNanos;
+        long rejectedFires = 0;
+
+        long bytes = 0;
+        long snapshots = 0;
+        long fullSnapshots = 0;
+        long enemies = 0;
+        int largest = 0;
+
+        ClientView(int id) {
+            this.id = id;
+            for (int i = 0; i < sent.length; i++) {
+                sent[i] = new EnemySnapshot();
+            }
+        }
+    }
+
+    private final Server server;
+    private final float interval;
+    private final float interestRadius;
+    private final int maxEnemies;
+    private final long fireCooldownNanos;
+    private final int fireBurst;
+    private final float fireOriginRadius;
+
+    private final EnemySnapshot world = new EnemySnapshot();
+    private final SnapshotCodec codec = new SnapshotCodec();
+    private final ConcurrentLinkedQueue<NetMessages.Fire> fires = new ConcurrentLinkedQueue<>();
+    /** Todos los clientes que se han conectado, para el informe. */
+    private final ConcurrentLinkedQueue<ClientView> views = new ConcurrentLinkedQueue<>();
+
+    private float sinceTick = 0f;
+    private int tick = 0;
+    private final long[] tickNanos = new long[TICK_SAMPLES];
+    private long ticks = 0;
+
+    private NetServer(Server server, GameConfig config) {
+        this.server = server;
+        this.interval = 1f / config.netTickRate;
+        this.interestRadius = config.netInterestRadius;
+        this.maxEnemies = config.netMaxEnemies;
+        this.fireCooldownNanos = (long) (config.shootCooldown * 1e9);
+        this.fireBurst = Math.max(config.netFireBurst, 1);
+        this.fireOriginRadius = config.netFireOriginRadius;
+    }
+
+    /** Para las pruebas: el servidor sin red, solo con la validacion de disparos. */
+    NetServer(GameConfig config) {
+        this(null, config);
+    }
+
+    /** Abre el puerto {@code netPort} (TCP y UDP) y empieza a aceptar clientes. */
+    static NetServer start(GameConfig config) throws IOException {
+        NetMessages.register();
+        Server server = Network.createServer(GAME_NAME, PROTOCOL_VERSION, config.netPort, config.netPort);
+        NetServer net = new NetServer(server, config);
+        server.addConnectionListener(net);
+        server.addMessageListener(net, NetMessages.ClientState.class, NetMessages.Fire.class);
+        server.start();
+        logger.log(Level.INFO, "Servidor en el puerto {0}, {1} snapshots por segundo",
+                new Object[]{config.netPort, config.netTickRate});
+        return net;
+    }
+
+    @Override
+    public void connectionAdded(Server server, HostedConnection conn) {
+        ClientView view = newView(conn.getId());
+        conn.setAttribute(VIEW_KEY, view);
+        views.add(view);
+        logger.log(Level.INFO, "Cliente {0} conectado desde {1}", new Object[]{conn.getId(), conn.getAddress()});
+    }
+
+    @Override
+    public void connectionRemoved(Server server, HostedConnection conn) {
+        logger.log(Level.INFO, "Cliente {0} desconectado", conn.getId());
+    }
+
+    @Override
+    public void messageReceived(HostedConnection source, Message m) {
+        ClientView view = source.getAttribute(VIEW_KEY);
+        if (view == null) return;
+        if (m instanceof NetMessages.Fire) {
+            NetMessages.Fire fire = (NetMessages.Fire) m;
+            if (acceptFire(view, fire, System.nanoTime())) {
+                fires.add(fire);
+            }
+        } else if (m instanceof NetMessages.ClientState) {
+            NetMessages.ClientState state = (NetMessages.ClientState) m;
+            // Por UDP puede llegar una confirmacion vieja despues de una nueva
+            if (state.ackTick > view.ackTick) {
+                view.ackTick = state.ackTick;
+            }
+            if (finite(state.x, state.y, state.z)) {
+                view.x = state.x;
+                view.y = state.y;
+                view.z = state.z;
+                view.hasView = true;
+            }
+        }
+    }
+
+    ClientView newView(int id) {
+        ClientView view = new ClientView(id);
+        view.fireTokens = fireBurst;
+        view.lastFireNanos = System.nanoTime();
+        return view;
+    }
+
+    /**
+     * Decide si se ejecuta un disparo del cliente y lo corrige si hace falta.
+     * Se rechaza si trae valores no finitos, un arma que no existe o una
+     * direccion nula, si el cliente aun no ha dicho donde esta o si supera el
+     * ritmo de shootCooldown. Ese ritmo es un cubo de {@code netFireBurst}
+     * fichas que se rellena a una por periodo: a la larga no se dispara mas
+     * rapido que en local, pero dos disparos que la red entrega juntos pasan.
+     * El origen se acerca a menos de {@code netFireOriginRadius} de la ultima
+     * posicion que envio el cliente y la direccion se normaliza.
+     */
+    boolean acceptFire(ClientView view, NetMessages.Fire fire, long now) {
+        if (!finite(fire.originX, fire.originY, fire.originZ) || !finite(fire.dirX, fire.dirY, fire.dirZ)
+                || fire.weapon < 0 || fire.weapon >= WeaponMode.VALUES.length || !view.hasView) {
+            view.rejectedFires++;
+            return false;
+        }
+        float dirLength = (float) Math.sqrt(fire.dirX * fire.dirX + fire.dirY * fire.dirY + fire.dirZ * fire.dirZ);
+        if (!(dirLength > 1e-6f) || Float.isInfinite(dirLength)) {
+            view.rejectedFires++;
+            return false;
+        }
+
+        view.fireTokens = Math.min(fireBurst, view.fireTokens + (double) (now - view.lastFireNanos) / fireCooldownNanos);
+        view.lastFireNanos = now;
+        if (view.fireTokens < 1) {
+            view.rejectedFires++;
+            return false;
+        }
+        view.fireTokens -= 1;
+
+        fire.dirX /= dirLength;
+        fire.dirY /= dirLength;
+        fire.dirZ /= dirLength;
+
+        float dx = fire.originX - view.x;
+        float dy = fire.originY - view.y;
+        float dz = fire.originZ - view.z;
+        float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (distance > fireOriginRadius) {
+            float scale = fireOriginRadius / distance;
+            fire.originX = view.x + dx * scale;
+            fire.originY = view.y + dy * scale;
+            fire.originZ = view.z + dz * scale;
+        }
+        return true;
+    }
+
+    private static boolean finite(float x, float y, float z) {
+        return Float.isFinite(x) && Float.isFinite(y) && Float.isFinite(z);
+    }
+
+    /** Siguiente disparo pendiente de un cliente, o null. */
+    NetMessages.Fire pollFire() {
+        return fires.poll();
+    }
+
+    /** Tira los disparos pendientes (pausas entre niveles y game over). */
+    void discardFire() {
+        fires.clear();
+    }
+
+    /**
+     * Avanza el reloj de red y, si toca, envia un snapshot a cada cliente.
+     * Se llama una vez por frame desde el hilo de render.
+     *
+     * @param total enemigos vivos mas los que faltan por crear
+     */
+    void update(float tpf, EnemyRegistry enemies, int score, int lives, int level, int total) {
+        sinceTick += tpf;
+        if (sinceTick < interval) return;
+        // Tras un frame muy largo no se intenta recuperar los ticks perdidos
+        sinceTick = Math.min(sinceTick - interval, interval);
+
+        long start = System.nanoTime();
+        world.capture(enemies, ++tick);
+        world.score = score;
+        world.lives = lives;
+        world.level = level;
+        world.total = total;
+
+        for (HostedConnection conn : server.getConnections()) {
+            ClientView view = conn.getAttribute(VIEW_KEY);
+            if (view == null) continue;
+
+            EnemySnapshot current = view.sent[tick % view.sent.length];
+            current.selectAround(world, view.x, view.z, interestRadius, maxEnemies);
+            int ack = view.ackTick;
+            EnemySnapshot baseline = null;
+            if (ack > 0 && tick - ack < view.sent.length) {
+                baseline = view.sent[ack % view.sent.length];
+                if (baseline.tick != ack) baseline = null;
+            }
+
+            byte[] data = codec.encode(current, baseline);
+            conn.send(new NetMessages.Snapshot(data));
+            view.bytes += data.length;
+            view.snapshots++;
+            view.enemies += current.count;
+            view.largest = Math.max(view.largest, data.length);
+            if (baseline == null) view.fullSnapshots++;
+        }
+        tickNanos[(int) (ticks % TICK_SAMPLES)] = System.nanoTime() - start;
+        ticks++;
+    }
+
+    int getTick() {
+        return tick;
+    }
+
+    void close() {
+        if (server.isRunning()) {
+            server.close();
+        }
+    }
+
+    /** Tiempo del tick de red (captura, interes, codificacion y envio) y trafico por cliente. */
+    String summary(double seconds) {
+        StringBuilder summary = new StringBuilder();
+        int samples = (int) Math.min(ticks, TICK_SAMPLES);
+        if (samples > 0) {
+            long[] sorted = Arrays.copyOf(tickNanos, samples);
+            Arrays.sort(sorted);
+            long sum = 0;
+            for (long nanos : sorted) sum += nanos;
+            summary.append(String.format(Locale.ROOT, "Tick de red: %d ticks, media %.3f ms, p99 %.3f ms, peor %.3f ms%n",
+                    ticks, sum / 1e6 / samples, sorted[(int) Math.ceil(0.99 * samples) - 1] / 1e6,
+                    sorted[samples - 1] / 1e6));
+        }
+        summary.append("cliente  snapshots  completos  enemigos/snap  bytes/snap  mayor  KB/s   disparos rechazados\n");
+        for (ClientView view : views) {
+            appendView(summary, view, seconds);
+        }
+        return summary.toString();
+    }
+
+    private static void appendView(StringBuilder summary, ClientView view, double seconds) {
+        long snapshots = Math.max(view.snapshots, 1);
+        summary.append(String.format(Locale.ROOT, "%7d  %9d  %9d  %13.1f  %10.1f  %5d  %5.2f  %d%n",
+                view.id, view.snapshots, view.fullSnapshots, (double) view.enemies / snapshots,
+                (double) view.bytes / snapshots, view.largest, view.bytes / 1024.0 / seconds, view.rejectedFires));
+    }
+}
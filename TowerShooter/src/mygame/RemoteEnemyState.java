@@ -0,0 +1,144 @@
+package mygame;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.BaseAppState;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import com.jme3.scene.instancing.InstancedNode;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Pinta en el cliente los enemigos que envia el servidor, en las posiciones
+ * interpoladas del {@link SnapshotInterpolator}. Los nodos se emparejan con
+ * los enemigos por id de red recorriendo las dos listas ordenadas, y los que
+ * desaparecen se guardan para los siguientes, como en el {@link EnemyPool}.
+ */
+class RemoteEnemyState extends BaseAppState {
+
+    private final NetClient net;
+    private final CowboyTemplateCache templates;
+    private final HealthBarBatch healthBars;
+    private final Node parent;
+    private final Vector3f lookTarget = new Vector3f();
+
+    private int[] shownIds = new int[64];
+    private Node[] shown = new Node[64];
+    private int shownCount = 0;
+    private int[] nextIds = new int[64];
+    private Node[] next = new Node[64];
+    private final ArrayDeque<Node> free = new ArrayDeque<>();
+
+    RemoteEnemyState(NetClient net, CowboyTemplateCache templates, HealthBarBatch healthBars, Node parent,
+            Vector3f tower) {
+        this.net = net;
+        this.templates = templates;
+        this.healthBars = healthBars;
+        this.parent = parent;
+        this.lookTarget.set(tower);
+    }
+
+    /** Vista del ultimo frame: puntuacion, vidas y enemigos del servidor. */
+    SnapshotInterpolator getView() {
+        return net.getInterpolator();
+    }
+
+    @Override
+    protected void initialize(Application app) {
+    }
+
+    @Override
+    protected void cleanup(Application app) {
+        for (int i = 0; i < shownCount; i++) {
+            shown[i].removeFromParent();
+        }
+        shownCount = 0;
+        healthBars.clear();
+        healthBars.flush();
+    }
+
+    @Override
+    protected void onEnable() {
+    }
+
+    @Override
+    protected void onDisable() {
+    }
+
+    @Override
+    public void update(float tpf) {
+        SnapshotInterpolator view = net.getInterpolator();
+        view.sample(System.nanoTime() / 1e9);
+        net.setView(getApplication().getCamera().getLocation());
+
+        if (next.length < view.count) {
+            int capacity = Math.max(view.count, next.length * 2);
+            nextIds = Arrays.copyOf(nextIds, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        int s = 0;
+        for (int k = 0; k < view.count; k++) {
+            int id = view.ids[k];
+            while (s < shownCount && shownIds[s] < id) {
+                hide(shown[s++]);
+            }
+            Node cowboy;
+            if (s < shownCount && shownIds[s] == id) {
+                cowboy = shown[s++];
+            } else {
+                cowboy = show();
+            }
+            cowboy.setLocalTranslation(view.x[k], view.y[k], view.z[k]);
+            cowboy.getChild(0).lookAt(lookTarget, Vector3f.UNIT_Y);
+            nextIds[k] = id;
+            next[k] = cowboy;
+        }
+        while (s < shownCount) {
+            hide(shown[s++]);
+        }
+        Arrays.fill(shown, 0, shownCount, null);
+
+        int[] ids = shownIds;
+        shownIds = nextIds;
+        nextIds = ids;
+        Node[] nodes = shown;
+        shown = next;
+        next = nodes;
+        shownCount = view.count;
+
+        updateHealthBars(view);
+        if (parent instanceof InstancedNode) {
+            ((InstancedNode) parent).instance();
+        }
+    }
+
+    private void updateHealthBars(SnapshotInterpolator view) {
+        while (healthBars.size() < view.count) {
+            healthBars.add(0, 0, 0);
+        }
+        while (healthBars.size() > view.count) {
+            healthBars.remove(healthBars.size() - 1);
+        }
+        for (int k = 0; k < view.count; k++) {
+            healthBars.setPosition(k, view.x[k], view.y[k], view.z[k]);
+            healthBars.setHealth(k, (float) view.health[k] / CowboySpawner.MAX_HEALTH);
+        }
+        healthBars.flush();
+    }
+
+    private Node show() {
+        Node cowboy = free.poll();
+        if (cowboy == null) {
+            cowboy = new Node("RemoteCowboy");
+            cowboy.attachChild(templates.createModel());
+        }
+        parent.attachChild(cowboy);
+        return cowboy;
+    }
+
+    private void hide(Node cowboy) {
+        cowboy.removeFromParent();
+        free.push(cowboy);
+    }
+}
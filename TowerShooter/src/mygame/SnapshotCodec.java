@@ -0,0 +1,249 @@
+package mygame;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Codifica un {@link EnemySnapshot} como diferencia con otro que el cliente
+ * ya tiene (la base, el ultimo que ha confirmado). Solo viajan los enemigos
+ * nuevos, los que han cambiado y los ids de los que ya no estan; de cada
+ * enemigo que cambia, solo los campos que cambian, como diferencia con la
+ * base en varint zigzag. Sin base se envia todo como enemigos nuevos.
+ *
+ * Formato: tick, base + 1 (0 sin base), puntuacion, vidas, nivel, total,
+ * numero de quitados y sus ids, numero de cambios y, por cada uno, el salto
+ * de id desde el anterior, una mascara de campos y los campos marcados.
+ * Todos los enteros van en varint.
+ */
+class SnapshotCodec {
+
+    static final int FIELD_X = 1;
+    static final int FIELD_Y = 2;
+    static final int FIELD_Z = 4;
+    static final int FIELD_HEALTH = 8;
+    static final int FIELD_PATTERN = 16;
+    /** Enemigo que no esta en la base: lleva todos los campos en valor absoluto. */
+    static final int FIELD_NEW = 32;
+
+    private byte[] buffer = new byte[1024];
+    private int position;
+    private int[] removed = new int[64];
+
+    /** Codifica {@code current}; {@code baseline} puede ser null para enviarlo completo. */
+    byte[] encode(EnemySnapshot current, EnemySnapshot baseline) {
+        position = 0;
+        putVarInt(current.tick);
+        putVarInt(baseline != null ? baseline.tick + 1 : 0);
+        putVarInt(current.score);
+        putVarInt(current.lives);
+        putVarInt(current.level);
+        putVarInt(current.total);
+
+        int removedCount = 0;
+        if (baseline != null) {
+            int c = 0;
+            for (int b = 0; b < baseline.count; b++) {
+                int id = baseline.ids[b];
+                while (c < current.count && current.ids[c] < id) c++;
+                if (c == current.count || current.ids[c] != id) {
+                    if (removedCount == removed.length) {
+                        removed = Arrays.copyOf(removed, removedCount * 2);
+                    }
+                    removed[removedCount++] = id;
+                }
+            }
+        }
+        putVarInt(removedCount);
+        int previousId = 0;
+        for (int r = 0; r < removedCount; r++) {
+            putVarInt(removed[r] - previousId);
+            previousId = removed[r];
+        }
+
+        // El numero de cambios se conoce al final; se reserva su sitio con el maximo de bytes
+        int countPosition = position;
+        ensure(5);
+        position += 5;
+        int changed = 0;
+        previousId = 0;
+        int b = 0;
+        for (int c = 0; c < current.count; c++) {
+            int id = current.ids[c];
+            while (baseline != null && b < baseline.count && baseline.ids[b] < id) b++;
+            boolean known = baseline != null && b < baseline.count && baseline.ids[b] == id;
+
+            int mask;
+            if (!known) {
+                mask = FIELD_NEW;
+            } else {
+                mask = (current.x[c] != baseline.x[b] ? FIELD_X : 0)
+                        | (current.y[c] != baseline.y[b] ? FIELD_Y : 0)
+                        | (current.z[c] != baseline.z[b] ? FIELD_Z : 0)
+                        | (current.health[c] != baseline.health[b] ? FIELD_HEALTH : 0)
+                        | (current.pattern[c] != baseline.pattern[b] ? FIELD_PATTERN : 0);
+                if (mask == 0) continue;
+            }
+
+            putVarInt(id - previousId);
+            previousId = id;
+            ensure(1);
+            buffer[position++] = (byte) mask;
+            if (!known) {
+                putVarInt(zigzag(current.x[c]));
+                putVarInt(zigzag(current.y[c]));
+                putVarInt(zigzag(current.z[c]));
+                putVarInt(current.health[c]);
+                putVarInt(current.pattern[c]);
+            } else {
+                if ((mask & FIELD_X) != 0) putVarInt(zigzag(current.x[c] - baseline.x[b]));
+                if ((mask & FIELD_Y) != 0) putVarInt(zigzag(current.y[c] - baseline.y[b]));
+                if ((mask & FIELD_Z) != 0) putVarInt(zigzag(current.z[c] - baseline.z[b]));
+                if ((mask & FIELD_HEALTH) != 0) putVarInt(zigzag(current.health[c] - baseline.health[b]));
+                if ((mask & FIELD_PATTERN) != 0) putVarInt(zigzag(current.pattern[c] - baseline.pattern[b]));
+            }
+            changed++;
+        }
+        putPaddedVarInt(countPosition, changed);
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /** Tick del snapshot codificado en {@code data}. */
+    static int readTick(byte[] data) {
+        return getVarInt(ByteBuffer.wrap(data));
+    }
+
+    /** Tick de la base de {@code data}, o -1 si va completo. */
+    static int readBaseline(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        getVarInt(in);
+        return getVarInt(in) - 1;
+    }
+
+    /**
+     * Decodifica {@code data} sobre {@code baseline} (la que indica
+     * {@link #readBaseline}, o null) y deja el resultado en {@code store},
+     * que no puede ser la base.
+     */
+    static void decode(byte[] data, EnemySnapshot baseline, EnemySnapshot store) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        store.tick = getVarInt(in);
+        int baselineTick = getVarInt(in) - 1;
+        if (baselineTick >= 0 && (baseline == null || baseline.tick != baselineTick)) {
+            throw new IllegalArgumentException("Snapshot " + store.tick + " necesita la base " + baselineTick);
+        }
+        if (baselineTick < 0) {
+            baseline = null;
+        }
+        store.score = getVarInt(in);
+        store.lives = getVarInt(in);
+        store.level = getVarInt(in);
+        store.total = getVarInt(in);
+
+        int removedCount = getVarInt(in);
+        int[] removedIds = new int[removedCount];
+        int id = 0;
+        for (int r = 0; r < removedCount; r++) {
+            id += getVarInt(in);
+            removedIds[r] = id;
+        }
+
+        int changed = getVarInt(in);
+        int baseCount = baseline != null ? baseline.count : 0;
+        store.ensureCapacity(baseCount + changed);
+        store.count = 0;
+
+        // Mezcla ordenada de la base (sin los quitados) y los cambios
+        int b = 0;
+        int r = 0;
+        id = 0;
+        for (int k = 0; k < changed; k++) {
+            id += getVarInt(in);
+            while (b < baseCount && baseline.ids[b] < id) {
+                r = copyUnlessRemoved(baseline, b++, removedIds, r, store);
+            }
+            int mask = in.get() & 0xFF;
+            int n = store.count++;
+            store.ids[n] = id;
+            if ((mask & FIELD_NEW) != 0) {
+                store.x[n] = unzigzag(getVarInt(in));
+                store.y[n] = unzigzag(getVarInt(in));
+                store.z[n] = unzigzag(getVarInt(in));
+                store.health[n] = getVarInt(in);
+                store.pattern[n] = getVarInt(in);
+                if (b < baseCount && baseline.ids[b] == id) b++;
+            } else {
+                if (b == baseCount || baseline.ids[b] != id) {
+                    throw new IllegalArgumentException("Cambio del enemigo " + id + " que no esta en la base");
+                }
+                store.x[n] = baseline.x[b] + ((mask & FIELD_X) != 0 ? unzigzag(getVarInt(in)) : 0);
+                store.y[n] = baseline.y[b] + ((mask & FIELD_Y) != 0 ? unzigzag(getVarInt(in)) : 0);
+                store.z[n] = baseline.z[b] + ((mask & FIELD_Z) != 0 ? unzigzag(getVarInt(in)) : 0);
+                store.health[n] = baseline.health[b] + ((mask & FIELD_HEALTH) != 0 ? unzigzag(getVarInt(in)) : 0);
+                store.pattern[n] = baseline.pattern[b] + ((mask & FIELD_PATTERN) != 0 ? unzigzag(getVarInt(in)) : 0);
+                b++;
+            }
+        }
+        while (b < baseCount) {
+            r = copyUnlessRemoved(baseline, b++, removedIds, r, store);
+        }
+    }
+
+    private static int copyUnlessRemoved(EnemySnapshot baseline, int b, int[] removedIds, int r, EnemySnapshot store) {
+        int id = baseline.ids[b];
+        while (r < removedIds.length && removedIds[r] < id) r++;
+        if (r < removedIds.length && removedIds[r] == id) return r;
+
+        int n = store.count++;
+        store.ids[n] = id;
+        store.x[n] = baseline.x[b];
+        store.y[n] = baseline.y[b];
+        store.z[n] = baseline.z[b];
+        store.health[n] = baseline.health[b];
+        store.pattern[n] = baseline.pattern[b];
+        return r;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private void putVarInt(int value) {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /** Escribe {@code value} en 5 bytes de varint; los bytes de mas llevan 0 con el bit de continuacion. */
+    private void putPaddedVarInt(int at, int value) {
+        for (int i = 0; i < 4; i++) {
+            buffer[at + i] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[at + 4] = (byte) value;
+    }
+
+    private static int getVarInt(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private void ensure(int bytes) {
+        if (position + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(position + bytes, buffer.length * 2));
+        }
+    }
+}
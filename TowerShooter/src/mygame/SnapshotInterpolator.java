@@ -0,0 +1,164 @@
+package mygame;
+
+import java.util.Arrays;
+
+/**
+ * Snapshots recibidos por un cliente y la vista interpolada entre ellos. El
+ * cliente pinta el mundo {@code delay} segundos por detras del ultimo
+ * snapshot, asi que casi siempre tiene uno a cada lado del instante que
+ * pinta y mueve a los enemigos con suavidad aunque el servidor solo envie
+ * unos pocos por segundo o se pierda alguno.
+ *
+ * {@link #receive} se llama desde el hilo de red y {@link #sample} desde el
+ * de render; comparten el historial bajo el cerrojo del objeto.
+ */
+class SnapshotInterpolator {
+
+    /** Snapshots guardados; el servidor no usa como base ninguno mas antiguo. */
+    static final int HISTORY = 32;
+
+    private final float tickRate;
+    private final float delay;
+    private final EnemySnapshot[] history = new EnemySnapshot[HISTORY];
+    private int latestTick = -1;
+
+    /** Tiempo del servidor menos tiempo local, suavizado. */
+    private double clockOffset;
+    private boolean hasClock = false;
+
+    private long received = 0;
+    private long discarded = 0;
+
+    // Resultado del ultimo sample
+    int count = 0;
+    int[] ids = new int[64];
+    float[] x = new float[64], y = new float[64], z = new float[64];
+    int[] health = new int[64];
+    int[] pattern = new int[64];
+    int score, lives, level, total;
+
+    SnapshotInterpolator(float tickRate, float delay) {
+        this.tickRate = tickRate;
+        this.delay = delay;
+        for (int i = 0; i < HISTORY; i++) {
+            history[i] = new EnemySnapshot();
+        }
+    }
+
+    /**
+     * Decodifica un snapshot llegado en el instante local {@code now}
+     * (segundos). Se descartan los que llegan desordenados y los que
+     * dependen de una base que ya no esta.
+     *
+     * @return false si se ha descartado
+     */
+    synchronized boolean receive(byte[] data, double now) {
+        int tick = SnapshotCodec.readTick(data);
+        int baselineTick = SnapshotCodec.readBaseline(data);
+        EnemySnapshot baseline = baselineTick >= 0 ? find(baselineTick) : null;
+        EnemySnapshot store = history[tick % HISTORY];
+        if (tick <= latestTick || baselineTick >= 0 && (baseline == null || baseline == store)) {
+            discarded++;
+            return false;
+        }
+
+        SnapshotCodec.decode(data, baseline, store);
+        latestTick = tick;
+        received++;
+
+        double offset = tick / tickRate - now;
+        // Un paquete que llega antes de lo esperado ajusta el reloj; uno retrasado solo lo mueve un poco
+        clockOffset = !hasClock ? offset : Math.max(offset, clockOffset + 0.1 * (offset - clockOffset));
+        hasClock = true;
+        return true;
+    }
+
+    synchronized int getLatestTick() {
+        return latestTick;
+    }
+
+    synchronized long getReceived() {
+        return received;
+    }
+
+    synchronized long getDiscarded() {
+        return discarded;
+    }
+
+    /**
+     * Calcula la vista en el instante local {@code now}: posiciones
+     * interpoladas entre los dos snapshots que rodean now - delay, o el ultimo
+     * si no hay uno posterior. Deja el resultado en los campos publicos.
+     */
+    synchronized void sample(double now) {
+        if (latestTick < 0) {
+            count = 0;
+            return;
+        }
+        double renderTick = (now + clockOffset - delay) * tickRate;
+
+        EnemySnapshot before = null;
+        EnemySnapshot after = null;
+        for (int tick = latestTick; tick > latestTick - HISTORY && tick >= 0; tick--) {
+            EnemySnapshot snapshot = find(tick);
+            if (snapshot == null) continue;
+            if (tick > renderTick) {
+                after = snapshot;
+            } else {
+                before = snapshot;
+                break;
+            }
+        }
+        if (before == null) {
+            before = after;
+            after = null;
+        }
+        EnemySnapshot target = after != null ? after : before;
+        float t = after != null ? (float) ((renderTick - before.tick) / (after.tick - before.tick)) : 1f;
+
+        ensureCapacity(target.count);
+        score = target.score;
+        lives = target.lives;
+        level = target.level;
+        total = target.total;
+        int b = 0;
+        for (int k = 0; k < target.count; k++) {
+            int id = target.ids[k];
+            while (b < before.count && before.ids[b] < id) b++;
+            float x1 = EnemySnapshot.position(target.x[k]);
+            float y1 = EnemySnapshot.position(target.y[k]);
+            float z1 = EnemySnapshot.position(target.z[k]);
+            if (target != before && b < before.count && before.ids[b] == id) {
+                float x0 = EnemySnapshot.position(before.x[b]);
+                float y0 = EnemySnapshot.position(before.y[b]);
+                float z0 = EnemySnapshot.position(before.z[b]);
+                x1 = x0 + (x1 - x0) * t;
+                y1 = y0 + (y1 - y0) * t;
+                z1 = z0 + (z1 - z0) * t;
+            }
+            ids[k] = id;
+            x[k] = x1;
+            y[k] = y1;
+            z[k] = z1;
+            health[k] = target.health[k];
+            pattern[k] = target.pattern[k];
+        }
+        count = target.count;
+    }
+
+    private EnemySnapshot find(int tick) {
+        EnemySnapshot snapshot = history[tick % HISTORY];
+        return snapshot.tick == tick ? snapshot : null;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (ids.length >= capacity) return;
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        z = Arrays.copyOf(z, newCapacity);
+        health = Arrays.copyOf(health, newCapacity);
+        pattern = Arrays.copyOf(pattern, newCapacity);
+    }
+}
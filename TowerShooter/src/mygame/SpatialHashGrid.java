@@ -0,0 +1,122 @@
+package mygame;
+
+import java.util.Arrays;
+
+/**
+ * Rejilla uniforme sobre el plano XZ para buscar enemigos cercanos. Se
+ * reconstruye entera cada frame con una ordenacion por cuentas: los indices
+ * quedan agrupados por celda en {@link #items}, y la celda {@code c} ocupa
+ * {@code items[cellStart[c]]} a {@code items[cellStart[c + 1] - 1]}. Lo que cae
+ * fuera del area se guarda en la celda del borde, asi que las consultas
+ * siguen siendo correctas (solo mas lentas) lejos de la torre.
+ *
+ * Reconstruir no crea objetos salvo cuando crece el numero de enemigos, y
+ * consultar no crea ninguno. Entre dos reconstrucciones solo se lee, asi que
+ * se puede consultar desde varios hilos.
+ */
+class SpatialHashGrid {
+
+    private final float cellSize;
+    private final int cols;
+    private final float originX, originZ;
+
+    /** Inicio de cada celda en items; tiene una entrada mas que celdas. */
+    final int[] cellStart;
+    /** Indices de enemigo ordenados por celda. */
+    int[] items = new int[64];
+    private int[] itemCell = new int[64];
+    private int count = 0;
+
+    private float[] xs;
+    private float[] zs;
+
+    /**
+     * @param halfExtent distancia del centro al borde del area cubierta
+     * @param cellSize lado de la celda; conviene que sea el radio de las consultas
+     */
+    SpatialHashGrid(float centerX, float centerZ, float halfExtent, float cellSize) {
+        this.cellSize = cellSize;
+        this.cols = Math.max(1, (int) Math.ceil(2 * halfExtent / cellSize));
+        this.originX = centerX - halfExtent;
+        this.originZ = centerZ - halfExtent;
+        this.cellStart = new int[cols * cols + 1];
+    }
+
+    /** Indexa las posiciones (xs[i], zs[i]) para i en [0, count). Guarda los arreglos para las consultas. */
+    void rebuild(float[] xs, float[] zs, int count) {
+        this.xs = xs;
+        this.zs = zs;
+        this.count = count;
+        if (items.length < count) {
+            int capacity = Math.max(count, items.length * 2);
+            items = new int[capacity];
+            itemCell = new int[capacity];
+        }
+
+        Arrays.fill(cellStart, 0);
+        for (int i = 0; i < count; i++) {
+            int cell = row(zs[i]) * cols + col(xs[i]);
+            itemCell[i] = cell;
+            cellStart[cell + 1]++;
+        }
+        for (int c = 0; c < cols * cols; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        // Se rellena cada celda desde su final; al acabar cellStart[c + 1] apunta al
+        // principio de la celda c y basta con desplazarlo una posicion
+        for (int i = count - 1; i >= 0; i--) {
+            items[--cellStart[itemCell[i] + 1]] = i;
+        }
+        System.arraycopy(cellStart, 1, cellStart, 0, cols * cols);
+        cellStart[cols * cols] = count;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /** Columna de la celda que contiene x, recortada al area. */
+    int col(float x) {
+        int c = (int) ((x - originX) / cellSize);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    /** Fila de la celda que contiene z, recortada al area. */
+    int row(float z) {
+        int r = (int) ((z - originZ) / cellSize);
+        return r < 0 ? 0 : (r >= cols ? cols - 1 : r);
+    }
+
+    /** Celdas por lado. */
+    int cols() {
+        return cols;
+    }
+
+    /**
+     * Escribe en {@code store} los indices a menos de {@code radius} de
+     * (x, z), hasta llenarlo.
+     *
+     * @return cuantos se han escrito
+     */
+    int query(float x, float z, float radius, int[] store) {
+        float radius2 = radius * radius;
+        int found = 0;
+        int minCol = col(x - radius), maxCol = col(x + radius);
+        int minRow = row(z - radius), maxRow = row(z + radius);
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                int cell = r * cols + c;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int i = items[k];
+                    float dx = xs[i] - x;
+                    float dz = zs[i] - z;
+                    if (dx * dx + dz * dz < radius2) {
+                        if (found == store.length) return found;
+                        store[found++] = i;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+}
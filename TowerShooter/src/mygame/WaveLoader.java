@@ -0,0 +1,121 @@
+package mygame;
+
+import com.jme3.app.Application;
+import com.jme3.scene.Node;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Prepara la siguiente oleada en un hilo aparte mientras el juego esta en
+ * una pausa (nivel completado, game over): carga los modelos y monta los
+ * nodos de los vaqueros que no puede dar el {@link EnemyPool}, con su cuerpo
+ * fisico, sin anadirlos a la escena ni al espacio fisico. La posicion y el
+ * resto del estado de cada enemigo se deciden al crearlo. El resultado vuelve
+ * al hilo de render con {@link Application#enqueue(Runnable)}, asi que
+ * {@link #take(int)} y el resto de metodos solo se llaman desde ese hilo.
+ */
+class WaveLoader {
+
+    private static final Logger logger = Logger.getLogger(WaveLoader.class.getName());
+
+    /** Monta el vaquero numero {@code index} sin tocar la escena; se llama desde el hilo del loader. */
+    interface Builder {
+        Node build(int index);
+    }
+
+    /** Vaqueros ya montados, listos para colocar y anadir a la escena. */
+    static final class PreparedWave {
+        final Node[] nodes;
+        private int taken = 0;
+
+        PreparedWave(int count) {
+            nodes = new Node[count];
+        }
+
+        int size() {
+            return nodes.length;
+        }
+
+        /** Siguiente vaquero sin usar, o null si ya se han usado todos. */
+        Node next() {
+            if (taken == nodes.length) return null;
+            Node node = nodes[taken];
+            nodes[taken++] = null;
+            return node;
+        }
+    }
+
+    private final Application app;
+    private final Builder builder;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "wave-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Cada peticion nueva invalida las anteriores que aun no hayan llegado. */
+    private int generation = 0;
+    private PreparedWave ready;
+    private int readyCount = -1;
+
+    WaveLoader(Application app, Builder builder) {
+        this.app = app;
+        this.builder = builder;
+    }
+
+    /** Empieza a montar {@code count} vaqueros en segundo plano. */
+    void prepare(int count) {
+        int requested = ++generation;
+        ready = null;
+        readyCount = -1;
+        executor.execute(() -> {
+            long start = System.nanoTime();
+            PreparedWave wave;
+            try {
+                wave = build(count);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "No se pudo preparar la oleada", e);
+                return;
+            }
+            long nanos = System.nanoTime() - start;
+            app.enqueue(() -> deliver(requested, count, wave, nanos));
+        });
+    }
+
+    private PreparedWave build(int count) {
+        PreparedWave wave = new PreparedWave(count);
+        for (int i = 0; i < count; i++) {
+            wave.nodes[i] = builder.build(i);
+        }
+        return wave;
+    }
+
+    private void deliver(int requested, int count, PreparedWave wave, long nanos) {
+        if (requested != generation) return;
+        ready = wave;
+        readyCount = count;
+        logger.log(Level.INFO, "{0} vaqueros preparados en segundo plano en {1} ms",
+                new Object[]{count, nanos / 1_000_000.0});
+    }
+
+    /**
+     * Entrega los vaqueros preparados si ya han llegado y son los pedidos;
+     * si no, devuelve null y descarta lo que este en camino.
+     */
+    PreparedWave take(int count) {
+        PreparedWave wave = readyCount == count ? ready : null;
+        if (wave == null) {
+            generation++;
+        }
+        ready = null;
+        readyCount = -1;
+        return wave;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
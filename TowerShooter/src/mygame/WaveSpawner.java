@@ -0,0 +1,97 @@
+package mygame;
+
+/**
+ * Reparte la creacion de una oleada entre varios frames. Cada frame crea
+ * enemigos hasta agotar el presupuesto de tiempo o el maximo por frame, y
+ * siempre al menos uno para que la oleada avance aunque el frame vaya lento.
+ */
+class WaveSpawner {
+
+    /** Crea el enemigo numero {@code index} de la oleada. */
+    interface Factory {
+        void spawn(int index);
+    }
+
+    private final Factory factory;
+    private final long budgetNanos;
+    private final int maxPerFrame;
+
+    private int total = 0;
+    private int spawned = 0;
+    private int frames = 0;
+    private long totalNanos = 0;
+    private long worstFrameNanos = 0;
+
+    /**
+     * @param budgetMillis tiempo maximo por frame; 0 o menos crea la oleada entera en un frame
+     * @param maxPerFrame enemigos maximos por frame; 0 sin limite
+     */
+    WaveSpawner(Factory factory, float budgetMillis, int maxPerFrame) {
+        this.factory = factory;
+        this.budgetNanos = budgetMillis > 0 ? (long) (budgetMillis * 1_000_000) : Long.MAX_VALUE;
+        this.maxPerFrame = maxPerFrame > 0 ? maxPerFrame : Integer.MAX_VALUE;
+    }
+
+    /** Encola una oleada nueva; descarta lo que quedara de la anterior. */
+    void start(int count) {
+        total = count;
+        spawned = 0;
+        frames = 0;
+        totalNanos = 0;
+        worstFrameNanos = 0;
+    }
+
+    void cancel() {
+        total = spawned;
+    }
+
+    boolean isSpawning() {
+        return spawned < total;
+    }
+
+    /** Enemigos de la oleada que aun no se han creado. */
+    int getPending() {
+        return total - spawned;
+    }
+
+    /**
+     * Crea la parte de la oleada que cabe en este frame.
+     *
+     * @return true si con este frame la oleada queda completa
+     */
+    boolean update() {
+        if (!isSpawning()) return false;
+
+        long start = System.nanoTime();
+        long elapsed;
+        int count = 0;
+        do {
+            factory.spawn(spawned++);
+            count++;
+            elapsed = System.nanoTime() - start;
+        } while (spawned < total && count < maxPerFrame && elapsed < budgetNanos);
+
+        frames++;
+        totalNanos += elapsed;
+        worstFrameNanos = Math.max(worstFrameNanos, elapsed);
+        return !isSpawning();
+    }
+
+    int getTotal() {
+        return total;
+    }
+
+    /** Frames en los que se ha creado la oleada actual. */
+    int getFrames() {
+        return frames;
+    }
+
+    long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /** Mayor tiempo de creacion dentro de un mismo frame en la oleada actual. */
+    long getWorstFrameNanos() {
+        return worstFrameNanos;
+    }
+}
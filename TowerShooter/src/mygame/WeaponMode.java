@@ -0,0 +1,13 @@
+package mygame;
+
+/**
+ * Modo de disparo del jugador.
+ */
+public enum WeaponMode {
+    /** Balas fisicas que viajan por el escenario (comportamiento original). */
+    PROJECTILE,
+    /** Un rayo instantaneo contra el espacio fisico; no crea ningun cuerpo. */
+    HITSCAN;
+
+    static final WeaponMode[] VALUES = values();
+}
@@ -0,0 +1,76 @@
+package mygame;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BulletPoolTest {
+
+    private static final int CAPACITY = 16;
+    private static final float TPF = 1f / 60f;
+    private static final float SPEED = 50f;
+
+    private PhysicsSpace physicsSpace;
+    private BulletPool pool;
+
+    @Before
+    public void setUp() {
+        physicsSpace = new PhysicsSpace(new Vector3f(-10000, -10000, -10000), new Vector3f(10000, 10000, 10000),
+                PhysicsSpace.BroadphaseType.DBVT);
+        pool = new BulletPool(TestAssets.assetManager(), physicsSpace, new Node("Root"), CAPACITY);
+        pool.prewarm();
+    }
+
+    @Test
+    public void firingAndExpiringDoesNotCreateBullets() {
+        assertEquals(CAPACITY, pool.getCreatedCount());
+
+        // Vida corta para que caduquen muchas durante la prueba
+        LiveBullets live = new LiveBullets(CAPACITY, 0.5f, 1000f);
+        LiveBullets.Sink release = (bullet, reason, age) -> pool.release(bullet);
+        Vector3f origin = new Vector3f(0, 10, 0);
+        Vector3f direction = new Vector3f();
+        float clock = 0f;
+        for (int frame = 0; frame < 600; frame++) {
+            clock += TPF;
+            live.expire(clock, release);
+            if (frame % 3 == 0) {
+                direction.set(frame % 7 - 3, 1, frame % 5 - 2).normalizeLocal();
+                Spatial bullet = pool.acquire(origin, direction, SPEED);
+                live.add(bullet, SPEED, clock, release);
+            }
+            physicsSpace.update(TPF);
+            assertEquals("Balas creadas en el frame " + frame, CAPACITY, pool.getCreatedCount());
+        }
+
+        live.clear(pool::release);
+        assertEquals(CAPACITY, pool.getCreatedCount());
+        assertEquals(0, pool.getMisses());
+        assertEquals(0, pool.getInUse());
+        assertEquals(0, physicsSpace.getRigidBodyList().size());
+    }
+
+    @Test
+    public void burstBeyondCapacityEvictsInsteadOfCreating() {
+        LiveBullets live = new LiveBullets(CAPACITY, 5f, 1000f);
+        LiveBullets.Sink release = (bullet, reason, age) -> pool.release(bullet);
+        Vector3f origin = new Vector3f(0, 10, 0);
+        float clock = 0f;
+        for (int shot = 0; shot < CAPACITY * 4; shot++) {
+            clock += TPF;
+            // Mismo orden que Main.shootBullet
+            live.makeRoom(clock, release);
+            live.add(pool.acquire(origin, Vector3f.UNIT_Z, SPEED), SPEED, clock, release);
+        }
+
+        // Cada disparo con todas ocupadas retira antes la mas antigua
+        assertEquals(CAPACITY, pool.getCreatedCount());
+        assertEquals(CAPACITY, live.size());
+        assertEquals(CAPACITY, pool.getInUse());
+    }
+}
@@ -0,0 +1,200 @@
+package mygame;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.asset.plugins.FileLocator;
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.material.Material;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.SceneGraphVisitorAdapter;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.instancing.InstancedGeometry;
+import com.jme3.scene.instancing.InstancedNode;
+import com.jme3.scene.shape.Box;
+import com.jme3.scene.shape.Quad;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Instancing de la oleada: cuantas geometrias llegan al render (las que no
+ * estan agrupadas en un InstancedGeometry) con y sin InstancedNode, y que
+ * pasa con las partes del modelo cuyo material no admite instancing.
+ */
+public class CowboyTemplateCacheTest {
+
+    private static final int COWBOYS = 100;
+    private static final int RETAINED_COWBOYS = 2000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void instancingDrawsTheWaveAsOneGeometry() {
+        AssetManager assetManager = TestAssets.assetManager();
+
+        Node plain = wave(new Node("Cowboys"), new CowboyTemplateCache(assetManager, false));
+        InstancedNode instanced = wave(new InstancedNode("Cowboys"), new CowboyTemplateCache(assetManager, true));
+        instanced.instance();
+
+        assertEquals(COWBOYS, drawnGeometries(plain));
+        assertEquals(1, drawnGeometries(instanced));
+        assertEquals(1, instancedGeometries(instanced));
+    }
+
+    @Test
+    public void unsupportedMaterialFailsWhenLoadingTheModel() throws IOException {
+        CowboyTemplateCache cache = new CowboyTemplateCache(withHealthBar(false), true);
+        try {
+            cache.getTemplate();
+            fail("Un material sin UseInstancing deberia fallar al cargar la plantilla");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("HealthBar"));
+        }
+    }
+
+    @Test
+    public void neverBatchedGeometryStaysOutOfTheInstances() throws IOException {
+        InstancedNode instanced = wave(new InstancedNode("Cowboys"), new CowboyTemplateCache(withHealthBar(true), true));
+        instanced.instance();
+
+        // El cuerpo de todos en una sola geometria; la barra de cada uno aparte
+        assertEquals(1, instancedGeometries(instanced));
+        assertEquals(1 + COWBOYS, drawnGeometries(instanced));
+    }
+
+    @Test
+    public void instancedWavePlays() throws Exception {
+        GameConfig config = TestGame.config();
+        config.enemiesPerWave = COWBOYS;
+        config.instancedCowboys = true;
+
+        int[] frames = new int[1];
+        TestGame.play(config, (game, tpf) -> {
+            if (game.getEnemyCount() < COWBOYS) return false;
+            if (++frames[0] < 60) return false;
+
+            Spatial cowboys = game.getRootNode().getChild("Cowboys");
+            assertTrue(cowboys instanceof InstancedNode);
+            assertEquals(1, drawnGeometries(cowboys));
+            return true;
+        });
+    }
+
+    /**
+     * Cada vaquero de loadModel lleva sus propios materiales; los clones de la
+     * plantilla los comparten. Se mide lo que queda en el heap con el cuerpo
+     * fisico incluido, como los monta el juego.
+     */
+    @Test
+    public void clonesRetainLessHeapThanLoadedCopies() {
+        AssetManager assetManager = TestAssets.assetManager();
+        CowboySpawner cloned = spawner(assetManager, new CowboyTemplateCache(assetManager, false));
+        CowboySpawner loaded = spawner(assetManager, null);
+        // Que la primera carga y la cache del AssetManager no cuenten en ninguna de las dos
+        cloned.build(0);
+        loaded.build(0);
+
+        long perClone = retainedPerEnemy(cloned);
+        long perLoad = retainedPerEnemy(loaded);
+        assertTrue("Bytes por vaquero: " + perClone + " clonado, " + perLoad + " cargado",
+                perClone < perLoad);
+    }
+
+    private static CowboySpawner spawner(AssetManager assetManager, CowboyTemplateCache templates) {
+        return new CowboySpawner(assetManager, templates, LocomotionMode.DYNAMIC, null, null, null, null, null);
+    }
+
+    /** Heap que siguen ocupando tras una recoleccion los vaqueros de una oleada, por vaquero. */
+    private static long retainedPerEnemy(CowboySpawner spawner) {
+        Node[] wave = new Node[RETAINED_COWBOYS];
+        long before = usedHeapAfterGc();
+        for (int i = 0; i < wave.length; i++) {
+            wave[i] = spawner.build(i);
+        }
+        long after = usedHeapAfterGc();
+        Reference.reachabilityFence(wave);
+        return (after - before) / wave.length;
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        // Varias vueltas hasta que la recoleccion ya no libera nada mas
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+
+    private <T extends Node> T wave(T parent, CowboyTemplateCache templates) {
+        for (int i = 0; i < COWBOYS; i++) {
+            Node cowboy = new Node("Cowboy_" + i);
+            cowboy.attachChild(templates.createModel());
+            cowboy.setLocalTranslation(i * 3f, 0, 0);
+            parent.attachChild(cowboy);
+        }
+        parent.updateGeometricState();
+        return parent;
+    }
+
+    /** Modelo de prueba con una barra de vida hija, con el material sin instancing del juego. */
+    private AssetManager withHealthBar(boolean neverBatch) throws IOException {
+        AssetManager assetManager = TestAssets.assetManager();
+        Geometry body = new Geometry("Body", new Box(0.5f, 1f, 0.3f));
+        body.setMaterial(new Material(assetManager, "Common/MatDefs/Light/Lighting.j3md"));
+        Geometry bar = new Geometry("HealthBar", new Quad(1f, 0.1f));
+        bar.setMaterial(new Material(assetManager, "MatDefs/HealthBar.j3md"));
+        if (neverBatch) {
+            bar.setBatchHint(Spatial.BatchHint.Never);
+        }
+        Node cowboy = new Node("Cowboy");
+        cowboy.attachChild(body);
+        cowboy.attachChild(bar);
+
+        File model = new File(folder.getRoot(), "Models/Cowboy/Cowboy.j3o");
+        assertTrue(model.getParentFile().mkdirs());
+        BinaryExporter.getInstance().save(cowboy, model);
+
+        // Esta carpeta va antes que la de TestAssets y que el classpath
+        AssetManager withBar = new DesktopAssetManager(true);
+        withBar.registerLocator(folder.getRoot().getPath(), FileLocator.class);
+        TestAssets.register(withBar);
+        return withBar;
+    }
+
+    /** Geometrias que el render dibuja por separado: las agrupadas no se pintan. */
+    private static int drawnGeometries(Spatial root) {
+        int[] count = new int[1];
+        root.depthFirstTraversal(new SceneGraphVisitorAdapter() {
+            @Override
+            public void visit(Geometry geom) {
+                if (!geom.isGrouped()) count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    private static int instancedGeometries(Spatial root) {
+        int[] count = new int[1];
+        root.depthFirstTraversal(new SceneGraphVisitorAdapter() {
+            @Override
+            public void visit(Geometry geom) {
+                if (geom instanceof InstancedGeometry) count[0]++;
+            }
+        });
+        return count[0];
+    }
+}
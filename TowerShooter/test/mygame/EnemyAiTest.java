@@ -0,0 +1,97 @@
+package mygame;
+
+import com.jme3.scene.Node;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * La IA repartida en lotes fork-join da exactamente las mismas velocidades
+ * que con un solo hilo: cada enemigo usa su propio generador y solo escribe
+ * en su hueco del registro. Se usa un pool propio de varios hilos para que
+ * los lotes se repartan aunque la maquina tenga una sola CPU.
+ */
+public class EnemyAiTest {
+
+    private static final int ENEMIES = 3000;
+    private static final int FRAMES = 120;
+    private static final float TPF = 1 / 60f;
+    private static final float SPEED = 3f;
+    private static final long SEED = 42;
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void forkedBatchesMatchOneThread() {
+        EnemyRegistry serial = createWave(ENEMIES, SEED);
+        EnemyRegistry forked = createWave(ENEMIES, SEED);
+        run(new EnemyAi(false, 0, 64), serial, null);
+        run(new EnemyAi(pool, true, 0, 64), forked, null);
+
+        assertSameState(serial, forked);
+    }
+
+    @Test
+    public void forkedBatchesMatchOneThreadWithSeparation() {
+        EnemyRegistry serial = createWave(ENEMIES, SEED);
+        EnemyRegistry forked = createWave(ENEMIES, SEED);
+        run(new EnemyAi(false, 0, 64), serial, new SpatialHashGrid(0, 0, 130f, 2f));
+        run(new EnemyAi(pool, true, 0, 64), forked, new SpatialHashGrid(0, 0, 130f, 2f));
+
+        assertSameState(serial, forked);
+    }
+
+    /** Varios frames de IA; entre uno y otro los enemigos avanzan con su velocidad, como con la fisica. */
+    private static void run(EnemyAi ai, EnemyRegistry enemies, SpatialHashGrid grid) {
+        if (grid != null) {
+            ai.setSeparation(grid, 2f, 0.5f);
+        }
+        for (int frame = 0; frame < FRAMES; frame++) {
+            if (grid != null) {
+                grid.rebuild(enemies.posX, enemies.posZ, enemies.size());
+            }
+            ai.steerAll(enemies, 0, 0, 0, SPEED, TPF);
+            for (int i = 0; i < enemies.size(); i++) {
+                enemies.posX[i] += enemies.velX[i] * TPF;
+                enemies.posZ[i] += enemies.velZ[i] * TPF;
+            }
+        }
+    }
+
+    private static void assertSameState(EnemyRegistry expected, EnemyRegistry actual) {
+        int n = expected.size();
+        assertArrayEquals(Arrays.copyOf(expected.velX, n), Arrays.copyOf(actual.velX, n), 0f);
+        assertArrayEquals(Arrays.copyOf(expected.velZ, n), Arrays.copyOf(actual.velZ, n), 0f);
+        assertArrayEquals(Arrays.copyOf(expected.timer, n), Arrays.copyOf(actual.timer, n), 0f);
+    }
+
+    private static EnemyRegistry createWave(int count, long seed) {
+        Random rand = new Random(seed);
+        EnemyRegistry registry = new EnemyRegistry();
+        for (int i = 0; i < count; i++) {
+            Node node = new Node("Cowboy_" + i);
+            float angle = rand.nextFloat() * 6.2831855f;
+            float distance = 90f + rand.nextFloat() * 30f;
+            float x = distance * (float) Math.cos(angle);
+            float z = distance * (float) Math.sin(angle);
+            node.setLocalTranslation(x, 1, z);
+            MovementPattern pattern = MovementPattern.VALUES[i % MovementPattern.VALUES.length];
+            registry.add(node, null, CowboySpawner.MAX_HEALTH, pattern.ordinal(), rand.nextFloat() * 5f,
+                    rand.nextLong());
+            registry.posX[i] = x;
+            registry.posY[i] = 1;
+            registry.posZ[i] = z;
+        }
+        return registry;
+    }
+}
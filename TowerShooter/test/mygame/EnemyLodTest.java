@@ -0,0 +1,130 @@
+package mygame;
+
+import com.bulletphysics.collision.broadphase.BroadphasePair;
+import com.bulletphysics.util.ObjectArrayList;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.control.RigidBodyControl;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EnemyLodTest {
+
+    private static final float TPF = 1f / 60f;
+
+    private PhysicsSpace space;
+    private RigidBodyControl terrain;
+    private HeightSampler ground;
+    private EnemyRegistry enemies;
+
+    @Before
+    public void setUp() {
+        space = new PhysicsSpace(new Vector3f(-300, -50, -300), new Vector3f(300, 50, 300),
+                PhysicsSpace.BroadphaseType.DBVT);
+        // Suelo estatico con la cara de arriba en y = 0
+        terrain = new RigidBodyControl(new BoxCollisionShape(new Vector3f(250, 1, 250)), 0);
+        terrain.setPhysicsLocation(new Vector3f(0, -1, 0));
+        space.add(terrain);
+        ground = new HeightSampler(new float[65 * 65], 65, new Vector3f(8, 1, 8), new Vector3f(-256, 0, -256));
+        enemies = new EnemyRegistry();
+    }
+
+    @After
+    public void tearDown() {
+        space.destroy();
+    }
+
+    @Test
+    public void farKinematicEnemyHasNoTerrainPairs() {
+        RigidBodyControl body = addEnemy(100, 0);
+        space.update(TPF);
+        assertTrue("El dinamico apoyado en el suelo tiene su par", paired(body, terrain));
+
+        EnemyLod lod = new EnemyLod(30, 60, 2, 4, true, LocomotionMode.DYNAMIC);
+        for (int frame = 0; frame < 10; frame++) {
+            lod.schedule(enemies, TPF);
+            enemies.towerDistance[0] = 100;
+            lod.apply(enemies, ground, TPF);
+            space.update(TPF);
+        }
+
+        assertEquals(EnemyLod.FAR, enemies.lodTier[0]);
+        assertTrue(body.isKinematic());
+        assertFalse("Un cinematico no debe llegar a la fase estrecha con el terreno", paired(body, terrain));
+    }
+
+    @Test
+    public void kinematicEnemyStillPairsWithDynamicBodies() {
+        RigidBodyControl body = addEnemy(100, 0);
+        EnemyLod lod = new EnemyLod(30, 60, 2, 4, true, LocomotionMode.DYNAMIC);
+        lod.schedule(enemies, TPF);
+        enemies.towerDistance[0] = 100;
+        lod.apply(enemies, ground, TPF);
+
+        // Una bala (dinamica) junto al vaquero cinematico
+        RigidBodyControl bullet = new RigidBodyControl(new BoxCollisionShape(new Vector3f(0.2f, 0.2f, 0.2f)), 0.1f);
+        bullet.setPhysicsLocation(new Vector3f(100, 1, 1.1f));
+        space.add(bullet);
+        space.update(TPF);
+
+        assertTrue(body.isKinematic());
+        assertTrue(paired(body, bullet));
+    }
+
+    @Test
+    public void enemyBackToDynamicPairsWithTheTerrainAgain() {
+        RigidBodyControl body = addEnemy(100, 0);
+        EnemyLod lod = new EnemyLod(30, 60, 1, 1, true, LocomotionMode.DYNAMIC);
+        lod.schedule(enemies, TPF);
+        enemies.towerDistance[0] = 100;
+        lod.apply(enemies, ground, TPF);
+        space.update(TPF);
+        assertFalse(paired(body, terrain));
+
+        lod.schedule(enemies, TPF);
+        enemies.towerDistance[0] = 20;
+        lod.apply(enemies, ground, TPF);
+        space.update(TPF);
+
+        assertFalse(body.isKinematic());
+        assertTrue(paired(body, terrain));
+    }
+
+    private RigidBodyControl addEnemy(float x, float z) {
+        Node node = new Node("Cowboy");
+        node.setLocalTranslation(x, 1, z);
+        RigidBodyControl body = new RigidBodyControl(new BoxCollisionShape(new Vector3f(1, 1, 1)), 2);
+        node.addControl(body);
+        body.setPhysicsLocation(new Vector3f(x, 1, z));
+        CollisionGroups.setupEnemy(body);
+        space.add(body);
+        enemies.add(node, body, 3, MovementPattern.SINUSOIDAL.ordinal(), 0f, 1L);
+        enemies.posX[0] = x;
+        enemies.posY[0] = 1;
+        enemies.posZ[0] = z;
+        return body;
+    }
+
+    /** Si el broadphase tiene el par, que es lo que pasa a la fase estrecha en cada paso. */
+    private boolean paired(RigidBodyControl a, RigidBodyControl b) {
+        ObjectArrayList<BroadphasePair> pairs = space.getDynamicsWorld().getBroadphase()
+                .getOverlappingPairCache().getOverlappingPairArray();
+        for (int i = 0; i < pairs.size(); i++) {
+            BroadphasePair pair = pairs.getQuick(i);
+            Object first = pair.pProxy0.clientObject;
+            Object second = pair.pProxy1.clientObject;
+            if ((first == a.getObjectId() && second == b.getObjectId())
+                    || (first == b.getObjectId() && second == a.getObjectId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
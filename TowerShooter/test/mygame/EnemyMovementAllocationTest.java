@@ -0,0 +1,58 @@
+package mygame;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * El frame entero de cada enemigo (leer la posicion del cuerpo, lookAt,
+ * LOD, direccion y velocidad de vuelta al cuerpo) no debe asignar memoria
+ * una vez calentado. Se mide en el hilo de render con los bytes asignados
+ * por el hilo, asi que la IA tiene que ir en el mismo hilo: con 200
+ * enemigos no llega al umbral de la IA paralela.
+ */
+public class EnemyMovementAllocationTest {
+
+    private static final int ENEMIES = 200;
+    private static final int WARM_UP_FRAMES = 300;
+    private static final int MEASURED_FRAMES = 200;
+
+    @Test
+    public void enemyFrameDoesNotAllocate() throws Exception {
+        GameConfig config = TestGame.config();
+        config.enemiesPerWave = ENEMIES;
+        assertTrue(ENEMIES < config.parallelAiThreshold);
+
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        int[] frames = new int[1];
+        long[] allocated = new long[1];
+        TestGame.play(config, (game, tpf) -> {
+            if (game.getEnemyCount() < ENEMIES && frames[0] == 0) return false;
+            // Los frames normales del juego calientan el JIT y los buffers
+            if (++frames[0] < WARM_UP_FRAMES) return false;
+
+            long thread = Thread.currentThread().getId();
+            allocated[0] = Long.MAX_VALUE;
+            // El minimo de varias medidas descarta lo que asigna una vez el JIT al recompilar
+            for (int run = 0; run < 3; run++) {
+                long before = threads.getThreadAllocatedBytes(thread);
+                for (int i = 0; i < MEASURED_FRAMES; i++) {
+                    game.updateEnemyMovement(tpf);
+                }
+                allocated[0] = Math.min(allocated[0], threads.getThreadAllocatedBytes(thread) - before);
+            }
+            assertEquals("Ningun enemigo debe llegar a la torre durante la prueba", ENEMIES, game.getEnemyCount());
+            return true;
+        });
+
+        assertEquals("Bytes asignados en " + MEASURED_FRAMES + " frames de " + ENEMIES + " enemigos",
+                0, allocated[0]);
+    }
+}
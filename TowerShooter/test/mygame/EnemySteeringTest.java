@@ -0,0 +1,62 @@
+package mygame;
+
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EnemySteeringTest {
+
+    private static final float SPEED = 3f;
+    private static final float TPF = 1f / 60f;
+    private static final float EPSILON = 1e-4f;
+
+    @Test
+    public void heightDoesNotChangeHorizontalSpeed() {
+        for (MovementPattern pattern : MovementPattern.VALUES) {
+            // Mismo azar y misma distancia a la torre, en el llano y en lo alto de una cuesta
+            float distance = 80f;
+            EnemyRegistry low = registry(pattern, (float) Math.sqrt(distance * distance - 1), 1, 0);
+            EnemyRegistry high = registry(pattern, (float) Math.sqrt(distance * distance - 900), 30, 0);
+            for (int frame = 0; frame < 300; frame++) {
+                EnemySteering.steer(low, 0, 0, 0, 0, SPEED, TPF);
+                EnemySteering.steer(high, 0, 0, 0, 0, SPEED, TPF);
+                assertEquals(pattern + " en el frame " + frame,
+                        horizontalSpeed(low), horizontalSpeed(high), EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void speedIsTheSameInsideAndOutsideTheFlowField() {
+        float[] heights = new float[65 * 65];
+        HeightSampler ground = new HeightSampler(heights, 65, new Vector3f(2, 1, 2), Vector3f.ZERO);
+        FlowField flow = new FlowField(0, 0, 50f, 2f, 8f);
+        flow.build(ground);
+
+        EnemyRegistry inside = registry(MovementPattern.RETREAT_AND_ADVANCE, 45, 20, 0);
+        EnemyRegistry outside = registry(MovementPattern.RETREAT_AND_ADVANCE, 55, 20, 0);
+        assertTrue(flow.cellAt(45, 0) >= 0);
+        assertEquals(-1, flow.cellAt(55, 0));
+
+        EnemySteering.steer(inside, 0, 0, 0, 0, SPEED, TPF, flow);
+        EnemySteering.steer(outside, 0, 0, 0, 0, SPEED, TPF, flow);
+
+        assertEquals(SPEED * 0.8f, horizontalSpeed(inside), EPSILON);
+        assertEquals(SPEED * 0.8f, horizontalSpeed(outside), EPSILON);
+    }
+
+    private static EnemyRegistry registry(MovementPattern pattern, float x, float y, float z) {
+        EnemyRegistry registry = new EnemyRegistry();
+        Node node = new Node("Cowboy");
+        node.setLocalTranslation(x, y, z);
+        registry.add(node, null, 3, pattern.ordinal(), 0f, 42L);
+        return registry;
+    }
+
+    private static float horizontalSpeed(EnemyRegistry registry) {
+        return (float) Math.sqrt(registry.velX[0] * registry.velX[0] + registry.velZ[0] * registry.velZ[0]);
+    }
+}
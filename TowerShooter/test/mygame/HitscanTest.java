@@ -0,0 +1,67 @@
+package mygame;
+
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HitscanTest {
+
+    private static final int WAVE = 4;
+    private static final int MISSED_FRAMES = 60;
+    private static final int MAX_FRAMES = 600;
+
+    @Test
+    public void hitscanKillsTheWaveWithoutAddingBodies() throws Exception {
+        GameConfig config = TestGame.config();
+        config.enemiesPerWave = WAVE;
+        config.weaponMode = WeaponMode.HITSCAN;
+        config.shootCooldown = 0.05f;
+
+        Vector3f target = new Vector3f();
+        int[] bodies = new int[1];
+        int[] shotsBefore = new int[2];
+        int[] frame = new int[1];
+
+        TestGame.play(config, (game, tpf) -> {
+            GameStats stats = game.getStats();
+            Camera cam = game.getCamera();
+            if (bodies[0] == 0) {
+                // Se espera a que este toda la oleada
+                if (game.getEnemyCount() < WAVE) return false;
+                bodies[0] = game.getPhysicsBodyCount();
+                shotsBefore[0] = stats.shotsFired;
+                game.setShooting(true);
+            }
+            frame[0]++;
+            assertEquals("Cuerpos en el frame " + frame[0], bodies[0] - stats.kills, game.getPhysicsBodyCount());
+            assertEquals(0, game.getLiveBulletCount());
+
+            if (frame[0] <= MISSED_FRAMES) {
+                // Al cielo: ningun impacto y ningun cuerpo nuevo
+                cam.lookAt(target.set(cam.getLocation()).addLocal(0, 50, 1), Vector3f.UNIT_Y);
+                return false;
+            }
+            if (frame[0] == MISSED_FRAMES + 1) {
+                assertTrue("No se disparo al cielo", stats.shotsFired > shotsBefore[0]);
+                assertEquals(0, stats.kills);
+                shotsBefore[1] = stats.shotsFired;
+            }
+            if (stats.kills == WAVE) {
+                // Tres impactos por enemigo y ningun disparo perdido
+                assertEquals(WAVE * CowboySpawner.MAX_HEALTH, stats.shotsFired - shotsBefore[1]);
+                game.setShooting(false);
+                return true;
+            }
+            if (frame[0] > MAX_FRAMES) fail("Solo " + stats.kills + " de " + WAVE + " eliminados");
+
+            if (game.findNearestEnemy(cam.getLocation(), target)) {
+                cam.lookAt(target, Vector3f.UNIT_Y);
+            }
+            return false;
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package mygame;
+
+import com.jme3.scene.Node;
+import com.sun.management.ThreadMXBean;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HudStateTest {
+
+    private static final int FRAMES = 10_000;
+
+    private Node guiNode;
+    private HudState hud;
+
+    @Before
+    public void setUp() {
+        guiNode = new Node("Gui");
+        hud = new HudState();
+        hud.build(TestAssets.assetManager(), guiNode, 1280, 720);
+    }
+
+    @Test
+    public void unchangedValuesDoNotRebuildOrAllocate() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        // Primer frame y calentamiento con los mismos valores que se miden
+        pushFrames(FRAMES);
+        long rebuilds = hud.getTextRebuilds();
+
+        long thread = Thread.currentThread().getId();
+        long allocated = Long.MAX_VALUE;
+        // El minimo de varias medidas descarta lo que asigna una vez el JIT al recompilar
+        for (int run = 0; run < 3; run++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            pushFrames(FRAMES);
+            allocated = Math.min(allocated, threads.getThreadAllocatedBytes(thread) - before);
+        }
+
+        assertEquals("Textos reconstruidos sin cambios", 0, hud.getTextRebuilds() - rebuilds);
+        assertEquals("Bytes asignados en " + FRAMES + " frames sin cambios", 0, allocated);
+    }
+
+    @Test
+    public void changedValueRebuildsOnlyItsText() {
+        pushFrames(1);
+        long rebuilds = hud.getTextRebuilds();
+
+        hud.setScore(1250);
+        hud.setLives(3);
+        hud.setEnemies(60);
+        hud.flush();
+
+        assertEquals(rebuilds + 1, hud.getTextRebuilds());
+    }
+
+    @Test
+    public void cleanupDetachesThePanels() {
+        hud.showGameOver();
+        assertEquals(1, guiNode.getQuantity());
+
+        hud.cleanup(null);
+
+        assertEquals(0, guiNode.getQuantity());
+    }
+
+    private void pushFrames(int frames) {
+        for (int i = 0; i < frames; i++) {
+            hud.setScore(1240);
+            hud.setLives(3);
+            hud.setEnemies(60);
+            hud.flush();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package mygame;
+
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Grabar con {@link InputRecorder} y repetir con {@link InputReplay}: la
+ * camara, el disparo y el arma vuelven bit a bit en cada frame. La repeticion
+ * se prueba sobre un juego sin arrancar que solo guarda lo que le pone el
+ * guion, asi que no hace falta correr la partida.
+ */
+public class InputReplayTest {
+
+    private static final int FRAMES = 3000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordedFramesReplayBitExactly() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("session.bin");
+        Frames frames = Frames.random(FRAMES, 1234L);
+        try (InputRecorder recorder = InputRecorder.create(file, config())) {
+            frames.recordInto(recorder);
+        }
+
+        InputReplay replay = InputReplay.open(file);
+        ScriptedGame game = new ScriptedGame();
+        for (int tick = 0; tick < FRAMES; tick++) {
+            game.tick = tick;
+            replay.update(game, 1 / 60f);
+
+            String at = "frame " + tick;
+            Vector3f location = game.getCamera().getLocation();
+            Quaternion rotation = game.getCamera().getRotation();
+            assertEquals(at, frames.bits[tick][0], Float.floatToRawIntBits(location.x));
+            assertEquals(at, frames.bits[tick][1], Float.floatToRawIntBits(location.y));
+            assertEquals(at, frames.bits[tick][2], Float.floatToRawIntBits(location.z));
+            assertEquals(at, frames.bits[tick][3], Float.floatToRawIntBits(rotation.getX()));
+            assertEquals(at, frames.bits[tick][4], Float.floatToRawIntBits(rotation.getY()));
+            assertEquals(at, frames.bits[tick][5], Float.floatToRawIntBits(rotation.getZ()));
+            assertEquals(at, frames.bits[tick][6], Float.floatToRawIntBits(rotation.getW()));
+            assertEquals(at, frames.shooting[tick], game.shooting);
+            assertEquals(at, frames.weapon[tick], game.weapon);
+        }
+    }
+
+    @Test
+    public void closeWritesTheTickCount() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("session.bin");
+        GameConfig config = config();
+        Frames frames = Frames.random(FRAMES, 99L);
+        try (InputRecorder recorder = InputRecorder.create(file, config)) {
+            frames.recordInto(recorder);
+            // Frames sin cambios al final: no escriben registro pero cuentan
+            for (int tick = FRAMES; tick < FRAMES + 50; tick++) {
+                frames.record(recorder, tick, FRAMES - 1);
+            }
+            assertEquals(FRAMES + 50, recorder.getTicks());
+        }
+
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertEquals(InputRecorder.MAGIC, header.getInt(0));
+        assertEquals(FRAMES + 50, header.getLong(InputRecorder.TICK_COUNT_OFFSET));
+
+        InputReplay replay = InputReplay.open(file);
+        assertEquals(FRAMES + 50, replay.getTickCount());
+        GameConfig replayed = new GameConfig();
+        replay.configure(replayed);
+        assertTrue(replayed.deterministic);
+        assertEquals(config.seed, replayed.seed);
+        assertEquals(config.enemiesPerWave, replayed.enemiesPerWave);
+        assertEquals(config.weaponMode, replayed.weaponMode);
+
+        // Al pasar del ultimo frame se avisa una sola vez y se deja de disparar
+        int[] finished = new int[1];
+        replay.setOnFinished(() -> finished[0]++);
+        ScriptedGame game = new ScriptedGame();
+        for (int tick = 0; tick < FRAMES + 60; tick++) {
+            game.tick = tick;
+            replay.update(game, 1 / 60f);
+        }
+        assertEquals(1, finished[0]);
+        assertFalse(game.shooting);
+    }
+
+    @Test
+    public void unclosedRecordingIsRejected() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("crashed.bin");
+        InputRecorder recorder = InputRecorder.create(file, config());
+        try {
+            // Lo bastante para que el buffer de 64 KB se vacie al fichero antes de cerrar
+            Frames.random(10 * FRAMES, 7L).recordInto(recorder);
+            assertTrue(Files.size(file) > InputRecorder.HEADER_SIZE);
+            assertEquals(0L, ByteBuffer.wrap(Files.readAllBytes(file)).getLong(InputRecorder.TICK_COUNT_OFFSET));
+
+            try {
+                InputReplay.open(file);
+                fail("Una grabacion sin cerrar no tiene numero de frames");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("no se cerro"));
+            }
+        } finally {
+            recorder.close();
+        }
+    }
+
+    private static GameConfig config() {
+        GameConfig config = new GameConfig();
+        config.deterministic = true;
+        config.seed = 42L;
+        config.enemiesPerWave = 30;
+        config.weaponMode = WeaponMode.HITSCAN;
+        return config;
+    }
+
+    /** Entrada aleatoria de una partida: la camara se mueve a saltos y a veces se queda quieta. */
+    private static final class Frames {
+
+        final int[][] bits;
+        final boolean[] shooting;
+        final WeaponMode[] weapon;
+
+        private Frames(int count) {
+            bits = new int[count][InputRecorder.COMPONENTS];
+            shooting = new boolean[count];
+            weapon = new WeaponMode[count];
+        }
+
+        static Frames random(int count, long seed) {
+            Random rand = new Random(seed);
+            Frames frames = new Frames(count);
+            float[] values = {0, 7, 25, 0, 0, 0, 1};
+            boolean shooting = false;
+            WeaponMode weapon = WeaponMode.PROJECTILE;
+            for (int tick = 0; tick < count; tick++) {
+                for (int c = 0; c < InputRecorder.COMPONENTS; c++) {
+                    float roll = rand.nextFloat();
+                    if (roll < 0.3f) {
+                        values[c] += (rand.nextFloat() - 0.5f) * 0.1f;
+                    } else if (roll < 0.32f) {
+                        // Valores cuyos bits no sobreviven a una conversion descuidada
+                        values[c] = rand.nextBoolean() ? -0f : Float.MIN_VALUE;
+                    } else if (roll < 0.34f) {
+                        values[c] = (rand.nextFloat() - 0.5f) * 1e6f;
+                    }
+                    frames.bits[tick][c] = Float.floatToRawIntBits(values[c]);
+                }
+                if (rand.nextFloat() < 0.05f) shooting = !shooting;
+                if (rand.nextFloat() < 0.01f) {
+                    weapon = weapon == WeaponMode.HITSCAN ? WeaponMode.PROJECTILE : WeaponMode.HITSCAN;
+                }
+                frames.shooting[tick] = shooting;
+                frames.weapon[tick] = weapon;
+            }
+            return frames;
+        }
+
+        void recordInto(InputRecorder recorder) {
+            for (int tick = 0; tick < shooting.length; tick++) {
+                record(recorder, tick, tick);
+            }
+        }
+
+        /** Graba en el frame {@code tick} la entrada del frame {@code source}. */
+        void record(InputRecorder recorder, long tick, int source) {
+            int[] b = bits[source];
+            Vector3f location = new Vector3f(Float.intBitsToFloat(b[0]), Float.intBitsToFloat(b[1]),
+                    Float.intBitsToFloat(b[2]));
+            Quaternion rotation = new Quaternion(Float.intBitsToFloat(b[3]), Float.intBitsToFloat(b[4]),
+                    Float.intBitsToFloat(b[5]), Float.intBitsToFloat(b[6]));
+            recorder.record(tick, shooting[source], weapon[source], location, rotation);
+        }
+    }
+
+    /** Juego sin arrancar: el frame lo pone la prueba y se queda con lo que le pide el guion. */
+    private static final class ScriptedGame extends Main {
+
+        final Camera camera = new Camera(1280, 720);
+        long tick;
+        boolean shooting;
+        WeaponMode weapon;
+
+        @Override
+        public Camera getCamera() {
+            return camera;
+        }
+
+        @Override
+        long getTick() {
+            return tick;
+        }
+
+        @Override
+        void setShooting(boolean shooting) {
+            this.shooting = shooting;
+        }
+
+        @Override
+        void setWeaponMode(WeaponMode weaponMode) {
+            this.weapon = weaponMode;
+        }
+    }
+}
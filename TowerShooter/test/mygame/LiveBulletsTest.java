@@ -0,0 +1,160 @@
+package mygame;
+
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LiveBulletsTest {
+
+    private static final float LIFETIME = 2f;
+    private static final float MAX_DISTANCE = 1000f;
+    /** Con esta velocidad caducan por tiempo; a 1000 lo harian por distancia. */
+    private static final float SPEED = 100f;
+
+    private final List<Spatial> expired = new ArrayList<>();
+    private final List<String> reasons = new ArrayList<>();
+    private final List<Float> ages = new ArrayList<>();
+    private final LiveBullets.Sink sink = (bullet, reason, age) -> {
+        expired.add(bullet);
+        reasons.add(reason);
+        ages.add(age);
+    };
+
+    @Test
+    public void bulletsExpireInFiringOrder() {
+        LiveBullets live = new LiveBullets(4, LIFETIME, MAX_DISTANCE);
+        Spatial[] bullets = bullets(3);
+        live.add(bullets[0], SPEED, 0f, sink);
+        live.add(bullets[1], SPEED, 0.5f, sink);
+        live.add(bullets[2], SPEED, 1f, sink);
+
+        assertEquals(0, live.expire(1.9f, sink));
+        assertEquals(1, live.expire(2.2f, sink));
+        assertEquals(2, live.expire(3f, sink));
+
+        assertSame(bullets[0], expired.get(0));
+        assertSame(bullets[1], expired.get(1));
+        assertSame(bullets[2], expired.get(2));
+        assertEquals(LiveBullets.EXPIRED_LIFETIME, reasons.get(0));
+        assertEquals(2.2f, ages.get(0), 1e-6f);
+        assertEquals(0, live.size());
+    }
+
+    @Test
+    public void fastBulletsExpireByDistance() {
+        LiveBullets live = new LiveBullets(4, LIFETIME, MAX_DISTANCE);
+        Spatial bullet = bullets(1)[0];
+        // A 1000 llega a maxDistance en 1 s, antes de su tiempo de vida
+        live.add(bullet, 1000f, 0f, sink);
+
+        assertEquals(0, live.expire(0.9f, sink));
+        assertEquals(1, live.expire(1f, sink));
+        assertEquals(LiveBullets.EXPIRED_DISTANCE, reasons.get(0));
+    }
+
+    @Test
+    public void fullRingEvictsTheOldest() {
+        LiveBullets live = new LiveBullets(4, LIFETIME, MAX_DISTANCE);
+        Spatial[] bullets = bullets(5);
+        for (int i = 0; i < 5; i++) {
+            live.add(bullets[i], SPEED, i * 0.1f, sink);
+        }
+
+        assertEquals(4, live.size());
+        assertEquals(1, expired.size());
+        assertSame(bullets[0], expired.get(0));
+        assertEquals(LiveBullets.EXPIRED_EVICTED, reasons.get(0));
+        assertEquals(0.4f, ages.get(0), 1e-6f);
+        assertFalse(live.contains(bullets[0]));
+        assertTrue(live.contains(bullets[4]));
+    }
+
+    @Test
+    public void evictionSkipsBulletsThatAlreadyHit() {
+        LiveBullets live = new LiveBullets(2, LIFETIME, MAX_DISTANCE);
+        Spatial[] bullets = bullets(3);
+        live.add(bullets[0], SPEED, 0f, sink);
+        live.add(bullets[1], SPEED, 0.1f, sink);
+        assertTrue(live.remove(bullets[0]));
+
+        // Hay sitio: la muerta de la cabeza no cuenta y no se retira ninguna viva
+        live.add(bullets[2], SPEED, 0.2f, sink);
+        assertTrue(expired.isEmpty());
+        assertEquals(2, live.size());
+    }
+
+    @Test
+    public void removedBulletCanBeFiredAgain() {
+        LiveBullets live = new LiveBullets(4, LIFETIME, MAX_DISTANCE);
+        Spatial bullet = bullets(1)[0];
+        live.add(bullet, SPEED, 0f, sink);
+        assertTrue(live.remove(bullet));
+        assertFalse(live.remove(bullet));
+        assertFalse(live.contains(bullet));
+
+        // El pool la vuelve a dar: la entrada vieja del mismo hueco no debe retirarla
+        live.add(bullet, SPEED, 1f, sink);
+        assertEquals(0, live.expire(2.5f, sink));
+        assertTrue(live.contains(bullet));
+
+        assertEquals(1, live.expire(3f, sink));
+        assertSame(bullet, expired.get(0));
+        assertEquals(2f, ages.get(0), 1e-6f);
+    }
+
+    @Test
+    public void staleEntriesAreCompactedAway() {
+        LiveBullets live = new LiveBullets(2, LIFETIME, MAX_DISTANCE);
+        Spatial[] bullets = bullets(2);
+        live.add(bullets[0], SPEED, 0f, sink);
+
+        // Muchos disparos que impactan enseguida llenan el buffer de entradas muertas
+        for (int i = 0; i < 100; i++) {
+            live.add(bullets[1], SPEED, 0.01f * i, sink);
+            assertTrue(live.remove(bullets[1]));
+        }
+
+        assertTrue(expired.isEmpty());
+        assertEquals(1, live.size());
+        assertTrue(live.contains(bullets[0]));
+        assertEquals(1, live.expire(2f, sink));
+        assertSame(bullets[0], expired.get(0));
+        assertEquals(0, live.size());
+    }
+
+    @Test
+    public void clearReleasesOnlyLiveBullets() {
+        LiveBullets live = new LiveBullets(4, LIFETIME, MAX_DISTANCE);
+        Spatial[] bullets = bullets(3);
+        for (Spatial bullet : bullets) {
+            live.add(bullet, SPEED, 0f, sink);
+        }
+        live.remove(bullets[1]);
+
+        List<Spatial> released = new ArrayList<>();
+        live.clear(released::add);
+
+        assertEquals(2, released.size());
+        assertFalse(released.contains(bullets[1]));
+        assertEquals(0, live.size());
+        assertEquals(0, live.expire(10f, sink));
+    }
+
+    /** Balas con su hueco del pool, como las que crea BulletPool. */
+    private static Spatial[] bullets(int count) {
+        Spatial[] bullets = new Spatial[count];
+        for (int i = 0; i < count; i++) {
+            bullets[i] = new Node("Bullet_" + i);
+            bullets[i].setUserData(BulletPool.SLOT_KEY, i);
+        }
+        return bullets;
+    }
+}
@@ -0,0 +1,102 @@
+package mygame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NetServerFireTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private GameConfig config;
+    private NetServer server;
+    private NetServer.ClientView view;
+    private long now;
+
+    @Before
+    public void setUp() {
+        config = new GameConfig();
+        config.shootCooldown = 0.15f;
+        config.netFireOriginRadius = 4f;
+        server = new NetServer(config);
+        view = server.newView(1);
+        view.x = 0;
+        view.y = 7;
+        view.z = 5;
+        view.hasView = true;
+        now = view.lastFireNanos;
+    }
+
+    @Test
+    public void nonFiniteValuesAreRejected() {
+        assertFalse(server.acceptFire(view, fire(Float.NaN, 7, 5, 0, 0, -1), now));
+        assertFalse(server.acceptFire(view, fire(0, Float.POSITIVE_INFINITY, 5, 0, 0, -1), now));
+        assertFalse(server.acceptFire(view, fire(0, 7, 5, 0, Float.NaN, -1), now));
+        assertFalse(server.acceptFire(view, fire(0, 7, 5, 0, 0, 0), now));
+        assertFalse(server.acceptFire(view, fire(0, 7, 5, Float.MAX_VALUE, Float.MAX_VALUE, 0), now));
+        assertEquals(5, view.rejectedFires);
+    }
+
+    @Test
+    public void unknownWeaponIsRejected() {
+        NetMessages.Fire fire = fire(0, 7, 5, 0, 0, -1);
+        fire.weapon = WeaponMode.VALUES.length;
+        assertFalse(server.acceptFire(view, fire, now));
+    }
+
+    @Test
+    public void fireBeforeTheFirstViewIsRejected() {
+        view.hasView = false;
+        assertFalse(server.acceptFire(view, fire(0, 7, 5, 0, 0, -1), now));
+    }
+
+    @Test
+    public void originIsPulledBackToTheClient() {
+        NetMessages.Fire fire = fire(0, 7, 105, 0, 0, -2);
+        assertTrue(server.acceptFire(view, fire, now));
+
+        assertEquals(0, fire.originX, 1e-4f);
+        assertEquals(7, fire.originY, 1e-4f);
+        assertEquals(9, fire.originZ, 1e-4f);
+        assertEquals(-1, fire.dirZ, 1e-6f);
+    }
+
+    @Test
+    public void nearbyOriginIsKept() {
+        NetMessages.Fire fire = fire(1, 7, 6, 0, 0, -1);
+        assertTrue(server.acceptFire(view, fire, now));
+
+        assertEquals(1, fire.originX, 0f);
+        assertEquals(6, fire.originZ, 0f);
+    }
+
+    @Test
+    public void sustainedRateIsTheRealCooldown() {
+        // Un cliente que pide disparar cada 10 ms durante 30 s
+        int accepted = 0;
+        for (long t = 0; t < 30 * SECOND; t += SECOND / 100) {
+            if (server.acceptFire(view, fire(0, 7, 5, 0, 0, -1), now + t)) accepted++;
+        }
+        // 30 / 0.15 = 200, mas las fichas con que empieza
+        assertEquals(200 + config.netFireBurst, accepted, 1);
+    }
+
+    @Test
+    public void twoBunchedShotsPass() {
+        // Disparos a su ritmo que la red entrega de dos en dos, con 10 ms de variacion
+        long period = (long) (config.shootCooldown * SECOND);
+        for (int pair = 1; pair <= 100; pair++) {
+            long t = now + pair * 2 * period + (pair % 2 == 0 ? -1 : 1) * SECOND / 100;
+            assertTrue(server.acceptFire(view, fire(0, 7, 5, 0, 0, -1), t));
+            assertTrue(server.acceptFire(view, fire(0, 7, 5, 0, 0, -1), t));
+        }
+        assertEquals(0, view.rejectedFires);
+    }
+
+    private static NetMessages.Fire fire(float x, float y, float z, float dirX, float dirY, float dirZ) {
+        return new NetMessages.Fire(WeaponMode.HITSCAN, x, y, z, dirX, dirY, dirZ);
+    }
+}
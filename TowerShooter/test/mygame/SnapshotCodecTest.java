@@ -0,0 +1,364 @@
+package mygame;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Snapshots de red: lo que decodifica el cliente tiene que ser exactamente
+ * lo que capturo el servidor, venga completo o como diferencia, aunque los
+ * paquetes lleguen desordenados, se pierdan, o se pierdan las confirmaciones
+ * que eligen la base. Los enemigos entran y salen del area de interes del
+ * cliente todo el rato.
+ */
+public class SnapshotCodecTest {
+
+    private static final float TICK_RATE = 20f;
+
+    @Test
+    public void deltaDecodesBitExactlyLikeFull() {
+        World world = new World(1L, 80);
+        SnapshotCodec codec = new SnapshotCodec();
+        EnemySnapshot previous = world.next();
+        for (int tick = 0; tick < 300; tick++) {
+            EnemySnapshot current = world.next();
+
+            EnemySnapshot full = new EnemySnapshot();
+            SnapshotCodec.decode(codec.encode(current, null), null, full);
+            EnemySnapshot delta = new EnemySnapshot();
+            byte[] data = codec.encode(current, previous);
+            assertEquals(previous.tick, SnapshotCodec.readBaseline(data));
+            SnapshotCodec.decode(data, previous, delta);
+
+            assertSameSnapshot(current, full);
+            assertSameSnapshot(current, delta);
+            previous = current;
+        }
+    }
+
+    @Test
+    public void removedEnemiesLeaveTheDecodedSnapshot() {
+        EnemySnapshot baseline = snapshot(1, new int[]{3, 5, 8, 13});
+        EnemySnapshot current = snapshot(2, new int[]{3, 13, 21});
+        current.x[1] += 7;
+
+        EnemySnapshot store = new EnemySnapshot();
+        SnapshotCodec.decode(new SnapshotCodec().encode(current, baseline), baseline, store);
+
+        assertSameSnapshot(current, store);
+    }
+
+    @Test
+    public void newEnemyOverridesAKnownId() {
+        // El servidor no tenia el 5 en la base de este cliente, el cliente si:
+        // el 5 llega con FIELD_NEW y sus valores sustituyen a los de la base
+        EnemySnapshot serverBaseline = snapshot(1, new int[]{3, 8});
+        EnemySnapshot clientBaseline = snapshot(1, new int[]{3, 5, 8});
+        clientBaseline.x[1] = 999;
+        EnemySnapshot current = snapshot(2, new int[]{3, 5, 8});
+
+        EnemySnapshot store = new EnemySnapshot();
+        SnapshotCodec.decode(new SnapshotCodec().encode(current, serverBaseline), clientBaseline, store);
+
+        assertSameSnapshot(current, store);
+    }
+
+    @Test
+    public void wrongBaselineIsRejected() {
+        EnemySnapshot baseline = snapshot(4, new int[]{1, 2});
+        EnemySnapshot current = snapshot(5, new int[]{1, 2});
+        current.z[0] -= 3;
+        byte[] data = new SnapshotCodec().encode(current, baseline);
+
+        expectRejected(data, null);
+        expectRejected(data, snapshot(3, new int[]{1, 2}));
+    }
+
+    @Test
+    public void staleBaselineIsDiscardedByTheClient() {
+        SnapshotCodec codec = new SnapshotCodec();
+        SnapshotInterpolator client = new SnapshotInterpolator(TICK_RATE, 0.1f);
+        EnemySnapshot first = snapshot(1, new int[]{1, 2, 3});
+        assertTrue(client.receive(codec.encode(first, null), 0));
+
+        // Llegan completos hasta que el hueco del tick 1 se reutiliza
+        for (int tick = 2; tick <= SnapshotInterpolator.HISTORY; tick++) {
+            assertTrue(client.receive(codec.encode(snapshot(tick, new int[]{1, 2, 3}), null), tick / TICK_RATE));
+        }
+        // Su base ocuparia el mismo hueco que el
+        EnemySnapshot sameSlot = snapshot(1 + SnapshotInterpolator.HISTORY, new int[]{1, 2, 3});
+        assertFalse(client.receive(codec.encode(sameSlot, first), 2));
+        // Su base ya no esta en el historial
+        EnemySnapshot overwritten = snapshot(2 + SnapshotInterpolator.HISTORY, new int[]{1, 2, 3});
+        assertTrue(client.receive(codec.encode(sameSlot, null), 2));
+        assertFalse(client.receive(codec.encode(overwritten, first), 2));
+
+        assertEquals(2, client.getDiscarded());
+        assertEquals(sameSlot.tick, client.getLatestTick());
+    }
+
+    @Test
+    public void outOfOrderDroppedPacketsAndLostAcks() {
+        World world = new World(2L, 60);
+        SnapshotCodec codec = new SnapshotCodec();
+        SnapshotInterpolator client = new SnapshotInterpolator(TICK_RATE, 0.1f);
+        Random net = new Random(3L);
+
+        EnemySnapshot[] sent = new EnemySnapshot[SnapshotInterpolator.HISTORY];
+        for (int i = 0; i < sent.length; i++) {
+            sent[i] = new EnemySnapshot();
+        }
+        TreeMap<Integer, EnemySnapshot> captured = new TreeMap<>();
+        List<Packet> toClient = new ArrayList<>();
+        List<Packet> toServer = new ArrayList<>();
+        int ack = -1;
+        int deltas = 0;
+        int fullsAfterOutage = 0;
+        int accepted = 0;
+
+        for (int tick = 1; tick <= 600; tick++) {
+            // Servidor: las confirmaciones que han llegado y el snapshot de este tick
+            for (int k = toServer.size() - 1; k >= 0; k--) {
+                if (toServer.get(k).due <= tick) {
+                    ack = Math.max(ack, toServer.remove(k).tick);
+                }
+            }
+            EnemySnapshot current = world.next();
+            captured.put(current.tick, current);
+            copy(current, sent[current.tick % sent.length]);
+            EnemySnapshot baseline = baselineFor(sent, ack, current.tick);
+            if (baseline != null) {
+                deltas++;
+            } else if (tick > 300) {
+                fullsAfterOutage++;
+            }
+            if (net.nextFloat() >= 0.1f) {
+                toClient.add(new Packet(current.tick, codec.encode(current, baseline), tick + net.nextInt(4)));
+            }
+
+            // Cliente: lo que llega este tick, desordenado
+            List<Packet> arriving = new ArrayList<>();
+            for (int k = toClient.size() - 1; k >= 0; k--) {
+                if (toClient.get(k).due <= tick) arriving.add(toClient.remove(k));
+            }
+            Collections.shuffle(arriving, net);
+            for (Packet packet : arriving) {
+                if (!client.receive(packet.data, tick / TICK_RATE)) continue;
+                accepted++;
+                // Lo decodificado es lo que se capturo en ese tick
+                client.sample(1e6);
+                assertSampled(captured.get(packet.tick), client);
+                // La confirmacion tarda lo suyo y una de cada cinco se pierde; entre
+                // los ticks 300 y 350 se pierden todas y la ultima base caduca
+                boolean outage = tick > 300 && tick <= 350;
+                if (!outage && net.nextFloat() >= 0.2f) {
+                    toServer.add(new Packet(client.getLatestTick(), null, tick + 1 + net.nextInt(6)));
+                }
+            }
+        }
+
+        assertTrue("Casi todos deberian ir como diferencia: " + deltas, deltas > 500);
+        assertTrue("Sin confirmaciones recientes se envian completos", fullsAfterOutage > 0);
+        assertTrue(client.getDiscarded() > 0);
+        assertEquals(client.getReceived(), accepted);
+    }
+
+    @Test
+    public void sampleInterpolatesBetweenTheSurroundingSnapshots() {
+        SnapshotCodec codec = new SnapshotCodec();
+        SnapshotInterpolator client = new SnapshotInterpolator(TICK_RATE, 0.1f);
+        EnemySnapshot a = snapshot(10, new int[]{1, 2});
+        EnemySnapshot b = snapshot(12, new int[]{1});
+        b.x[0] = a.x[0] + 64;
+        b.health[0] = a.health[0] - 1;
+        client.receive(codec.encode(a, null), 0.5);
+        client.receive(codec.encode(b, a), 0.6);
+
+        // Se pinta 0.1 s (2 ticks) por detras: el tick 11, a medio camino
+        client.sample(0.65);
+        assertEquals(1, client.count);
+        assertEquals(1, client.ids[0]);
+        assertEquals(EnemySnapshot.position(a.x[0] + 32), client.x[0], 0f);
+        assertEquals(b.health[0], client.health[0]);
+
+        // Sin uno posterior se queda en el ultimo
+        client.sample(5);
+        assertEquals(EnemySnapshot.position(b.x[0]), client.x[0], 0f);
+    }
+
+    /** La base que usa {@link NetServer#update}: la ultima confirmada, si sigue en el historial. */
+    private static EnemySnapshot baselineFor(EnemySnapshot[] sent, int ack, int tick) {
+        if (ack <= 0 || tick - ack >= sent.length) return null;
+        EnemySnapshot baseline = sent[ack % sent.length];
+        return baseline.tick == ack ? baseline : null;
+    }
+
+    private static void expectRejected(byte[] data, EnemySnapshot baseline) {
+        try {
+            SnapshotCodec.decode(data, baseline, new EnemySnapshot());
+            fail("Decodificado sobre una base que no es la suya");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("base"));
+        }
+    }
+
+    private static void assertSameSnapshot(EnemySnapshot expected, EnemySnapshot actual) {
+        assertEquals(expected.tick, actual.tick);
+        assertEquals(expected.score, actual.score);
+        assertEquals(expected.lives, actual.lives);
+        assertEquals(expected.level, actual.level);
+        assertEquals(expected.total, actual.total);
+        assertEquals("enemigos del tick " + expected.tick, expected.count, actual.count);
+        for (int k = 0; k < expected.count; k++) {
+            String at = "tick " + expected.tick + ", enemigo " + expected.ids[k];
+            assertEquals(at, expected.ids[k], actual.ids[k]);
+            assertEquals(at, expected.x[k], actual.x[k]);
+            assertEquals(at, expected.y[k], actual.y[k]);
+            assertEquals(at, expected.z[k], actual.z[k]);
+            assertEquals(at, expected.health[k], actual.health[k]);
+            assertEquals(at, expected.pattern[k], actual.pattern[k]);
+        }
+    }
+
+    private static void assertSampled(EnemySnapshot expected, SnapshotInterpolator actual) {
+        assertEquals(expected.score, actual.score);
+        assertEquals(expected.total, actual.total);
+        assertEquals("enemigos del tick " + expected.tick, expected.count, actual.count);
+        for (int k = 0; k < expected.count; k++) {
+            String at = "tick " + expected.tick + ", enemigo " + expected.ids[k];
+            assertEquals(at, expected.ids[k], actual.ids[k]);
+            assertEquals(at, EnemySnapshot.position(expected.x[k]), actual.x[k], 0f);
+            assertEquals(at, EnemySnapshot.position(expected.y[k]), actual.y[k], 0f);
+            assertEquals(at, EnemySnapshot.position(expected.z[k]), actual.z[k], 0f);
+            assertEquals(at, expected.health[k], actual.health[k]);
+            assertEquals(at, expected.pattern[k], actual.pattern[k]);
+        }
+    }
+
+    private static EnemySnapshot snapshot(int tick, int[] ids) {
+        EnemySnapshot snapshot = new EnemySnapshot();
+        snapshot.tick = tick;
+        snapshot.score = 100 * tick;
+        snapshot.lives = 3;
+        snapshot.level = 1;
+        snapshot.total = ids.length + 10;
+        snapshot.ensureCapacity(ids.length);
+        for (int k = 0; k < ids.length; k++) {
+            snapshot.ids[k] = ids[k];
+            snapshot.x[k] = EnemySnapshot.quantize(ids[k] * 2f - 40f);
+            snapshot.y[k] = EnemySnapshot.quantize(1f);
+            snapshot.z[k] = EnemySnapshot.quantize(-ids[k]);
+            snapshot.health[k] = CowboySpawner.MAX_HEALTH;
+            snapshot.pattern[k] = ids[k] % MovementPattern.VALUES.length;
+        }
+        snapshot.count = ids.length;
+        return snapshot;
+    }
+
+    private static void copy(EnemySnapshot from, EnemySnapshot to) {
+        to.copyHeader(from);
+        to.ensureCapacity(from.count);
+        System.arraycopy(from.ids, 0, to.ids, 0, from.count);
+        System.arraycopy(from.x, 0, to.x, 0, from.count);
+        System.arraycopy(from.y, 0, to.y, 0, from.count);
+        System.arraycopy(from.z, 0, to.z, 0, from.count);
+        System.arraycopy(from.health, 0, to.health, 0, from.count);
+        System.arraycopy(from.pattern, 0, to.pattern, 0, from.count);
+        to.count = from.count;
+    }
+
+    private static final class Packet {
+
+        final int tick;
+        final byte[] data;
+        final int due;
+
+        Packet(int tick, byte[] data, int due) {
+            this.tick = tick;
+            this.data = data;
+            this.due = due;
+        }
+    }
+
+    /**
+     * Lo que ve un cliente tick a tick: los enemigos se mueven (algunos se
+     * quedan quietos), pierden vida, cambian de patron, mueren, aparecen y
+     * entran y salen de su area de interes.
+     */
+    private static final class World {
+
+        private final Random rand;
+        /** Id de red a x, y, z, vida, patron y si esta dentro del area de interes. */
+        private final TreeMap<Integer, int[]> enemies = new TreeMap<>();
+        private int nextId = 1;
+        private int tick = 0;
+
+        World(long seed, int count) {
+            rand = new Random(seed);
+            for (int i = 0; i < count; i++) spawn();
+        }
+
+        EnemySnapshot next() {
+            tick++;
+            List<Integer> dead = new ArrayList<>();
+            for (Map.Entry<Integer, int[]> entry : enemies.entrySet()) {
+                int[] e = entry.getValue();
+                if (rand.nextFloat() < 0.7f) {
+                    e[0] += rand.nextInt(9) - 4;
+                    e[2] += rand.nextInt(9) - 4;
+                }
+                if (rand.nextFloat() < 0.05f) e[1] += rand.nextInt(3) - 1;
+                if (rand.nextFloat() < 0.02f) e[3]--;
+                if (rand.nextFloat() < 0.01f) e[4] = rand.nextInt(MovementPattern.VALUES.length);
+                if (rand.nextFloat() < 0.05f) e[5] ^= 1;
+                if (e[3] <= 0) dead.add(entry.getKey());
+            }
+            for (Integer id : dead) enemies.remove(id);
+            while (rand.nextFloat() < 0.5f) spawn();
+
+            EnemySnapshot snapshot = new EnemySnapshot();
+            snapshot.tick = tick;
+            snapshot.score = 10 * tick;
+            snapshot.lives = 3 - tick / 400;
+            snapshot.level = 1 + tick / 200;
+            snapshot.total = enemies.size();
+            snapshot.ensureCapacity(enemies.size());
+            int n = 0;
+            for (Map.Entry<Integer, int[]> entry : enemies.entrySet()) {
+                int[] e = entry.getValue();
+                if (e[5] == 0) continue;
+                snapshot.ids[n] = entry.getKey();
+                snapshot.x[n] = e[0];
+                snapshot.y[n] = e[1];
+                snapshot.z[n] = e[2];
+                snapshot.health[n] = e[3];
+                snapshot.pattern[n] = e[4];
+                n++;
+            }
+            snapshot.count = n;
+            return snapshot;
+        }
+
+        private void spawn() {
+            float angle = rand.nextFloat() * 6.2831855f;
+            enemies.put(nextId++, new int[]{
+                EnemySnapshot.quantize(100f * (float) Math.cos(angle)),
+                EnemySnapshot.quantize(1f),
+                EnemySnapshot.quantize(100f * (float) Math.sin(angle)),
+                CowboySpawner.MAX_HEALTH,
+                rand.nextInt(MovementPattern.VALUES.length),
+                rand.nextFloat() < 0.8f ? 1 : 0
+            });
+        }
+    }
+}
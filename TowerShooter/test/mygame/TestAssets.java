@@ -0,0 +1,95 @@
+package mygame;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.asset.plugins.ClasspathLocator;
+import com.jme3.asset.plugins.FileLocator;
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.shape.Box;
+import com.jme3.scene.shape.Sphere;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Modelos de sustitucion para las pruebas. Los j3o y el mapa de alturas del
+ * juego no estan en el repositorio, asi que se generan una vez por ejecucion
+ * en una carpeta temporal con las mismas rutas: una bala, un vaquero con forma
+ * de caja y un terreno plano. Esa carpeta se registra antes que la de assets
+ * y que el classpath, asi que las pruebas usan siempre los mismos modelos.
+ */
+final class TestAssets {
+
+    private static Path dir;
+
+    private TestAssets() {
+    }
+
+    /** AssetManager con los modelos de prueba y la carpeta assets del proyecto. */
+    static AssetManager assetManager() {
+        AssetManager assetManager = new DesktopAssetManager(true);
+        register(assetManager);
+        return assetManager;
+    }
+
+    /**
+     * Deja la carpeta de los modelos de prueba por delante de todo, incluido
+     * el classpath (que ya viene registrado y puede traer los j3o del juego);
+     * el classpath vuelve al final para los assets del motor.
+     */
+    static void register(AssetManager assetManager) {
+        assetManager.unregisterLocator("/", ClasspathLocator.class);
+        assetManager.registerLocator(dir().toString(), FileLocator.class);
+        assetManager.registerLocator("assets", FileLocator.class);
+        assetManager.registerLocator("/", ClasspathLocator.class);
+    }
+
+    private static synchronized Path dir() {
+        if (dir == null) {
+            try {
+                dir = Files.createTempDirectory("towershooter-assets");
+                generate(dir);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudieron generar los modelos de prueba", e);
+            }
+        }
+        return dir;
+    }
+
+    private static void generate(Path dir) throws IOException {
+        AssetManager assetManager = new DesktopAssetManager(true);
+
+        Geometry bullet = new Geometry("Bullet", new Sphere(8, 8, 0.2f));
+        bullet.setMaterial(new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md"));
+        save(bullet, dir.resolve("Models/Bullet/Bullet.j3o"));
+
+        Material cowboyMat = new Material(assetManager, "Common/MatDefs/Light/Lighting.j3md");
+        cowboyMat.setBoolean("UseMaterialColors", true);
+        cowboyMat.setColor("Diffuse", ColorRGBA.Brown);
+        Geometry body = new Geometry("Body", new Box(0.5f, 1f, 0.3f));
+        body.setMaterial(cowboyMat);
+        body.setLocalTranslation(0, 1f, 0);
+        Node cowboy = new Node("Cowboy");
+        cowboy.attachChild(body);
+        save(cowboy, dir.resolve("Models/Cowboy/Cowboy.j3o"));
+
+        // Mismo tamano que el mapa del juego (TerrainQuad de 513), todo a altura 0
+        Path heightMap = dir.resolve("Textures/Terrain/splat/grand_mountain.png");
+        Files.createDirectories(heightMap.getParent());
+        ImageIO.write(new BufferedImage(513, 513, BufferedImage.TYPE_BYTE_GRAY), "png", heightMap.toFile());
+    }
+
+    private static void save(Spatial model, Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        BinaryExporter.getInstance().save(model, path.toFile());
+    }
+}
@@ -0,0 +1,78 @@
+package mygame;
+
+import com.jme3.system.AppSettings;
+import com.jme3.system.JmeContext;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * El juego sin ventana con los modelos de {@link TestAssets}, controlado por
+ * una prueba desde el hilo de render como lo hace el {@link HeadlessRunner}.
+ */
+class TestGame extends Main {
+
+    private static final long TIMEOUT_SECONDS = 120;
+
+    /** Un paso de la prueba por frame; devuelve true cuando ha terminado. */
+    interface Step {
+        boolean update(Main game, float tpf);
+    }
+
+    TestGame(GameConfig config) {
+        super(config);
+    }
+
+    @Override
+    public void simpleInitApp() {
+        TestAssets.register(assetManager);
+        super.simpleInitApp();
+    }
+
+    /** Configuracion determinista: cada frame avanza 1/60 s sin esperar al reloj. */
+    static GameConfig config() {
+        GameConfig config = new GameConfig();
+        config.deterministic = true;
+        config.seed = 7L;
+        return config;
+    }
+
+    /**
+     * Arranca la partida y llama a {@code step} al principio de cada frame
+     * hasta que devuelve true. Un fallo dentro del paso se relanza aqui.
+     */
+    static void play(GameConfig config, Step step) throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        TestGame game = new TestGame(config);
+        game.setScript((g, tpf) -> {
+            if (done.getCount() == 0) return;
+            try {
+                if (step.update(g, tpf)) done.countDown();
+            } catch (Throwable t) {
+                failure.set(t);
+                done.countDown();
+            }
+        });
+        AppSettings settings = new AppSettings(true);
+        settings.setResolution(1280, 720);
+        settings.setAudioRenderer(null);
+        game.setSettings(settings);
+        game.setShowSettings(false);
+        game.setPauseOnLostFocus(false);
+
+        game.start(JmeContext.Type.Headless);
+        try {
+            assertTrue("La prueba no termino en " + TIMEOUT_SECONDS + " s",
+                    done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } finally {
+            game.stop(true);
+        }
+        Throwable t = failure.get();
+        if (t instanceof Error) throw (Error) t;
+        if (t instanceof Exception) throw (Exception) t;
+    }
+}
@@ -0,0 +1,108 @@
+package mygame;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WaveSpawnerTest {
+
+    private final List<Integer> spawned = new ArrayList<>();
+
+    @Test
+    public void exhaustedBudgetStillSpawnsOnePerFrame() {
+        // Un presupuesto de 1 ns se agota con el primer enemigo de cada frame
+        WaveSpawner spawner = new WaveSpawner(index -> {
+            spawned.add(index);
+            long start = System.nanoTime();
+            while (System.nanoTime() == start) {
+                // que el reloj avance aunque sea grueso
+            }
+        }, 1e-6f, 0);
+        spawner.start(5);
+        for (int frame = 1; frame <= 5; frame++) {
+            assertTrue(spawner.isSpawning());
+            assertEquals(frame == 5, spawner.update());
+            assertEquals(frame, spawned.size());
+        }
+        assertEquals(5, spawner.getFrames());
+        assertEquals(List.of(0, 1, 2, 3, 4), spawned);
+    }
+
+    @Test
+    public void maxPerFrameCapsEachFrame() {
+        WaveSpawner spawner = new WaveSpawner(spawned::add, 0f, 4);
+        spawner.start(10);
+
+        assertFalse(spawner.update());
+        assertEquals(4, spawned.size());
+        assertEquals(6, spawner.getPending());
+        assertFalse(spawner.update());
+        assertEquals(8, spawned.size());
+        assertTrue(spawner.update());
+        assertEquals(10, spawned.size());
+        assertEquals(0, spawner.getPending());
+        assertEquals(3, spawner.getFrames());
+
+        // Con la oleada completa no se crea nada mas
+        assertFalse(spawner.update());
+        assertEquals(10, spawned.size());
+    }
+
+    @Test
+    public void withoutBudgetOrCapTheWaveTakesOneFrame() {
+        WaveSpawner spawner = new WaveSpawner(spawned::add, 0f, 0);
+        spawner.start(200);
+        assertTrue(spawner.update());
+        assertEquals(200, spawned.size());
+        assertEquals(1, spawner.getFrames());
+    }
+
+    @Test
+    public void cancelDropsWhatIsLeft() {
+        WaveSpawner spawner = new WaveSpawner(spawned::add, 0f, 3);
+        spawner.start(10);
+        spawner.update();
+
+        spawner.cancel();
+        assertFalse(spawner.isSpawning());
+        assertEquals(0, spawner.getPending());
+        assertFalse(spawner.update());
+        assertEquals(3, spawned.size());
+    }
+
+    @Test
+    public void startReplacesTheUnfinishedWave() {
+        WaveSpawner spawner = new WaveSpawner(spawned::add, 0f, 3);
+        spawner.start(10);
+        spawner.update();
+
+        spawner.start(4);
+        assertEquals(4, spawner.getPending());
+        assertEquals(0, spawner.getFrames());
+        spawner.update();
+        // La nueva oleada empieza otra vez por el enemigo 0
+        assertEquals(List.of(0, 1, 2, 0, 1, 2), spawned);
+    }
+
+    @Test
+    public void pendingEnemiesCountInTheHud() throws Exception {
+        GameConfig config = TestGame.config();
+        config.enemiesPerWave = 50;
+        config.spawnMaxPerFrame = 7;
+
+        int[] frames = new int[1];
+        TestGame.play(config, (game, tpf) -> {
+            if (frames[0]++ == 0) return false;
+            // El HUD del frame anterior: vivos mas los que faltan por crear
+            HudState hud = game.getStateManager().getState(HudState.class);
+            assertEquals(Math.min(7 * (frames[0] - 1), 50), game.getEnemyCount());
+            assertEquals(50, hud.getEnemies());
+            return game.getEnemyCount() == 50;
+        });
+    }
+}